@@ -0,0 +1,27 @@
+package com.vestshop.cache;
+
+// Ảnh đã resize được lưu trong cache trên đĩa
+public class CachedImage {
+
+    private final String key; // Hash của (ảnh gốc, kích thước, định dạng), dùng làm tên file và ETag
+    private final String contentType;
+    private final byte[] bytes;
+
+    public CachedImage(String key, String contentType, byte[] bytes) {
+        this.key = key;
+        this.contentType = contentType;
+        this.bytes = bytes;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,39 @@
+package com.vestshop.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+// Response JSON đã serialize sẵn (UTF-8) và bản nén gzip, ghi thẳng ra response không qua Jackson
+public class CachedJson {
+
+    // Response nhỏ hơn ngưỡng này không nén (gzip header làm response lớn hơn)
+    private static final int GZIP_MIN_SIZE = 512;
+
+    private final byte[] json;
+    private final byte[] gzip; // null nếu không nén
+
+    public CachedJson(byte[] json) {
+        this.json = json;
+        this.gzip = json.length >= GZIP_MIN_SIZE ? compress(json) : null;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
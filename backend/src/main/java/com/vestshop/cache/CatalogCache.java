@@ -0,0 +1,334 @@
+package com.vestshop.cache;
+
+import com.vestshop.config.CatalogCacheConfig;
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.CacheValidatorModel;
+import com.vestshop.models.ProductModel;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Cache trong bộ nhớ cho catalog sản phẩm của storefront:
+// - chi tiết sản phẩm theo ID (model và JSON đã serialize sẵn)
+// - kết quả danh sách theo filter/sort/page (kèm ID sản phẩm và filter để xóa chính xác)
+// - kết quả facet (đếm theo danh mục, histogram giá), bị xóa khi có bất kỳ thay đổi nào trong catalog
+// Các thao tác ghi gọi evictProduct sau khi transaction commit.
+// Phiên bản cache cũng là nguồn ETag/Last-Modified cho danh sách và chi tiết sản phẩm.
+@Component
+public class CatalogCache {
+
+    private final int maxProducts;
+    private final int maxLists;
+
+    // LinkedHashMap theo thứ tự truy cập = LRU, được bảo vệ bởi lock của CatalogCache
+    private final LinkedHashMap<Integer, ProductModel> products = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, CachedJson> productJson = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, ListEntry> lists = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Object> facets = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Tăng mỗi lần xóa cache, dùng để bỏ qua các kết quả được đọc từ DB trước khi dữ liệu thay đổi
+    private final AtomicLong version = new AtomicLong();
+
+    // Mốc thay đổi (phiên bản + thời điểm) của toàn catalog, của lần xóa toàn bộ và của từng sản phẩm
+    // startedAt đưa vào ETag để ETag trước khi khởi động lại không trùng (phiên bản đếm lại từ 0)
+    private final String startedAt = Long.toString(System.currentTimeMillis(), 36);
+    private final Stamp initialStamp = new Stamp(0, System.currentTimeMillis());
+    private volatile Stamp catalogStamp = initialStamp;
+    private volatile Stamp allProductsStamp = initialStamp;
+    private final Map<Integer, Stamp> productStamps = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public CatalogCache(CatalogCacheConfig config) {
+        this.maxProducts = config.getMaxProducts();
+        this.maxLists = config.getMaxLists();
+    }
+
+    // Phiên bản hiện tại, lấy trước khi đọc DB và truyền lại khi put
+    public long currentVersion() {
+        return version.get();
+    }
+
+    // ETag/Last-Modified cho danh sách sản phẩm: đổi khi có bất kỳ thay đổi nào trong catalog
+    public CacheValidatorModel getCatalogValidator() {
+        Stamp stamp = catalogStamp;
+        return new CacheValidatorModel("W/\"catalog-" + startedAt + "-" + stamp.version + "\"", stamp.changedAt);
+    }
+
+    // ETag/Last-Modified cho chi tiết sản phẩm: chỉ đổi khi chính sản phẩm đó thay đổi (hoặc xóa toàn bộ cache)
+    public CacheValidatorModel getProductValidator(Integer id) {
+        Stamp stamp = allProductsStamp;
+        Stamp productStamp = productStamps.get(id);
+        if (productStamp != null && productStamp.version > stamp.version) {
+            stamp = productStamp;
+        }
+        return new CacheValidatorModel("W/\"product-" + id + "-" + startedAt + "-" + stamp.version + "\"", stamp.changedAt);
+    }
+
+    // Lấy chi tiết sản phẩm từ cache (null nếu không có)
+    public synchronized ProductModel getProduct(Integer id) {
+        ProductModel model = products.get(id);
+        recordAccess(model != null);
+        return model;
+    }
+
+    // Lưu chi tiết sản phẩm, bỏ qua nếu catalog đã thay đổi kể từ khi đọc
+    public synchronized void putProduct(Integer id, ProductModel model, long readVersion) {
+        if (id == null || model == null || readVersion != version.get()) {
+            return;
+        }
+        products.put(id, model);
+        while (products.size() > maxProducts) {
+            removeEldest(products);
+        }
+    }
+
+    // Lấy JSON chi tiết sản phẩm đã serialize từ cache (null nếu không có)
+    public synchronized CachedJson getProductJson(Integer id) {
+        CachedJson json = productJson.get(id);
+        recordAccess(json != null);
+        return json;
+    }
+
+    // Lưu JSON chi tiết sản phẩm, bỏ qua nếu catalog đã thay đổi kể từ khi đọc
+    public synchronized void putProductJson(Integer id, CachedJson json, long readVersion) {
+        if (id == null || json == null || readVersion != version.get()) {
+            return;
+        }
+        productJson.put(id, json);
+        while (productJson.size() > maxProducts) {
+            removeEldest(productJson);
+        }
+    }
+
+    // Lấy kết quả danh sách từ cache (null nếu không có)
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getList(String key) {
+        ListEntry entry = lists.get(key);
+        recordAccess(entry != null);
+        return entry != null ? (T) entry.value : null;
+    }
+
+    // Lưu kết quả danh sách cùng filter (trạng thái, category, khoảng giá) và ID sản phẩm trong kết quả.
+    // statuses = null: danh sách không lọc theo trạng thái
+    public synchronized void putList(String key, Object value, Collection<Integer> productIds, Set<ProductStatus> statuses,
+                                     String category, Integer minPrice, Integer maxPrice, long readVersion) {
+        if (key == null || value == null || readVersion != version.get()) {
+            return;
+        }
+        Set<ProductStatus> statusFilter = statuses != null ? EnumSet.copyOf(statuses) : null;
+        lists.put(key, new ListEntry(value, new HashSet<>(productIds), statusFilter, category, minPrice, maxPrice));
+        while (lists.size() > maxLists) {
+            removeEldest(lists);
+        }
+    }
+
+    // Lấy kết quả facet từ cache (null nếu không có)
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getFacets(String key) {
+        Object value = facets.get(key);
+        recordAccess(value != null);
+        return (T) value;
+    }
+
+    // Lưu kết quả facet, bỏ qua nếu catalog đã thay đổi kể từ khi đọc
+    public synchronized void putFacets(String key, Object value, long readVersion) {
+        if (key == null || value == null || readVersion != version.get()) {
+            return;
+        }
+        facets.put(key, value);
+        while (facets.size() > maxLists) {
+            removeEldest(facets);
+        }
+    }
+
+    // Xóa sản phẩm khỏi cache sau khi thay đổi không làm đổi trạng thái/category/giá (tồn kho, rating, lượt bán):
+    // chỉ các danh sách đang chứa sản phẩm bị xóa
+    public void evictProduct(Integer id) {
+        TransactionUtils.afterCommit(() -> evictNow(id, entry -> false));
+    }
+
+    // Xóa sản phẩm khỏi cache khi trạng thái có thể thay đổi mà không đổi category/giá (trừ/cộng tồn kho):
+    // xóa thêm các danh sách lọc theo trạng thái cũ hoặc mới (sản phẩm có thể xuất hiện/biến mất khỏi danh sách)
+    public void evictProduct(Integer id, ProductStatus previousStatus, ProductStatus status) {
+        if (previousStatus == status) {
+            evictProduct(id);
+            return;
+        }
+        TransactionUtils.afterCommit(() -> evictNow(id, entry -> entry.filtersStatus(previousStatus) || entry.filtersStatus(status)));
+    }
+
+    // Xóa sản phẩm khỏi cache khi trạng thái/category/giá có thể thay đổi: gọi với giá trị trước và sau khi ghi,
+    // xóa thêm các danh sách có filter khớp với giá trị đó (sản phẩm có thể xuất hiện/biến mất khỏi danh sách)
+    public void evictProduct(Product product) {
+        if (product == null) {
+            return;
+        }
+        Integer id = product.getId();
+        ProductStatus status = product.getStatus();
+        String category = product.getCategory();
+        Integer effectivePrice = product.getSalePrice() != null ? product.getSalePrice() : product.getPrice();
+        TransactionUtils.afterCommit(() -> evictNow(id, entry -> entry.matches(status, category, effectivePrice)));
+    }
+
+    // Xóa toàn bộ cache
+    public void evictAll() {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                Stamp stamp = new Stamp(version.incrementAndGet(), System.currentTimeMillis());
+                catalogStamp = stamp;
+                allProductsStamp = stamp;
+                invalidations.addAndGet(products.size() + productJson.size() + lists.size() + facets.size());
+                products.clear();
+                productJson.clear();
+                lists.clear();
+                facets.clear();
+            }
+        });
+    }
+
+    // Xóa các danh sách đang sắp xếp theo sortBy (thứ tự thay đổi mà không có sản phẩm nào được ghi, ví dụ điểm xếp hạng)
+    public synchronized void evictListsBySort(String sortBy) {
+        Stamp stamp = new Stamp(version.incrementAndGet(), System.currentTimeMillis());
+        catalogStamp = stamp;
+        String suffix = ":" + sortBy;
+        Iterator<String> iterator = lists.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().endsWith(suffix)) {
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    // Thống kê hit/miss/eviction
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("productEntries", products.size());
+        stats.put("productJsonEntries", productJson.size());
+        stats.put("listEntries", lists.size());
+        stats.put("facetEntries", facets.size());
+        stats.put("maxProducts", maxProducts);
+        stats.put("maxLists", maxLists);
+        return stats;
+    }
+
+    // Xóa sản phẩm id, facet và các danh sách chứa sản phẩm hoặc có filter bị ảnh hưởng (affected)
+    private synchronized void evictNow(Integer id, Predicate<ListEntry> affected) {
+        Stamp stamp = new Stamp(version.incrementAndGet(), System.currentTimeMillis());
+        catalogStamp = stamp;
+        if (id != null) {
+            productStamps.put(id, stamp);
+        }
+        if (id != null && products.remove(id) != null) {
+            invalidations.incrementAndGet();
+        }
+        if (id != null && productJson.remove(id) != null) {
+            invalidations.incrementAndGet();
+        }
+        // Facet được tính trên toàn bộ catalog nên mọi thay đổi đều làm kết quả cũ không còn đúng
+        invalidations.addAndGet(facets.size());
+        facets.clear();
+        Iterator<ListEntry> iterator = lists.values().iterator();
+        while (iterator.hasNext()) {
+            ListEntry entry = iterator.next();
+            if ((id != null && entry.productIds.contains(id)) || affected.test(entry)) {
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void recordAccess(boolean hit) {
+        if (hit) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+
+    private <K, V> void removeEldest(LinkedHashMap<K, V> map) {
+        Iterator<K> iterator = map.keySet().iterator();
+        iterator.next();
+        iterator.remove();
+        evictions.incrementAndGet();
+    }
+
+    // Phiên bản cache và thời điểm thay đổi tương ứng
+    private static class Stamp {
+        private final long version;
+        private final long changedAt;
+
+        private Stamp(long version, long changedAt) {
+            this.version = version;
+            this.changedAt = changedAt;
+        }
+    }
+
+    // Một kết quả danh sách trong cache
+    private static class ListEntry {
+        private final Object value;
+        private final Set<Integer> productIds;
+        private final Set<ProductStatus> statuses; // null = không lọc theo trạng thái
+        private final String category; // null = tất cả danh mục
+        private final Integer minPrice;
+        private final Integer maxPrice;
+
+        private ListEntry(Object value, Set<Integer> productIds, Set<ProductStatus> statuses,
+                          String category, Integer minPrice, Integer maxPrice) {
+            this.value = value;
+            this.productIds = productIds;
+            this.statuses = statuses;
+            this.category = category;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        // Danh sách có lọc theo trạng thái và trạng thái này nằm trong filter
+        private boolean filtersStatus(ProductStatus status) {
+            return statuses != null && status != null && statuses.contains(status);
+        }
+
+        // Sản phẩm với trạng thái/category/giá này có thuộc filter của danh sách không
+        private boolean matches(ProductStatus status, String productCategory, Integer effectivePrice) {
+            if (statuses != null && status != null && !statuses.contains(status)) {
+                return false;
+            }
+            if (category != null && !category.equals(productCategory)) {
+                return false;
+            }
+            if (effectivePrice == null) {
+                return true;
+            }
+            if (minPrice != null && effectivePrice < minPrice) {
+                return false;
+            }
+            return maxPrice == null || effectivePrice <= maxPrice;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.vestshop.cache;
+
+import com.vestshop.config.ImageConfig;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Cache ảnh đã resize trên đĩa, đánh địa chỉ theo nội dung: tên file = hash của (ảnh gốc, kích thước, định dạng)
+// nên một key luôn ứng với đúng một nội dung (client có thể cache vĩnh viễn).
+// Tổng dung lượng bị giới hạn: vượt quá thì xóa các file ít được truy cập nhất (LRU).
+// Thứ tự truy cập được giữ trong bộ nhớ và khôi phục từ thời điểm sửa file khi khởi động
+@Component
+public class DiskImageCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Chỉ cập nhật thời điểm sửa file khi đọc nếu đã cũ hơn khoảng này (tránh ghi đĩa mỗi lần đọc)
+    private static final long TOUCH_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // key -> file, LinkedHashMap theo thứ tự truy cập = LRU, được bảo vệ bởi lock của DiskImageCache
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public DiskImageCache(ImageConfig config) {
+        this.directory = Paths.get(config.getCacheDir());
+        this.maxBytes = config.getMaxCacheBytes();
+        load();
+    }
+
+    // Đọc ảnh từ cache (null nếu không có)
+    public CachedImage get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(entry.path);
+            touch(entry);
+            hits.incrementAndGet();
+            return new CachedImage(key, entry.contentType, bytes);
+        } catch (IOException e) {
+            // File bị xóa từ bên ngoài: bỏ khỏi danh sách để tạo lại
+            remove(key, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    // Ghi ảnh vào cache (ghi file tạm rồi đổi tên để không bao giờ đọc phải file ghi dở), xóa ảnh cũ nếu vượt dung lượng
+    public void put(CachedImage image, String extension) {
+        Path path = pathOf(image.getKey(), extension);
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), image.getKey(), TEMP_SUFFIX);
+            Files.write(temp, image.getBytes());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.put(image.getKey(), new Entry(path, image.getContentType(), image.getBytes().length, System.currentTimeMillis()));
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            totalBytes += image.getBytes().length;
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                iterator.remove();
+                totalBytes -= eldest.getValue().size;
+                evicted.add(eldest.getValue().path);
+            }
+        }
+        // Xóa file ngoài lock (file đang được đọc dở vẫn đọc được trên Linux)
+        for (Path file : evicted) {
+            deleteQuietly(file);
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Thống kê hit/miss/eviction
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("entries", entries.size());
+        stats.put("totalBytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    // Nạp danh sách file đã có (thứ tự LRU theo thời điểm sửa file), xóa file tạm còn sót lại
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            paths.filter(Files::isRegularFile).forEach(files::add);
+        } catch (IOException e) {
+            System.err.println("Error loading image cache " + directory + ": " + e.getMessage());
+            return;
+        }
+        Map<Path, Long> modifiedAt = new HashMap<>();
+        for (Path file : files) {
+            modifiedAt.put(file, lastModified(file));
+        }
+        files.sort(Comparator.comparing(modifiedAt::get));
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                String contentType = dot > 0 ? contentTypeOf(name.substring(dot + 1)) : null;
+                if (name.endsWith(TEMP_SUFFIX) || contentType == null) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                long size = file.toFile().length();
+                entries.put(name.substring(0, dot), new Entry(file, contentType, size, modifiedAt.get(file)));
+                totalBytes += size;
+            }
+        }
+        if (!entries.isEmpty()) {
+            System.out.println("Loaded " + entries.size() + " cached images (" + totalBytes + " bytes)");
+        }
+    }
+
+    // Đánh dấu file vừa được dùng để thứ tự LRU vẫn đúng sau khi khởi động lại
+    private void touch(Entry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.touchedAt < TOUCH_INTERVAL_MS) {
+            return;
+        }
+        entry.touchedAt = now;
+        try {
+            Files.setLastModifiedTime(entry.path, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            // Không quan trọng: chỉ ảnh hưởng thứ tự LRU sau khi khởi động lại
+        }
+    }
+
+    private synchronized void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            totalBytes -= entry.size;
+        }
+    }
+
+    // Chia thư mục con theo 2 ký tự đầu của key để mỗi thư mục không có quá nhiều file
+    private Path pathOf(String key, String extension) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + "." + extension);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Error deleting cached image " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Content-Type theo phần mở rộng của file trong cache (null nếu không phải file ảnh của cache)
+    public static String contentTypeOf(String extension) {
+        switch (extension) {
+            case "webp":
+                return "image/webp";
+            case "jpg":
+                return "image/jpeg";
+            case "png":
+                return "image/png";
+            default:
+                return null;
+        }
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final String contentType;
+        private final long size;
+        private volatile long touchedAt;
+
+        private Entry(Path path, String contentType, long size, long touchedAt) {
+            this.path = path;
+            this.contentType = contentType;
+            this.size = size;
+            this.touchedAt = touchedAt;
+        }
+    }
+}
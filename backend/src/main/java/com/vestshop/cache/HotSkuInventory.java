@@ -0,0 +1,237 @@
+package com.vestshop.cache;
+
+import com.vestshop.config.FlashSaleConfig;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Tồn kho của các sản phẩm đang bật flash sale, giữ trong bộ nhớ thay cho dòng products:
+// - tồn kho được chia thành nhiều bộ đếm con (stripe), mỗi lượt trừ thử stripe ngẫu nhiên trước bằng CAS
+//   nên các đơn đồng thời cho cùng sản phẩm hầu như không tranh chấp nhau
+// - stripe không đủ thì gom từ các stripe khác, tổng không đủ thì trả lại phần đã lấy (không bao giờ xuống dưới 0)
+// - các stripe cách nhau PADDING phần tử (64 byte) để không nằm chung cache line
+// Phần đã trừ được ghi bền vững vào bảng stock_ledger trong transaction của đơn hàng (xem StockServiceImp).
+// Mỗi transaction trừ/cộng trên bộ đếm được đếm là "đang xử lý" (enter/exit) cho đến khi kết thúc, để khi tắt
+// flash sale có thể đóng bộ đếm và đợi các transaction đó commit (dòng ledger của chúng được ghi trước khi tắt cờ)
+@Component
+public class HotSkuInventory {
+
+    private static final int PADDING = 16;
+
+    private final int stripeCount;
+
+    // ID sản phẩm -> bộ đếm của sản phẩm
+    private final Map<Integer, HotSku> counters = new ConcurrentHashMap<>();
+
+    // Bộ đếm của một sản phẩm: các stripe (phần tử thứ i * PADDING là stripe i), số transaction đang xử lý
+    // và cờ đóng (đang tắt flash sale, transaction mới phải đợi)
+    private static class HotSku {
+        final AtomicIntegerArray stripes;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile boolean closed;
+
+        HotSku(AtomicIntegerArray stripes) {
+            this.stripes = stripes;
+        }
+    }
+
+    @Autowired
+    public HotSkuInventory(FlashSaleConfig config) {
+        this.stripeCount = Math.max(1, config.getStripes());
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    public boolean isHot(Integer productId) {
+        return counters.containsKey(productId);
+    }
+
+    // Bật chế độ flash sale với số tồn kho hiện có (chia đều cho các stripe)
+    public void enable(Integer productId, int available) {
+        AtomicIntegerArray stripes = new AtomicIntegerArray(stripeCount * PADDING);
+        int remaining = Math.max(available, 0);
+        for (int i = 0; i < stripeCount; i++) {
+            int share = remaining / (stripeCount - i);
+            stripes.set(i * PADDING, share);
+            remaining -= share;
+        }
+        counters.put(productId, new HotSku(stripes));
+    }
+
+    public void disable(Integer productId) {
+        counters.remove(productId);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    // Bắt đầu một transaction trừ/cộng trên bộ đếm, đợi (tối đa timeoutMs) nếu bộ đếm đang đóng.
+    // Trả về false nếu sản phẩm không (còn) bật flash sale; true thì phải gọi exit khi transaction kết thúc
+    public boolean enter(Integer productId, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            HotSku sku = counters.get(productId);
+            if (sku == null) {
+                return false;
+            }
+            // Tăng trước rồi mới kiểm tra cờ (close làm ngược lại) nên không lượt nào lọt qua khi đang đóng
+            sku.inFlight.incrementAndGet();
+            if (!sku.closed) {
+                return true;
+            }
+            exit(sku);
+            synchronized (this) {
+                while (counters.get(productId) == sku && sku.closed) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new RuntimeException("Sản phẩm đang được cập nhật chế độ flash sale, vui lòng thử lại");
+                    }
+                    await(remaining);
+                }
+            }
+        }
+    }
+
+    public void exit(Integer productId) {
+        HotSku sku = counters.get(productId);
+        if (sku != null) {
+            exit(sku);
+        }
+    }
+
+    private void exit(HotSku sku) {
+        if (sku.inFlight.decrementAndGet() == 0 && sku.closed) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    // Đóng bộ đếm (transaction mới phải đợi) rồi đợi các transaction đang xử lý kết thúc.
+    // Trả về false (và mở lại bộ đếm) nếu sản phẩm không bật flash sale hoặc quá timeoutMs
+    public boolean close(Integer productId, long timeoutMs) {
+        HotSku sku = counters.get(productId);
+        if (sku == null) {
+            return false;
+        }
+        sku.closed = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (this) {
+            while (sku.inFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    reopen(productId);
+                    return false;
+                }
+                await(remaining);
+            }
+        }
+        return true;
+    }
+
+    // Gọi khi đang giữ lock của HotSkuInventory
+    private void await(long timeoutMs) {
+        try {
+            wait(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bị gián đoạn khi đợi bộ đếm flash sale");
+        }
+    }
+
+    // Mở lại bộ đếm đã đóng (tắt flash sale không thành công)
+    public void reopen(Integer productId) {
+        HotSku sku = counters.get(productId);
+        if (sku != null) {
+            sku.closed = false;
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    // Bộ đếm đang đóng (đang tắt flash sale)
+    public boolean isClosed(Integer productId) {
+        HotSku sku = counters.get(productId);
+        return sku != null && sku.closed;
+    }
+
+    // Trừ quantity đơn vị, trả về false (và không trừ gì) nếu không đủ hàng hoặc sản phẩm không bật flash sale
+    public boolean tryTake(Integer productId, int quantity) {
+        HotSku sku = counters.get(productId);
+        if (sku == null) {
+            return false;
+        }
+        AtomicIntegerArray stripes = sku.stripes;
+        int start = ThreadLocalRandom.current().nextInt(stripeCount);
+        int[] taken = new int[stripeCount];
+        int remaining = quantity;
+        for (int i = 0; i < stripeCount && remaining > 0; i++) {
+            int stripe = (start + i) % stripeCount;
+            while (true) {
+                int available = stripes.get(stripe * PADDING);
+                if (available <= 0) {
+                    break;
+                }
+                int take = Math.min(available, remaining);
+                if (stripes.compareAndSet(stripe * PADDING, available, available - take)) {
+                    taken[stripe] += take;
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+        if (remaining > 0) {
+            for (int stripe = 0; stripe < stripeCount; stripe++) {
+                if (taken[stripe] > 0) {
+                    stripes.addAndGet(stripe * PADDING, taken[stripe]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // Cộng lại quantity đơn vị (hủy đơn, rollback), trả về false nếu sản phẩm không bật flash sale
+    public boolean give(Integer productId, int quantity) {
+        HotSku sku = counters.get(productId);
+        if (sku == null) {
+            return false;
+        }
+        AtomicIntegerArray stripes = sku.stripes;
+        stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripeCount) * PADDING, quantity);
+        return true;
+    }
+
+    // Tổng tồn kho còn lại (-1 nếu sản phẩm không bật flash sale)
+    public int getAvailable(Integer productId) {
+        HotSku sku = counters.get(productId);
+        if (sku == null) {
+            return -1;
+        }
+        AtomicIntegerArray stripes = sku.stripes;
+        int total = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            total += stripes.get(i * PADDING);
+        }
+        return total;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<Integer, Integer> available = new HashMap<>();
+        counters.keySet().forEach(productId -> available.put(productId, getAvailable(productId)));
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("stripes", stripeCount);
+        stats.put("products", available);
+        return stats;
+    }
+}
@@ -0,0 +1,109 @@
+package com.vestshop.cache;
+
+import com.vestshop.config.IdempotencyConfig;
+import com.vestshop.models.OrderModel;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Kết quả tạo đơn theo Idempotency-Key gần đây, giữ trong bộ nhớ để request gửi lại không cần query:
+// - giới hạn số lượng (LRU), mục hết hạn bị bỏ khi đọc hoặc khi job dọn dẹp chạy
+// - bảng order_idempotency_keys là nguồn dữ liệu chính, bộ nhớ chỉ được cập nhật sau khi transaction commit
+@Component
+public class IdempotencyStore {
+
+    public static class StoredOrder {
+        private final String requestHash;
+        private final OrderModel order;
+        private final long expiresAt; // epoch millis
+
+        public StoredOrder(String requestHash, OrderModel order, long expiresAt) {
+            this.requestHash = requestHash;
+            this.order = order;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getRequestHash() {
+            return requestHash;
+        }
+
+        public OrderModel getOrder() {
+            return order;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+
+    private final int maxEntries;
+
+    // LinkedHashMap theo thứ tự truy cập = LRU, được bảo vệ bởi lock của IdempotencyStore
+    private final LinkedHashMap<String, StoredOrder> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public IdempotencyStore(IdempotencyConfig config) {
+        this.maxEntries = config.getMaxEntries();
+    }
+
+    // Lấy kết quả còn hạn (null nếu không có)
+    public synchronized StoredOrder get(String key, long now) {
+        StoredOrder stored = entries.get(key);
+        if (stored != null && stored.isExpired(now)) {
+            entries.remove(key);
+            stored = null;
+        }
+        (stored != null ? hits : misses).incrementAndGet();
+        return stored;
+    }
+
+    public synchronized void put(String key, StoredOrder stored) {
+        entries.put(key, stored);
+        while (entries.size() > maxEntries) {
+            Iterator<String> iterator = entries.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Bỏ các mục đã hết hạn, trả về số mục bị bỏ
+    public synchronized int removeExpired(long now) {
+        int removed = 0;
+        Iterator<StoredOrder> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+}
@@ -0,0 +1,130 @@
+package com.vestshop.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Các lượt giữ hàng đang hiệu lực, giữ trong bộ nhớ để kiểm tra khi đặt hàng và tìm lượt hết hạn không cần query:
+// - mỗi lượt giữ chỉ gồm hai mảng int (ID sản phẩm, số lượng) và thời điểm hết hạn
+// - sắp theo thời điểm hết hạn để job dọn dẹp lấy ra theo lô
+// - tổng số lượng đang giữ theo sản phẩm
+// Bảng stock_reservations là nguồn dữ liệu chính (trạng thái được chuyển bằng UPDATE có điều kiện),
+// bộ nhớ chỉ được cập nhật sau khi transaction commit và được nạp lại từ DB khi khởi động
+@Component
+public class ReservationHolds {
+
+    public static class Hold {
+        private final String id;
+        private final String username;
+        private final long expiresAt; // epoch millis
+        private final int[] productIds; // Tăng dần
+        private final int[] quantities;
+
+        public Hold(String id, String username, long expiresAt, SortedMap<Integer, Integer> quantityByProduct) {
+            this.id = id;
+            this.username = username;
+            this.expiresAt = expiresAt;
+            this.productIds = new int[quantityByProduct.size()];
+            this.quantities = new int[quantityByProduct.size()];
+            int index = 0;
+            for (Map.Entry<Integer, Integer> entry : quantityByProduct.entrySet()) {
+                productIds[index] = entry.getKey();
+                quantities[index++] = entry.getValue();
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+
+        // ID sản phẩm -> số lượng đang giữ (ID tăng dần)
+        public SortedMap<Integer, Integer> getQuantities() {
+            SortedMap<Integer, Integer> result = new TreeMap<>();
+            for (int i = 0; i < productIds.length; i++) {
+                result.put(productIds[i], quantities[i]);
+            }
+            return result;
+        }
+    }
+
+    // Các map được bảo vệ bởi lock của ReservationHolds
+    private final Map<String, Hold> holdsById = new HashMap<>();
+    private final TreeSet<Hold> holdsByExpiry = new TreeSet<>(Comparator.comparingLong(Hold::getExpiresAt).thenComparing(Hold::getId));
+    private final Map<String, String> holdIdByUsername = new HashMap<>(); // Mỗi khách chỉ có một lượt giữ
+    private final Map<Integer, Integer> reservedByProduct = new HashMap<>();
+
+    public synchronized void add(Hold hold) {
+        remove(hold.getId());
+        holdsById.put(hold.getId(), hold);
+        holdsByExpiry.add(hold);
+        holdIdByUsername.put(hold.getUsername(), hold.getId());
+        for (int i = 0; i < hold.productIds.length; i++) {
+            reservedByProduct.merge(hold.productIds[i], hold.quantities[i], Integer::sum);
+        }
+    }
+
+    public synchronized Hold get(String id) {
+        return holdsById.get(id);
+    }
+
+    public synchronized Hold getByUsername(String username) {
+        String id = holdIdByUsername.get(username);
+        return id != null ? holdsById.get(id) : null;
+    }
+
+    public synchronized void remove(String id) {
+        Hold hold = holdsById.remove(id);
+        if (hold == null) {
+            return;
+        }
+        holdsByExpiry.remove(hold);
+        holdIdByUsername.remove(hold.getUsername(), id);
+        for (int i = 0; i < hold.productIds.length; i++) {
+            int quantity = hold.quantities[i];
+            reservedByProduct.computeIfPresent(hold.productIds[i], (productId, reserved) -> reserved > quantity ? reserved - quantity : null);
+        }
+    }
+
+    // Các lượt giữ đã hết hạn (hết hạn sớm nhất trước), tối đa limit lượt
+    public synchronized List<Hold> findExpired(long now, int limit) {
+        List<Hold> expired = new ArrayList<>();
+        Iterator<Hold> iterator = holdsByExpiry.iterator();
+        while (iterator.hasNext() && expired.size() < limit) {
+            Hold hold = iterator.next();
+            if (!hold.isExpired(now)) {
+                break;
+            }
+            expired.add(hold);
+        }
+        return expired;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeHolds", holdsById.size());
+        stats.put("reservedProducts", reservedByProduct.size());
+        stats.put("reservedUnits", reservedByProduct.values().stream().mapToLong(Integer::longValue).sum());
+        stats.put("nextExpiresAt", holdsByExpiry.isEmpty() ? null : holdsByExpiry.first().getExpiresAt());
+        return stats;
+    }
+}
@@ -0,0 +1,13 @@
+package com.vestshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@ConfigurationProperties(prefix = "catalog.cache")
+@Component
+public class CatalogCacheConfig {
+    private Integer maxProducts = 2000; // Số sản phẩm tối đa giữ trong cache
+    private Integer maxLists = 500; // Số trang danh sách (filter/sort/page) tối đa giữ trong cache
+}
@@ -0,0 +1,15 @@
+package com.vestshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@ConfigurationProperties(prefix = "flash-sale")
+@Component
+public class FlashSaleConfig {
+    private Integer stripes = 16; // Số bộ đếm con của mỗi sản phẩm flash sale (nhiều luồng trừ đồng thời ít tranh chấp)
+    private Long flushIntervalMs = 1000L; // Chu kỳ ghi ledger tồn kho xuống products.stock
+    private Integer flushBatchSize = 5000; // Số dòng ledger ghi trong một transaction
+    private Long drainTimeoutMs = 5000L; // Thời gian tối đa đợi các đơn hàng đang trừ bộ đếm commit khi tắt flash sale
+}
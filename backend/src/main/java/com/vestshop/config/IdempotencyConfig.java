@@ -0,0 +1,15 @@
+package com.vestshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@ConfigurationProperties(prefix = "idempotency")
+@Component
+public class IdempotencyConfig {
+    private Integer ttlHours = 24; // Thời gian giữ kết quả của một Idempotency-Key (khách gửi lại trong thời gian này nhận lại kết quả cũ)
+    private Integer maxEntries = 10000; // Số kết quả tối đa giữ trong bộ nhớ (phần còn lại đọc từ DB)
+    private Integer maxKeyLength = 255; // Độ dài tối đa của header Idempotency-Key
+    private Long purgeIntervalMs = 600000L; // Chu kỳ job xóa các key đã hết hạn trong DB
+}
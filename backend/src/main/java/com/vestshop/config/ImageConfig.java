@@ -0,0 +1,22 @@
+package com.vestshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "images")
+@Component
+public class ImageConfig {
+    private String cacheDir = System.getProperty("java.io.tmpdir") + "/vestshop-images"; // Thư mục lưu ảnh đã resize
+    private Long maxCacheBytes = 512L * 1024 * 1024; // Dung lượng tối đa của thư mục cache (xóa ảnh ít dùng nhất khi vượt)
+    private List<Integer> widths = List.of(160, 320, 480, 640, 960, 1280); // Các kích thước được hỗ trợ (giới hạn số biến thể)
+    private Integer workerThreads = 2; // Số thread tạo ảnh
+    private Integer queueCapacity = 100; // Số yêu cầu tạo ảnh được xếp hàng tối đa (quá thì trả về 503)
+    private Integer maxSourceBytes = 10 * 1024 * 1024; // Dung lượng tối đa của ảnh gốc
+    private Long maxSourcePixels = 40_000_000L; // Số điểm ảnh tối đa của ảnh gốc (tránh ảnh bung ra quá lớn khi giải nén)
+    private Integer fetchTimeoutMs = 5000; // Timeout khi tải ảnh gốc từ URL ngoài
+    private Float jpegQuality = 0.82f;
+}
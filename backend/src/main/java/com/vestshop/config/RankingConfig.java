@@ -0,0 +1,14 @@
+package com.vestshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@ConfigurationProperties(prefix = "catalog.ranking")
+@Component
+public class RankingConfig {
+    private Double trendingHalfLifeHours = 72.0; // Sau bao nhiêu giờ một lượt đặt hàng/đánh giá chỉ còn nửa trọng số
+    private Double bestsellerHalfLifeDays = 30.0; // Sau bao nhiêu ngày một sản phẩm đã bán chỉ còn nửa trọng số
+    private Long flushIntervalMs = 60000L; // Chu kỳ ghi điểm đã thay đổi xuống database
+}
@@ -0,0 +1,16 @@
+package com.vestshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@ConfigurationProperties(prefix = "reservations")
+@Component
+public class ReservationConfig {
+    private Integer ttlMinutes = 10; // Thời gian giữ hàng khi khách vào bước thanh toán
+    private Integer maxItems = 50; // Số sản phẩm (khác nhau) tối đa trong một lượt giữ
+    private Integer maxQuantityPerItem = 20; // Số lượng tối đa giữ cho một sản phẩm
+    private Long sweepIntervalMs = 5000L; // Chu kỳ job trả lại hàng của các lượt giữ hết hạn
+    private Integer sweepBatchSize = 500; // Số lượt giữ xử lý trong một transaction của job
+}
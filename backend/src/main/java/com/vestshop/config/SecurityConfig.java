@@ -9,6 +9,10 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
 import org.springframework.web.cors.CorsConfigurationSource;
 
 @Configuration
@@ -28,6 +32,13 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            // Header chống cache mặc định cho mọi response, trừ ảnh thu nhỏ (/api/images tự đặt Cache-Control dài hạn;
+            // response bất đồng bộ nên header mặc định sẽ bị ghi trước và trùng với header của controller)
+            .headers(headers -> headers
+                .cacheControl(cache -> cache.disable())
+                .addHeaderWriter(new DelegatingRequestMatcherHeaderWriter(
+                    new NegatedRequestMatcher(new AntPathRequestMatcher("/api/images")),
+                    new CacheControlHeadersWriter())))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/register", "/api/auth/login", "/auth/register", "/auth/login", "/public/**", "/api/public/**", "/auth/internal/**", "/api/auth/internal/**").permitAll()
                 .requestMatchers("/api/products").permitAll() // Cho phép xem danh sách sản phẩm
@@ -39,6 +50,9 @@ public class SecurityConfig {
                         if (path.startsWith("/api/products/") && !path.contains("/reviews/check")) {
                             return true; // GET /api/products/{id} và GET /api/products/{id}/reviews
                         }
+                        if (path.equals("/api/images")) {
+                            return true; // GET /api/images (ảnh sản phẩm đã thu nhỏ)
+                        }
                     }
                     return false;
                 }).permitAll()
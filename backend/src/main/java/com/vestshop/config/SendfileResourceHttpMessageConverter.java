@@ -0,0 +1,53 @@
+package com.vestshop.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.File;
+import java.io.IOException;
+
+// Ghi file tĩnh bằng sendfile của Tomcat (zero-copy: kernel chép thẳng từ file ra socket, không qua heap của JVM)
+// khi connector hỗ trợ và resource là file trên đĩa (static-resources.location=file:...).
+// Resource nằm trong jar hoặc file nhỏ thì ghi như bình thường
+public class SendfileResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // File nhỏ hơn ngưỡng này ghi trực tiếp (sendfile không có lợi, giống ngưỡng mặc định của Tomcat)
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    public SendfileResourceHttpMessageConverter() {
+        super(false);
+    }
+
+    @Override
+    protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException {
+        HttpServletRequest request = currentRequest();
+        if (request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED)) && resource.isFile()) {
+            File file = resource.getFile();
+            long length = file.length();
+            if (length >= SENDFILE_MIN_SIZE) {
+                // Tomcat đọc các attribute này khi commit response (ngay sau khi converter flush header)
+                // và tự gửi nội dung file sau khi request được xử lý xong
+                request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, length);
+                return;
+            }
+        }
+        super.writeContent(resource, outputMessage);
+    }
+
+    private HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes.getRequest() : null;
+    }
+}
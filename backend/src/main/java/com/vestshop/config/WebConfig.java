@@ -1,16 +1,24 @@
 package com.vestshop.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.handler.AbstractUrlHandlerMapping;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -18,6 +26,10 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${allowed.origins}")
     private String allowedOrigins;
 
+    // Thư mục chứa bản build SPA: mặc định trong jar, đặt file:/duong/dan/ để Tomcat gửi file bằng sendfile
+    @Value("${static-resources.location:classpath:/static/}")
+    private String staticLocation;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
@@ -28,6 +40,47 @@ public class WebConfig implements WebMvcConfigurer {
                 .maxAge(3600);
     }
 
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        String location = staticLocation.endsWith("/") ? staticLocation : staticLocation + "/";
+
+        // File trong /assets có hash nội dung trong tên (Vite) -> cache vĩnh viễn, không cần revalidate.
+        // EncodedResourceResolver trả bản .br/.gz nén sẵn lúc build nếu trình duyệt chấp nhận (kèm Vary: Accept-Encoding)
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations(location + "assets/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+
+        // index.html và ảnh tĩnh không có hash -> luôn revalidate (304 qua Last-Modified) để bản deploy mới có hiệu lực ngay
+        registry.addResourceHandler("/**")
+                .addResourceLocations(location)
+                .setCacheControl(CacheControl.noCache().cachePublic())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+    }
+
+    // Gắn converter ghi bằng sendfile cho các handler file tĩnh (ResourceHandlerRegistry không cho cấu hình converter)
+    @Bean
+    public static BeanPostProcessor sendfileResourceHandlerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractUrlHandlerMapping mapping) {
+                    SendfileResourceHttpMessageConverter converter = new SendfileResourceHttpMessageConverter();
+                    mapping.getHandlerMap().values().forEach(handler -> {
+                        if (handler instanceof ResourceHttpRequestHandler resourceHandler) {
+                            resourceHandler.setResourceHttpMessageConverter(converter);
+                        }
+                    });
+                }
+                return bean;
+            }
+        };
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,82 @@
+package com.vestshop.controller;
+
+import com.vestshop.cache.CachedImage;
+import com.vestshop.models.ImageVariantModel;
+import com.vestshop.services.ImageService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ImageController {
+
+    @Autowired
+    private ImageService imageService;
+
+    // Ảnh sản phẩm đã thu nhỏ (public): src = URL ảnh gốc của sản phẩm, w = chiều rộng mong muốn,
+    // format = webp | jpg | png (bỏ trống = chọn theo header Accept).
+    // Nội dung của một URL không bao giờ đổi nên client/CDN được cache vĩnh viễn.
+    // Ảnh chưa có trong cache được tạo trên thread pool riêng, thread xử lý request không phải chờ
+    @GetMapping
+    public CompletableFuture<ResponseEntity<byte[]>> getImage(
+            @RequestParam String src,
+            @RequestParam(required = false) Integer w,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest
+    ) {
+        ImageVariantModel variant = imageService.resolveVariant(src, w, format, accept);
+        String etag = "\"" + variant.getKey() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(cacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), variant, etag).build());
+        }
+        CompletableFuture<CachedImage> image;
+        try {
+            image = imageService.getImage(variant);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+        return image.handle((result, error) -> {
+            if (error == null) {
+                return cacheHeaders(ResponseEntity.ok(), variant, etag)
+                        .contentType(MediaType.parseMediaType(result.getContentType()))
+                        .body(result.getBytes());
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                return busy();
+            }
+            // Không lưu lỗi vào cache của client: ảnh gốc có thể được sửa/thêm sau
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).cacheControl(CacheControl.noStore()).<byte[]>build();
+        });
+    }
+
+    private ResponseEntity.BodyBuilder cacheHeaders(ResponseEntity.BodyBuilder builder, ImageVariantModel variant, String etag) {
+        builder.eTag(etag).cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+        if (variant.isNegotiated()) {
+            builder.varyBy(HttpHeaders.ACCEPT);
+        }
+        return builder;
+    }
+
+    // Hàng đợi tạo ảnh đầy: client thử lại sau
+    private ResponseEntity<byte[]> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .cacheControl(CacheControl.noStore())
+                .build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.vestshop.controller;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -9,10 +11,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import com.vestshop.cache.IdempotencyStore.StoredOrder;
 import com.vestshop.models.OrderModel;
 import com.vestshop.models.UserModel;
 import com.vestshop.services.OrderService;
 import com.vestshop.services.AuthService;
+import com.vestshop.services.IdempotencyService;
 import jakarta.validation.Valid;
 
 @RestController
@@ -27,16 +31,60 @@ public class OrderController {
     @Autowired
     private AuthService authService;
 
-    // Tạo đơn hàng mới
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // Tạo đơn hàng mới.
+    // Header Idempotency-Key (không bắt buộc): gửi lại cùng key và cùng nội dung (ví dụ khi timeout) nhận lại đơn đã tạo
+    // kèm header Idempotent-Replayed mà không trừ tồn kho lần nữa; cùng key nhưng nội dung khác trả về 422
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @PostMapping
-    public ResponseEntity<OrderModel> createOrder(@Valid @RequestBody OrderModel orderModel) {
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody OrderModel orderModel) {
+        // Username để kiểm tra lượt giữ hàng (reservationId) thuộc về khách đang đặt hàng
+        String username = getUsername(authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authorization header is missing or invalid");
+        }
+        if (idempotencyKey == null) {
+            try {
+                OrderModel createdOrder = orderService.createOrder(orderModel, username);
+                return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        String key;
+        String requestHash;
         try {
-            OrderModel createdOrder = orderService.createOrder(orderModel);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+            key = idempotencyService.resolveKey(username, idempotencyKey);
+            requestHash = idempotencyService.hashRequest(orderModel);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+        StoredOrder stored = idempotencyService.findOrder(key);
+        if (stored == null) {
+            try {
+                OrderModel createdOrder = orderService.createOrder(orderModel, username, key, requestHash);
+                return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+            } catch (Exception e) {
+                // Request trùng chạy song song đã tạo đơn trước (lỗi khóa chính của key): trả về đơn đó
+                stored = idempotencyService.findOrder(key);
+                if (stored == null) {
+                    return ResponseEntity.badRequest().build();
+                }
+            }
+        }
+        if (!stored.getRequestHash().equals(requestHash)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Idempotency-Key đã được dùng cho một đơn hàng có nội dung khác");
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
         }
+        return ResponseEntity.status(HttpStatus.CREATED).header("Idempotent-Replayed", "true").body(stored.getOrder());
     }
 
     // Lấy thông tin đơn hàng theo ID
@@ -122,5 +170,16 @@ public class OrderController {
         List<OrderModel> orders = orderService.getOrdersByEmail(email);
         return ResponseEntity.ok(orders);
     }
-}
 
+    private String getUsername(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            String username = authService.getUsernameFromToken(authHeader.substring(7));
+            return username == null || username.isEmpty() ? null : username;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
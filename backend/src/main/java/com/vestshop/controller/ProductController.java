@@ -1,11 +1,21 @@
 package com.vestshop.controller;
 
-import com.vestshop.models.ProductModel;
+import com.vestshop.cache.CachedJson;
+import com.vestshop.models.CacheValidatorModel;
+import com.vestshop.models.ProductFacetsModel;
+import com.vestshop.models.ProductSuggestionModel;
+import com.vestshop.models.ProductSummaryModel;
 import com.vestshop.services.ProductService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
@@ -24,26 +34,159 @@ public class ProductController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view,
+            WebRequest webRequest
     ) {
+        // Catalog không đổi kể từ lần tải trước (If-None-Match/If-Modified-Since) thì trả về 304, không query DB
+        CacheValidatorModel validator = productService.getCatalogValidator();
+        if (webRequest.checkNotModified(validator.getEtag(), validator.getLastModified())) {
+            return null;
+        }
+        // Client luôn phải kiểm tra lại với server trước khi dùng bản đã lưu
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        
+        // Mặc định trả về dạng tóm tắt, view=full trả về đầy đủ như cũ
+        boolean fullView = "full".equals(view);
+        // Nếu có cursor (kể cả rỗng = trang đầu), dùng keyset pagination
+        if (cursor != null) {
+            int pageSize = size != null ? size : 8;
+            if (fullView) {
+                return ok.body(productService.getAllProductsByCursor(cursor, pageSize, category, minPrice, maxPrice, status, sortBy));
+            }
+            return ok.body(productService.getProductSummariesByCursor(cursor, pageSize, category, minPrice, maxPrice, status, sortBy));
+        }
         // Nếu có page hoặc size, trả về paginated response với filter
         if (page != null || size != null) {
             int pageNum = page != null ? page : 0;
             int pageSize = size != null ? size : 8;
-            return ResponseEntity.ok(productService.getAllProductsPaginated(pageNum, pageSize, category, minPrice, maxPrice, sortBy));
+            if (fullView) {
+                return ok.body(productService.getAllProductsPaginated(pageNum, pageSize, category, minPrice, maxPrice, status, sortBy));
+            }
+            return ok.body(productService.getProductSummariesPaginated(pageNum, pageSize, category, minPrice, maxPrice, status, sortBy));
         }
         // Nếu không có pagination params, trả về list như cũ (backward compatible)
-        return ResponseEntity.ok(productService.getAllProducts());
+        if (fullView) {
+            return ok.body(productService.getAllProducts());
+        }
+        return ok.body(productService.getProductSummaries());
+    }
+
+    // Facet cho bộ lọc storefront: số sản phẩm theo danh mục, giá min/max, histogram giá (public - không cần đăng nhập)
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsModel> getProductFacets(
+            @RequestParam(name = "q", required = false) String keyword,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer buckets
+    ) {
+        int bucketCount = buckets != null ? buckets : 5;
+        return ResponseEntity.ok(productService.getProductFacets(keyword, category, minPrice, maxPrice, status, bucketCount));
+    }
+
+    // Tìm kiếm sản phẩm theo từ khóa (public - không cần đăng nhập)
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(
+            @RequestParam(name = "q", required = false) String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view
+    ) {
+        int pageNum = page != null ? page : 0;
+        int pageSize = size != null ? size : 8;
+        if ("full".equals(view)) {
+            return ResponseEntity.ok(productService.searchProducts(keyword, pageNum, pageSize));
+        }
+        return ResponseEntity.ok(productService.searchProductSummaries(keyword, pageNum, pageSize));
+    }
+
+    // Gợi ý khi gõ ô tìm kiếm: danh mục và sản phẩm theo tiền tố (public - không cần đăng nhập)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionModel>> suggestProducts(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Integer limit
+    ) {
+        int suggestionLimit = limit != null ? limit : 8;
+        return ResponseEntity.ok(productService.suggestProducts(prefix, suggestionLimit));
+    }
+
+    // Sản phẩm thường được mua cùng (public - không cần đăng nhập)
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<ProductSummaryModel>> getRelatedProducts(
+            @PathVariable Integer id,
+            @RequestParam(required = false) Integer limit
+    ) {
+        int relatedLimit = limit != null ? limit : 4;
+        return ResponseEntity.ok(productService.getRelatedProducts(id, relatedLimit));
     }
 
     // Lấy chi tiết sản phẩm theo ID (public - không cần đăng nhập)
     @GetMapping("/{id}")
-    public ResponseEntity<ProductModel> getProductById(@PathVariable Integer id) {
-        ProductModel product = productService.getProductById(id);
+    public ResponseEntity<byte[]> getProductById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest
+    ) {
+        // Bản gzip và bản không nén có ETag khác nhau (thêm hậu tố -gzip)
+        boolean gzip = acceptsGzip(acceptEncoding);
+        CacheValidatorModel validator = productService.getProductValidator(id);
+        String etag = gzip ? gzipEtag(validator.getEtag()) : validator.getEtag();
+        // Sản phẩm không đổi kể từ lần tải trước thì trả về 304
+        if (webRequest.checkNotModified(etag, validator.getLastModified())) {
+            return null;
+        }
+        // JSON đã serialize sẵn được ghi thẳng ra response (không qua Jackson)
+        CachedJson product = productService.getProductJson(id);
         if (product == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(product);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        // Response nhỏ không có bản nén: trả JSON gốc (vẫn với ETag -gzip, mỗi ETag luôn ứng với cùng một nội dung)
+        if (gzip && product.getGzip() != null) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(product.getGzip());
+        }
+        return ok.body(product.getJson());
+    }
+
+    // Client chấp nhận gzip theo Accept-Encoding (có xét q-value: "gzip;q=0" là từ chối, "*" áp dụng khi không ghi gzip)
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0; // q-value không hợp lệ, coi như không chấp nhận
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return quality > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = quality > 0;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    // Thêm hậu tố -gzip vào trong dấu nháy của ETag: W/"product-1-..." -> W/"product-1-...-gzip"
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
     }
 
 
@@ -0,0 +1,76 @@
+package com.vestshop.controller;
+
+import com.vestshop.models.CreateReservationModel;
+import com.vestshop.models.ReservationModel;
+import com.vestshop.services.AuthService;
+import com.vestshop.services.ReservationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reservations")
+@CrossOrigin(origins = "http://localhost:3000")
+@Validated
+public class ReservationController {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private AuthService authService;
+
+    // Giữ hàng trong giỏ khi khách vào bước thanh toán (trả về reservationId và thời điểm hết hạn)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @PostMapping
+    public ResponseEntity<?> createReservation(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @Valid @RequestBody CreateReservationModel model) {
+        String username = getUsername(authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authorization header is missing or invalid");
+        }
+        try {
+            ReservationModel reservation = reservationService.createReservation(username, model);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+        } catch (RuntimeException e) {
+            // Không đủ hàng hoặc vượt giới hạn giữ hàng
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+    }
+
+    // Hủy lượt giữ hàng (khách rời trang thanh toán)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> releaseReservation(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @PathVariable String id) {
+        String username = getUsername(authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Authorization header is missing or invalid");
+        }
+        reservationService.releaseReservation(username, id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private String getUsername(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            String username = authService.getUsernameFromToken(authHeader.substring(7));
+            return username == null || username.isEmpty() ? null : username;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package com.vestshop.controller;
 
+import com.vestshop.models.CacheValidatorModel;
 import com.vestshop.models.ReviewModel;
 import com.vestshop.services.AuthService;
 import com.vestshop.services.ReviewService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -29,10 +32,15 @@ public class ReviewController {
 
     // Lấy danh sách đánh giá của sản phẩm (chỉ ACTIVE)
     @GetMapping
-    public ResponseEntity<List<ReviewModel>> getProductReviews(@PathVariable Integer productId) {
+    public ResponseEntity<List<ReviewModel>> getProductReviews(@PathVariable Integer productId, WebRequest webRequest) {
         try {
+            // Danh sách đánh giá không đổi kể từ lần tải trước thì trả về 304
+            CacheValidatorModel validator = reviewService.getProductReviewsValidator(productId);
+            if (webRequest.checkNotModified(validator.getEtag(), validator.getLastModified())) {
+                return null;
+            }
             List<ReviewModel> reviews = reviewService.getProductReviews(productId);
-            return ResponseEntity.ok(reviews);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(reviews);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
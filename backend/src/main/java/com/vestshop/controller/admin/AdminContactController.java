@@ -24,8 +24,13 @@ public class AdminContactController {
     @GetMapping("/messages")
     public ResponseEntity<?> getAllMessages(
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor
     ) {
+        // Nếu có cursor (kể cả rỗng = trang đầu), dùng keyset pagination
+        if (cursor != null) {
+            return ResponseEntity.ok(contactService.getAllMessagesByCursor(cursor, size != null ? size : 10));
+        }
         // Nếu có page hoặc size, trả về paginated response
         if (page != null || size != null) {
             int pageNum = page != null ? page : 0;
@@ -3,7 +3,9 @@ package com.vestshop.controller.admin;
 import com.vestshop.enums.OrderStatus;
 import com.vestshop.enums.PaymentMethod;
 import com.vestshop.models.OrderModel;
+import com.vestshop.services.IdempotencyService;
 import com.vestshop.services.OrderService;
+import com.vestshop.services.ReservationService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -23,6 +25,12 @@ public class AdminOrderController {
 
     @Autowired
     private OrderService orderService;
+    
+    @Autowired
+    private ReservationService reservationService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     // Lấy danh sách tất cả đơn hàng với filter chi tiết
     @PreAuthorize("hasRole('ADMIN')")
@@ -38,8 +46,13 @@ public class AdminOrderController {
             @RequestParam(required = false) Integer totalAmountFrom,
             @RequestParam(required = false) Integer totalAmountTo,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor
     ) {
+        // Nếu có cursor (kể cả rỗng = trang đầu), dùng keyset pagination
+        if (cursor != null) {
+            return ResponseEntity.ok(orderService.getAllOrdersByCursor(cursor, size != null ? size : 10));
+        }
         // Nếu có page hoặc size, trả về paginated response (chưa hỗ trợ filter với pagination)
         if (page != null || size != null) {
             int pageNum = page != null ? page : 0;
@@ -101,6 +114,38 @@ public class AdminOrderController {
         return ResponseEntity.ok(statistics);
     }
     
+    // Tính lại bộ đếm bán hàng (lượt mua) của sản phẩm từ các đơn hàng đã hoàn thành
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/sales-counters/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildSalesCounters() {
+        Map<String, Integer> response = new HashMap<>();
+        response.put("productsWithSales", orderService.rebuildSalesCounters());
+        return ResponseEntity.ok(response);
+    }
+    
+    // Xây dựng lại ma trận mua cùng ("thường được mua cùng") từ các đơn hàng đã hoàn thành
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/co-purchase/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildCoPurchaseMatrix() {
+        Map<String, Integer> response = new HashMap<>();
+        response.put("completedOrders", orderService.rebuildCoPurchaseMatrix());
+        return ResponseEntity.ok(response);
+    }
+    
+    // Thống kê các lượt giữ hàng đang hiệu lực (số lượt, tổng số lượng đang giữ)
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/reservations/stats")
+    public ResponseEntity<Map<String, Object>> getReservationStats() {
+        return ResponseEntity.ok(reservationService.getStats());
+    }
+    
+    // Thống kê kết quả tạo đơn theo Idempotency-Key đang giữ trong bộ nhớ (hit/miss, số lần đọc từ DB)
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/idempotency/stats")
+    public ResponseEntity<Map<String, Object>> getIdempotencyStats() {
+        return ResponseEntity.ok(idempotencyService.getStats());
+    }
+    
     // Lấy doanh thu theo ngày
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/revenue/by-date")
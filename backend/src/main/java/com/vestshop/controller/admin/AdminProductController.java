@@ -1,16 +1,29 @@
 package com.vestshop.controller.admin;
 
 import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.ProductBulkUpdateModel;
+import com.vestshop.models.ProductBulkUpdateResultModel;
+import com.vestshop.models.ProductImportResultModel;
 import com.vestshop.models.ProductModel;
+import com.vestshop.services.ImageService;
+import com.vestshop.services.ProductImportExportService;
 import com.vestshop.services.ProductService;
+import com.vestshop.services.StockService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/admin/products")
 @CrossOrigin(origins = "http://localhost:3000")
@@ -20,6 +33,15 @@ public class AdminProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportExportService productImportExportService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private StockService stockService;
+
     // Lấy tất cả sản phẩm (cho admin)
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
@@ -31,16 +53,25 @@ public class AdminProductController {
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String sortOrder,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view
     ) {
+        // Mặc định trả về dạng tóm tắt, view=full trả về đầy đủ như cũ
+        boolean fullView = "full".equals(view);
         // Nếu có page hoặc size, trả về paginated response với filter
         if (page != null || size != null) {
             int pageNum = page != null ? page : 0;
             int pageSize = size != null ? size : 10;
-            return ResponseEntity.ok(productService.getAllProductsPaginatedAdmin(pageNum, pageSize, searchTerm, status, minPrice, maxPrice, sortBy, sortOrder));
+            if (fullView) {
+                return ResponseEntity.ok(productService.getAllProductsPaginatedAdmin(pageNum, pageSize, searchTerm, status, minPrice, maxPrice, sortBy, sortOrder));
+            }
+            return ResponseEntity.ok(productService.getProductSummariesPaginatedAdmin(pageNum, pageSize, searchTerm, status, minPrice, maxPrice, sortBy, sortOrder));
         }
         // Nếu không có pagination params, trả về list như cũ
-        return ResponseEntity.ok(productService.getAllProducts());
+        if (fullView) {
+            return ResponseEntity.ok(productService.getAllProducts());
+        }
+        return ResponseEntity.ok(productService.getProductSummaries());
     }
 
     // Lấy sản phẩm theo ID (cho admin)
@@ -62,6 +93,41 @@ public class AdminProductController {
         return ResponseEntity.ok(createdProduct);
     }
 
+    // Import sản phẩm hàng loạt: body là file CSV (dòng đầu là tiêu đề, ảnh/chi tiết phân cách bằng "|")
+    // hoặc NDJSON (mỗi dòng một sản phẩm). Định dạng lấy từ tham số format hoặc Content-Type
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/import")
+    public ResponseEntity<ProductImportResultModel> importProducts(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request
+    ) throws IOException {
+        String contentType = request.getContentType();
+        // Body dạng form sẽ bị đọc thành tham số request nên không còn dữ liệu để import
+        if (contentType != null && (contentType.startsWith("application/x-www-form-urlencoded") || contentType.startsWith("multipart/"))) {
+            throw new RuntimeException("Content-Type không hợp lệ (dùng text/csv hoặc application/x-ndjson)");
+        }
+        if (format == null) {
+            format = contentType != null && (contentType.contains("ndjson") || contentType.contains("json")) ? "ndjson" : "csv";
+        }
+        return ResponseEntity.ok(productImportExportService.importProducts(request.getInputStream(), format));
+    }
+
+    // Export toàn bộ sản phẩm (csv hoặc ndjson), ghi thẳng ra response theo từng nhóm sản phẩm
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public void exportProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response
+    ) throws IOException {
+        boolean csv = !format.equalsIgnoreCase("ndjson");
+        if (csv && !format.equalsIgnoreCase("csv")) {
+            throw new RuntimeException("Định dạng không hợp lệ (chỉ hỗ trợ csv, ndjson)");
+        }
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + (csv ? "csv" : "ndjson") + "\"");
+        productImportExportService.exportProducts(response.getOutputStream(), format);
+    }
+
     // Cập nhật sản phẩm
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -102,5 +168,51 @@ public class AdminProductController {
         ProductModel updatedProduct = productService.updateProductStock(id, stock);
         return ResponseEntity.ok(updatedProduct);
     }
-}
 
+    // Bật/tắt chế độ flash sale cho sản phẩm (tồn kho trừ trong bộ nhớ, ghi xuống database theo chu kỳ)
+    @PatchMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> setFlashSale(
+            @PathVariable Integer id,
+            @RequestParam boolean enabled
+    ) {
+        return ResponseEntity.ok(stockService.setFlashSale(id, enabled));
+    }
+
+    // Tồn kho trong bộ nhớ của các sản phẩm flash sale
+    @GetMapping("/flash-sale/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getFlashSaleStats() {
+        return ResponseEntity.ok(stockService.getFlashSaleStats());
+    }
+
+    // Cập nhật tồn kho/giá/trạng thái hàng loạt, trả về kết quả theo từng dòng (cùng thứ tự với request)
+    @PatchMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ProductBulkUpdateResultModel>> bulkUpdateProducts(
+            @RequestBody List<ProductBulkUpdateModel> items
+    ) {
+        return ResponseEntity.ok(productService.bulkUpdateProducts(items));
+    }
+
+    // Thống kê cache catalog của storefront
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCatalogCacheStats() {
+        return ResponseEntity.ok(productService.getCatalogCacheStats());
+    }
+
+    // Thống kê cache ảnh thu nhỏ và hàng đợi tạo ảnh
+    @GetMapping("/cache/images/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getImageCacheStats() {
+        return ResponseEntity.ok(imageService.getStats());
+    }
+
+    // Tính lại điểm xu hướng/bán chạy của sản phẩm từ lịch sử đơn hàng và đánh giá
+    @PostMapping("/ranking/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildRankingScores() {
+        return ResponseEntity.ok(Map.of("products", productService.rebuildRankingScores()));
+    }
+}
@@ -8,6 +8,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/admin/reviews")
 @CrossOrigin(origins = "http://localhost:3000")
@@ -24,7 +27,12 @@ public class AdminReviewController {
             @RequestParam(required = false) Integer userId,
             @RequestParam(required = false) ReviewStatus status,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size) {
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor) {
+        // Nếu có cursor (kể cả rỗng = trang đầu), dùng keyset pagination
+        if (cursor != null) {
+            return ResponseEntity.ok(reviewService.getAllReviewsByCursor(cursor, size != null ? size : 10, productId, userId, status));
+        }
         // Nếu có page hoặc size, trả về paginated response
         if (page != null || size != null) {
             int pageNum = page != null ? page : 0;
@@ -71,5 +79,14 @@ public class AdminReviewController {
             return ResponseEntity.notFound().build();
         }
     }
-}
 
+    // Tính lại bảng tổng hợp rating của sản phẩm từ bảng reviews (dùng để khôi phục)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/rating-summary/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildRatingSummaries() {
+        int processed = reviewService.rebuildRatingSummaries();
+        Map<String, Integer> response = new HashMap<>();
+        response.put("processedProducts", processed);
+        return ResponseEntity.ok(response);
+    }
+}
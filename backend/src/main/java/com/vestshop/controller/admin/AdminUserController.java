@@ -36,8 +36,13 @@ public class AdminUserController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate birthFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate birthTo,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor
     ) {
+        // Nếu có cursor (kể cả rỗng = trang đầu), dùng keyset pagination
+        if (cursor != null) {
+            return ResponseEntity.ok(userService.getAllUsersByCursor(cursor, size != null ? size : 10));
+        }
         // Nếu có page hoặc size, trả về paginated response (chưa hỗ trợ filter với pagination)
         if (page != null || size != null) {
             int pageNum = page != null ? page : 0;
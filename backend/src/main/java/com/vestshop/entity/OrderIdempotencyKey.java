@@ -0,0 +1,43 @@
+package com.vestshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Kết quả của POST /api/orders theo Idempotency-Key: được insert (native) đầu transaction tạo đơn
+// (request trùng đang chạy song song bị chặn ở khóa chính) và ghi kết quả cuối transaction,
+// nên chỉ đơn tạo thành công mới có bản ghi
+@Entity
+@Table(name = "order_idempotency_keys", indexes = {
+    // Job xóa các key hết hạn
+    @Index(name = "idx_order_idempotency_keys_expires", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIdempotencyKey {
+
+    @Id
+    @Column(length = 64)
+    private String id; // SHA-256 của username và Idempotency-Key (độ dài cố định, key của mỗi khách tách biệt)
+
+    // SHA-256 nội dung request, request gửi lại với cùng key nhưng nội dung khác bị từ chối
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "order_id")
+    private Integer orderId;
+
+    // OrderModel trả về lần đầu (JSON)
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
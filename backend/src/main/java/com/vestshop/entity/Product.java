@@ -10,13 +10,28 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    // Lọc storefront theo trạng thái + danh mục, rồi lọc/sắp xếp theo khoảng giá
+    @Index(name = "idx_products_status_category_price", columnList = "status, category, effective_price"),
+    // Sắp xếp storefront theo điểm xu hướng / bán chạy
+    @Index(name = "idx_products_status_trending", columnList = "status, trending_score"),
+    @Index(name = "idx_products_status_bestseller", columnList = "status, bestseller_score")
+})
+// Trang chi tiết: load sản phẩm kèm images bằng một JOIN (details được load theo lô, xem @BatchSize).
+// Không fetch join cả hai collection cùng lúc vì hai List (bag) sẽ tạo tích Descartes
+@NamedEntityGraph(name = "Product.detail", attributeNodes = @NamedAttributeNode("images"))
+// Chỉ ghi các cột thay đổi: sửa trạng thái/giá không ghi đè stock vừa được trừ bởi đơn hàng hoặc job ghi ledger
+@DynamicUpdate
 @Data
 @Builder
 @NoArgsConstructor
@@ -40,6 +55,12 @@ public class Product {
     @Column(name = "sale_price")
     private Integer salePrice; // Giá sau khi giảm (null = không giảm giá)
 
+    // Giá khách hàng thực sự trả = COALESCE(salePrice, price), lưu thành cột để lọc/sắp xếp dùng được index.
+    // Được đồng bộ tự động trước khi insert/update (xem syncEffectivePrice)
+    @Column(name = "effective_price", nullable = false)
+    @ColumnDefault("0")
+    private Integer effectivePrice;
+
     @NotBlank(message = "Danh mục không được để trống")
     @Column(nullable = false)
     private String category;
@@ -51,12 +72,20 @@ public class Product {
     @Column(nullable = false)
     private Integer stock = 0;
 
+    // Danh sách sản phẩm: images/details của cả trang được load theo lô (WHERE product_id IN (...))
+    // thay vì một query cho mỗi sản phẩm
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
     private List<String> images = new ArrayList<>();
 
+    // Ảnh đại diện (ảnh đầu tiên trong images), lưu thành cột để danh sách sản phẩm không cần đọc product_images
+    @Column(name = "primary_image")
+    private String primaryImage;
+
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "product_details", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "detail", columnDefinition = "TEXT")
     private List<String> details = new ArrayList<>();
@@ -65,6 +94,37 @@ public class Product {
     @Column(nullable = false)
     private ProductStatus status = ProductStatus.ACTIVE;
 
+    // Bộ đếm bán hàng, chỉ được thay đổi bằng câu UPDATE cộng dồn khi đơn hàng vào/ra trạng thái COMPLETED
+    // (updatable = false để việc lưu entity không ghi đè giá trị cũ)
+    @Column(name = "completed_order_count", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer completedOrderCount = 0; // Số đơn hàng đã hoàn thành có chứa sản phẩm
+
+    @Column(name = "sold_quantity", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer soldQuantity = 0; // Tổng số lượng đã bán trong các đơn hàng đã hoàn thành
+
+    // Điểm xếp hạng có suy giảm theo thời gian (log của tổng trọng số quy về mốc thời gian cố định, 0 = chưa có),
+    // được tính trong bộ nhớ (ProductRankingScores) và ghi định kỳ bằng câu UPDATE riêng
+    @Column(name = "trending_score", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Double trendingScore = 0.0; // Đặt hàng + đánh giá gần đây
+
+    @Column(name = "bestseller_score", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Double bestsellerScore = 0.0; // Số lượng bán trong các đơn hàng đã hoàn thành gần đây
+
+    // Chế độ flash sale: tồn kho được trừ trong bộ nhớ (HotSkuInventory) và ghi xuống stock theo chu kỳ,
+    // chỉ được bật/tắt bằng câu UPDATE riêng (xem StockService.setFlashSale)
+    @Column(name = "flash_sale", nullable = false, updatable = false)
+    @ColumnDefault("false")
+    @Builder.Default
+    private Boolean flashSale = false;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -75,11 +135,27 @@ public class Product {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        syncEffectivePrice();
+        syncPrimaryImage();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        syncEffectivePrice();
+        syncPrimaryImage();
+    }
+
+    // Tính lại giá thực tế từ price và salePrice
+    public void syncEffectivePrice() {
+        effectivePrice = salePrice != null ? salePrice : price;
+    }
+
+    // Lấy ảnh đầu tiên làm ảnh đại diện (bỏ qua nếu images chưa được load để không query trong lúc flush)
+    public void syncPrimaryImage() {
+        if (Hibernate.isInitialized(images)) {
+            primaryImage = images != null && !images.isEmpty() ? images.get(0) : null;
+        }
     }
 }
 
@@ -0,0 +1,60 @@
+package com.vestshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Tổng hợp rating của sản phẩm (chỉ tính đánh giá ACTIVE), được cập nhật cùng transaction với đánh giá
+@Entity
+@Table(name = "product_rating_summary")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummary {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "rating_sum", nullable = false)
+    @Builder.Default
+    private Long ratingSum = 0L; // Tổng số sao
+
+    @Column(name = "rating_count", nullable = false)
+    @Builder.Default
+    private Integer ratingCount = 0; // Số lượng đánh giá
+
+    @Column(name = "star_1_count", nullable = false)
+    @Builder.Default
+    private Integer star1Count = 0;
+
+    @Column(name = "star_2_count", nullable = false)
+    @Builder.Default
+    private Integer star2Count = 0;
+
+    @Column(name = "star_3_count", nullable = false)
+    @Builder.Default
+    private Integer star3Count = 0;
+
+    @Column(name = "star_4_count", nullable = false)
+    @Builder.Default
+    private Integer star4Count = 0;
+
+    @Column(name = "star_5_count", nullable = false)
+    @Builder.Default
+    private Integer star5Count = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,33 @@
+package com.vestshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Thay đổi tồn kho của sản phẩm flash sale chưa được ghi xuống products.stock.
+// Được insert trong transaction của đơn hàng (không khóa dòng products), job ghi định kỳ cộng dồn vào
+// products.stock rồi xóa trong cùng một transaction - dòng nào còn trong bảng là chưa được ghi (an toàn khi crash)
+@Entity
+@Table(name = "stock_ledger")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    // Số lượng trừ khỏi tồn kho (âm = cộng lại, ví dụ khi hủy đơn)
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,57 @@
+package com.vestshop.entity;
+
+import com.vestshop.enums.ReservationStatus;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Lượt giữ hàng khi khách vào bước thanh toán: tồn kho được trừ ngay khi giữ,
+// đặt hàng dùng lại lượt giữ, hết hạn thì job dọn dẹp cộng lại tồn kho
+@Entity
+@Table(name = "stock_reservations", indexes = {
+    // Nạp các lượt giữ còn hiệu lực khi khởi động
+    @Index(name = "idx_stock_reservations_status_expires", columnList = "status, expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    @Id
+    @Column(length = 36)
+    private String id; // UUID ngẫu nhiên, khách gửi lại khi đặt hàng
+
+    @Column(nullable = false)
+    private String username;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status;
+
+    // ID sản phẩm -> số lượng đang giữ
+    @ElementCollection
+    @CollectionTable(name = "stock_reservation_items", joinColumns = @JoinColumn(name = "reservation_id"))
+    @MapKeyColumn(name = "product_id")
+    @Column(name = "quantity", nullable = false)
+    @Builder.Default
+    private Map<Integer, Integer> quantities = new HashMap<>();
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,8 @@
+package com.vestshop.enums;
+
+public enum ReservationStatus {
+    ACTIVE,    // Đang giữ hàng (tồn kho đã được trừ)
+    CONSUMED,  // Đã dùng để đặt hàng
+    RELEASED,  // Khách tự hủy hoặc tạo lượt giữ mới, tồn kho đã được cộng lại
+    EXPIRED    // Hết hạn, tồn kho đã được cộng lại bởi job dọn dẹp
+}
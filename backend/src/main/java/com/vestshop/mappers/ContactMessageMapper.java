@@ -0,0 +1,21 @@
+package com.vestshop.mappers;
+
+import com.vestshop.entity.ContactMessage;
+import com.vestshop.models.ContactMessageModel;
+
+public class ContactMessageMapper {
+
+    // Chuyển đổi tin nhắn liên hệ từ entity sang model
+    public static ContactMessageModel toModel(ContactMessage message) {
+        return ContactMessageModel.builder()
+                .id(message.getId())
+                .name(message.getName())
+                .email(message.getEmail())
+                .phone(message.getPhone())
+                .subject(message.getSubject())
+                .message(message.getMessage())
+                .createdAt(message.getCreatedAt())
+                .isRead(message.getIsRead())
+                .build();
+    }
+}
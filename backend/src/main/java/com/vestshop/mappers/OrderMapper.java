@@ -0,0 +1,52 @@
+package com.vestshop.mappers;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.vestshop.entity.Order;
+import com.vestshop.entity.OrderItem;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+
+public class OrderMapper {
+
+    // Chuyển đổi đơn hàng từ entity sang model (kèm các item)
+    public static OrderModel toModel(Order order) {
+        OrderModel model = new OrderModel();
+        model.setId(order.getId());
+        model.setFullName(order.getFullName());
+        model.setEmail(order.getEmail());
+        model.setPhone(order.getPhone());
+        model.setAddress(order.getAddress());
+        model.setCity(order.getCity());
+        model.setDistrict(order.getDistrict());
+        model.setWard(order.getWard());
+        model.setNote(order.getNote());
+        model.setTotalAmount(order.getTotalAmount());
+        model.setPaymentMethod(order.getPaymentMethod());
+        model.setStatus(order.getStatus());
+        model.setCreatedAt(order.getCreatedAt());
+        model.setUpdatedAt(order.getUpdatedAt());
+        
+        List<OrderItemModel> items = order.getItems() != null
+            ? order.getItems().stream().map(OrderMapper::toItemModel).collect(Collectors.toList())
+            : List.of();
+        model.setItems(items);
+        return model;
+    }
+
+    // Chuyển đổi item trong đơn hàng từ entity sang model
+    public static OrderItemModel toItemModel(OrderItem item) {
+        OrderItemModel model = new OrderItemModel();
+        model.setId(item.getId());
+        // Set productId và productName từ product entity
+        if (item.getProduct() != null) {
+            model.setProductId(item.getProduct().getId());
+            model.setProductName(item.getProduct().getName());
+        }
+        model.setSize(item.getSize());
+        model.setQuantity(item.getQuantity());
+        model.setPrice(item.getPrice());
+        return model;
+    }
+}
@@ -0,0 +1,53 @@
+package com.vestshop.mappers;
+
+import java.util.ArrayList;
+
+import com.vestshop.entity.Product;
+import com.vestshop.models.ProductModel;
+
+public class ProductMapper {
+
+    // Chuyển đổi sản phẩm từ entity sang model (chưa có rating, service sẽ gán sau)
+    public static ProductModel toModel(Product product) {
+        ProductModel model = new ProductModel();
+        model.setId(product.getId());
+        model.setName(product.getName());
+        model.setPrice(product.getPrice());
+        model.setSalePrice(product.getSalePrice());
+        model.setCategory(product.getCategory());
+        model.setDescription(product.getDescription());
+        model.setStock(product.getStock());
+        // Copy danh sách để model không giữ collection của Hibernate
+        model.setImages(product.getImages() != null ? new ArrayList<>(product.getImages()) : new ArrayList<>());
+        model.setDetails(product.getDetails() != null ? new ArrayList<>(product.getDetails()) : new ArrayList<>());
+        model.setStatus(product.getStatus());
+        model.setCreatedAt(product.getCreatedAt());
+        model.setUpdatedAt(product.getUpdatedAt());
+        // Lượt mua đọc từ bộ đếm bán hàng trên bảng products
+        model.setCompletedOrderCount(product.getCompletedOrderCount() != null ? product.getCompletedOrderCount() : 0);
+        model.setSoldQuantity(product.getSoldQuantity() != null ? product.getSoldQuantity() : 0);
+        model.setFlashSale(Boolean.TRUE.equals(product.getFlashSale()));
+        return model;
+    }
+
+    // Chuyển đổi sản phẩm từ model (request) sang entity
+    public static Product toEntity(ProductModel model) {
+        Product product = new Product();
+        product.setId(model.getId());
+        product.setName(model.getName());
+        product.setPrice(model.getPrice());
+        product.setSalePrice(model.getSalePrice());
+        product.setCategory(model.getCategory());
+        product.setDescription(model.getDescription());
+        product.setStock(model.getStock());
+        product.setImages(model.getImages() != null ? new ArrayList<>(model.getImages()) : new ArrayList<>());
+        product.setDetails(model.getDetails() != null ? new ArrayList<>(model.getDetails()) : new ArrayList<>());
+        // Giữ null nếu request không gửi status (service sẽ tự xác định theo tồn kho)
+        product.setStatus(model.getStatus());
+        product.setCreatedAt(model.getCreatedAt());
+        product.setUpdatedAt(model.getUpdatedAt());
+        product.setCompletedOrderCount(model.getCompletedOrderCount());
+        product.setSoldQuantity(model.getSoldQuantity());
+        return product;
+    }
+}
@@ -0,0 +1,33 @@
+package com.vestshop.mappers;
+
+import com.vestshop.entity.Review;
+import com.vestshop.models.ReviewModel;
+
+public class ReviewMapper {
+
+    // Chuyển đổi đánh giá từ entity sang model (kèm thông tin sản phẩm và người dùng)
+    public static ReviewModel toModel(Review review) {
+        ReviewModel model = new ReviewModel();
+        model.setId(review.getId());
+        
+        // Set product info
+        if (review.getProduct() != null) {
+            model.setProductId(review.getProduct().getId());
+            model.setProductName(review.getProduct().getName());
+        }
+        
+        // Set user info
+        if (review.getUser() != null) {
+            model.setUserId(review.getUser().getUserId());
+            model.setUserFullname(review.getUser().getFullname());
+            model.setUsername(review.getUser().getUsername());
+        }
+        
+        model.setRating(review.getRating());
+        model.setComment(review.getComment());
+        model.setStatus(review.getStatus());
+        model.setCreatedAt(review.getCreatedAt());
+        model.setUpdatedAt(review.getUpdatedAt());
+        return model;
+    }
+}
@@ -0,0 +1,24 @@
+package com.vestshop.mappers;
+
+import com.vestshop.entity.User;
+import com.vestshop.models.UserModel;
+
+public class UserMapper {
+
+    // Chuyển đổi từ User sang UserModel (không có token, tuổi tính từ birth)
+    public static UserModel toModel(User user) {
+        return UserModel.builder()
+                .userId(user.getUserId())
+                .username(user.getUsername())
+                .fullname(user.getFullname())
+                .age(null) // Tính từ birth - cần tính toán từ ngày sinh
+                .gender(user.getGender())
+                .email(user.getEmail())
+                .phone(user.getPhone())
+                .birth(user.getBirth())
+                .address(user.getAddress())
+                .role(user.getRole())
+                .status(user.getStatus())
+                .build();
+    }
+}
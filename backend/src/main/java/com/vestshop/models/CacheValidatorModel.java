@@ -0,0 +1,13 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheValidatorModel {
+    private String etag;
+    private long lastModified; // epoch millis
+}
@@ -0,0 +1,18 @@
+package com.vestshop.models;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateReservationModel {
+    @NotEmpty(message = "danh sách sản phẩm giữ hàng không được để trống")
+    @Valid
+    private List<ReservationItemModel> items;
+}
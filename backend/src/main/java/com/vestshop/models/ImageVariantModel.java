@@ -0,0 +1,17 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Biến thể ảnh cần tạo: ảnh gốc + kích thước đã chuẩn hóa + định dạng
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageVariantModel {
+    private String src; // URL ảnh gốc của sản phẩm (http(s) hoặc đường dẫn file tĩnh bắt đầu bằng "/")
+    private int width;
+    private String format; // webp | jpg | png
+    private String key; // Hash của (src, width, format), dùng làm tên file cache và ETag
+    private boolean negotiated; // true nếu định dạng được chọn theo header Accept (response cần Vary: Accept)
+}
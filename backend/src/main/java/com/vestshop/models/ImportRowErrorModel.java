@@ -0,0 +1,13 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowErrorModel {
+    private long row; // Số thứ tự dòng dữ liệu (bắt đầu từ 1, không tính dòng tiêu đề CSV)
+    private String message;
+}
@@ -68,6 +68,10 @@ public class OrderModel {
     @Valid
     private List<OrderItemModel> items;
     
+    // Lượt giữ hàng từ bước thanh toán (không bắt buộc), xem POST /api/reservations
+    @Size(max = 36, message = "mã giữ hàng không hợp lệ")
+    private String reservationId;
+    
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -17,5 +17,8 @@ public class PageResponseModel<T> {
     private int totalPages;
     private boolean first;
     private boolean last;
+    // Cursor của trang tiếp theo (chỉ có khi dùng keyset pagination, null nếu là trang cuối).
+    // Ở chế độ cursor không đếm tổng số bản ghi: totalElements và totalPages = -1
+    private String nextCursor;
 }
 
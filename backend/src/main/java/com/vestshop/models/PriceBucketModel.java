@@ -0,0 +1,14 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceBucketModel {
+    private Integer from; // Giá thấp nhất của khoảng (bao gồm)
+    private Integer to; // Giá cao nhất của khoảng (bao gồm)
+    private long count;
+}
@@ -0,0 +1,32 @@
+package com.vestshop.models;
+
+import com.vestshop.enums.ProductStatus;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Một dòng cập nhật hàng loạt: chỉ các trường khác null được cập nhật
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateModel {
+    @NotNull(message = "id sản phẩm không được để trống")
+    private Integer id;
+
+    @PositiveOrZero(message = "số lượng tồn kho phải lớn hơn hoặc bằng 0")
+    private Integer stock;
+
+    @Positive(message = "giá phải lớn hơn 0")
+    private Integer price;
+
+    @PositiveOrZero(message = "giá giảm phải lớn hơn hoặc bằng 0")
+    private Integer salePrice;
+
+    private Boolean clearSalePrice; // true = bỏ giá giảm (salePrice = null)
+
+    private ProductStatus status;
+}
@@ -0,0 +1,23 @@
+package com.vestshop.models;
+
+import com.vestshop.enums.ProductStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Kết quả cập nhật hàng loạt của một sản phẩm (giá trị sau khi cập nhật nếu thành công)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateResultModel {
+    private Integer id;
+    private boolean success;
+    private String message; // Lý do thất bại (null nếu thành công)
+    private Integer stock;
+    private Integer price;
+    private Integer salePrice;
+    private ProductStatus status;
+}
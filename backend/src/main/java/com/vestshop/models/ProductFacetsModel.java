@@ -0,0 +1,19 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsModel {
+    private long totalProducts; // Số sản phẩm khớp tất cả filter
+    private Map<String, Long> categories; // Số sản phẩm theo danh mục (không áp dụng filter danh mục)
+    private Integer minPrice; // Giá thực tế thấp nhất (không áp dụng filter giá, null nếu không có sản phẩm)
+    private Integer maxPrice; // Giá thực tế cao nhất (không áp dụng filter giá, null nếu không có sản phẩm)
+    private List<PriceBucketModel> priceHistogram; // Số sản phẩm theo khoảng giá (không áp dụng filter giá)
+}
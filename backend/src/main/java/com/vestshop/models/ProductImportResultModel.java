@@ -0,0 +1,19 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultModel {
+    private long totalRows; // Số dòng dữ liệu đã đọc (bỏ qua dòng trống)
+    private long importedRows; // Số sản phẩm đã được tạo
+    private long failedRows; // Số dòng bị lỗi (không hợp lệ hoặc ghi thất bại)
+    private List<ImportRowErrorModel> errors = new ArrayList<>(); // Lỗi theo dòng (chỉ trả về các lỗi đầu tiên)
+    private boolean errorsTruncated; // true nếu có nhiều lỗi hơn số lỗi được trả về
+}
@@ -53,5 +53,7 @@ public class ProductModel {
     private Double averageRating; // Rating trung bình (0.0 - 5.0)
     private Integer reviewCount; // Số lượng đánh giá
     private Integer completedOrderCount; // Số lượng đơn hàng đã thành công (lượt mua)
+    private Integer soldQuantity; // Tổng số lượng đã bán trong các đơn hàng đã thành công
+    private Boolean flashSale; // Đang bật chế độ flash sale (tồn kho trừ trong bộ nhớ)
 }
 
@@ -0,0 +1,14 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingModel {
+    private Integer productId;
+    private Double averageRating; // Rating trung bình (0.0 - 5.0)
+    private Long reviewCount; // Số lượng đánh giá
+}
@@ -0,0 +1,15 @@
+package com.vestshop.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionModel {
+    private String type; // "category" hoặc "product"
+    private Integer productId; // null với gợi ý danh mục
+    private String text; // Tên sản phẩm hoặc tên danh mục
+    private String category;
+}
@@ -0,0 +1,56 @@
+package com.vestshop.models;
+
+import com.vestshop.enums.ProductStatus;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Thông tin rút gọn của sản phẩm cho các trang danh sách (grid), chỉ gồm các cột cần hiển thị.
+// Dùng ?view=full để lấy ProductModel đầy đủ
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryModel {
+    private Integer id;
+    private String name;
+    private Integer price;
+    private Integer salePrice;
+    private String category;
+    private String shortDescription; // Đoạn đầu của mô tả
+    private Integer stock;
+    private ProductStatus status;
+    private String primaryImage; // Ảnh đầu tiên của sản phẩm
+    
+    // Rating information (computed from reviews)
+    private Double averageRating;
+    private Integer reviewCount;
+    private Integer completedOrderCount;
+    private Integer soldQuantity;
+    
+    // Điểm xếp hạng đã lưu, chỉ dùng để tạo cursor cho sort trending/bestseller (không trả về client)
+    @JsonIgnore
+    private Double trendingScore;
+    @JsonIgnore
+    private Double bestsellerScore;
+    
+    // Dùng cho constructor projection trong query (rating được gán sau)
+    public ProductSummaryModel(Integer id, String name, Integer price, Integer salePrice, String category,
+                               String shortDescription, Integer stock, ProductStatus status, String primaryImage,
+                               Integer completedOrderCount, Integer soldQuantity, Double trendingScore, Double bestsellerScore) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.salePrice = salePrice;
+        this.category = category;
+        this.shortDescription = shortDescription;
+        this.stock = stock;
+        this.status = status;
+        this.primaryImage = primaryImage;
+        this.completedOrderCount = completedOrderCount;
+        this.soldQuantity = soldQuantity;
+        this.trendingScore = trendingScore;
+        this.bestsellerScore = bestsellerScore;
+    }
+}
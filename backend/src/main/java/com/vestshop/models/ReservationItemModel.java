@@ -0,0 +1,20 @@
+package com.vestshop.models;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationItemModel {
+    @NotNull(message = "mã sản phẩm không được để trống")
+    @Positive(message = "mã sản phẩm phải lớn hơn 0")
+    private Integer productId;
+
+    @NotNull(message = "số lượng không được để trống")
+    @Positive(message = "số lượng phải lớn hơn 0")
+    private Integer quantity;
+}
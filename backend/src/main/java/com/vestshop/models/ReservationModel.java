@@ -0,0 +1,22 @@
+package com.vestshop.models;
+
+import com.vestshop.enums.ReservationStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationModel {
+    private String id; // Gửi kèm khi đặt hàng (reservationId)
+    private ReservationStatus status;
+    private List<ReservationItemModel> items;
+    private LocalDateTime expiresAt;
+}
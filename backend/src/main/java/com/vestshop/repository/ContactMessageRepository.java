@@ -1,9 +1,13 @@
 package com.vestshop.repository;
 
 import com.vestshop.entity.ContactMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -14,5 +18,11 @@ public interface ContactMessageRepository extends JpaRepository<ContactMessage,
     List<ContactMessage> findByIsReadOrderByCreatedAtDesc(Boolean isRead);
     // Đếm số lượng tin nhắn chưa đọc
     Integer countByIsReadFalse();
+    // Keyset pagination: trang đầu tiên theo ngày tạo giảm dần (không đếm tổng)
+    List<ContactMessage> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+    // Keyset pagination: các tin nhắn nằm sau (createdAt, id) của tin nhắn cuối trang trước
+    @Query("SELECT m FROM ContactMessage m WHERE m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ContactMessage> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Integer id, Pageable pageable);
 }
 
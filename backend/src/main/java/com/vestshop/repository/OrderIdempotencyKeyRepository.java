@@ -0,0 +1,35 @@
+package com.vestshop.repository;
+
+import com.vestshop.entity.OrderIdempotencyKey;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, String> {
+    // Xóa key đã hết hạn nhưng job chưa dọn (để khách dùng lại key sau thời gian giữ)
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.id = :id AND k.expiresAt <= :now")
+    int deleteExpiredById(@Param("id") String id, @Param("now") LocalDateTime now);
+    // Giữ key (không qua persistence context): key đang được giữ bởi transaction khác thì chờ rồi lỗi khóa chính
+    @Modifying
+    @Query(value = "INSERT INTO order_idempotency_keys (id, request_hash, expires_at, created_at) " +
+                   "VALUES (:id, :requestHash, :expiresAt, :createdAt)", nativeQuery = true)
+    int insertKey(@Param("id") String id, @Param("requestHash") String requestHash,
+                  @Param("expiresAt") LocalDateTime expiresAt, @Param("createdAt") LocalDateTime createdAt);
+    // Ghi kết quả tạo đơn của key, thời gian giữ tính từ lúc tạo đơn xong
+    @Modifying
+    @Query("UPDATE OrderIdempotencyKey k SET k.orderId = :orderId, k.responseBody = :responseBody, k.expiresAt = :expiresAt " +
+           "WHERE k.id = :id")
+    int completeKey(@Param("id") String id, @Param("orderId") Integer orderId,
+                    @Param("responseBody") String responseBody, @Param("expiresAt") LocalDateTime expiresAt);
+    // Xóa tất cả key đã hết hạn
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
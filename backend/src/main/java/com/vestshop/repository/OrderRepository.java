@@ -3,10 +3,14 @@ package com.vestshop.repository;
 import com.vestshop.entity.Order;
 import com.vestshop.enums.OrderStatus;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,5 +25,24 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     List<Order> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
     // Đếm số đơn hàng theo trạng thái
     Integer countByStatus(OrderStatus status);
+    // Tổng hợp số đơn và số lượng đã bán theo sản phẩm cho các đơn hàng theo trạng thái
+    @Query("SELECT oi.product.id, COUNT(DISTINCT oi.order.id), SUM(oi.quantity) FROM OrderItem oi " +
+           "WHERE oi.order.status = :status GROUP BY oi.product.id")
+    List<Object[]> sumSalesByProductAndOrderStatus(@Param("status") OrderStatus status);
+    // Keyset pagination: lấy các đơn hàng có ID lớn hơn ID cuối của trang trước (không đếm tổng)
+    List<Order> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+    // Lấy ID các đơn hàng theo trạng thái có ID lớn hơn afterId (dùng khi xây dựng lại ma trận mua cùng theo từng nhóm)
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.id > :afterId ORDER BY o.id")
+    List<Integer> findIdsByStatusAfter(@Param("status") OrderStatus status, @Param("afterId") Integer afterId, Pageable pageable);
+    // Lấy ID tất cả đơn hàng có ID lớn hơn afterId (dùng cho các job xử lý theo lô)
+    @Query("SELECT o.id FROM Order o WHERE o.id > :afterId ORDER BY o.id")
+    List<Integer> findIdsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+    // Lấy (ID sản phẩm, số lượng, thời điểm đặt, thời điểm cập nhật, trạng thái đơn) của các item trong các đơn hàng
+    @Query("SELECT oi.product.id, oi.quantity, o.createdAt, o.updatedAt, o.status FROM OrderItem oi JOIN oi.order o " +
+           "WHERE o.id IN :orderIds AND oi.product IS NOT NULL")
+    List<Object[]> findItemActivityByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
+    // Lấy các cặp (ID đơn hàng, ID sản phẩm) của các đơn hàng
+    @Query("SELECT DISTINCT oi.order.id, oi.product.id FROM OrderItem oi WHERE oi.order.id IN :orderIds AND oi.product IS NOT NULL")
+    List<Object[]> findProductIdsByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
 }
 
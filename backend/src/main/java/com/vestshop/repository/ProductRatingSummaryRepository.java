@@ -0,0 +1,41 @@
+package com.vestshop.repository;
+
+import com.vestshop.entity.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Integer> {
+    // Tạo dòng tổng hợp rỗng cho sản phẩm nếu chưa có (bỏ qua nếu đã tồn tại)
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO product_rating_summary " +
+                   "(product_id, rating_sum, rating_count, star_1_count, star_2_count, star_3_count, star_4_count, star_5_count, updated_at) " +
+                   "SELECT p.id, 0, 0, 0, 0, 0, 0, 0, CURRENT_TIMESTAMP FROM products p WHERE p.id IN :productIds",
+           nativeQuery = true)
+    int insertMissing(@Param("productIds") Collection<Integer> productIds);
+    // Cộng/trừ một đánh giá vào tổng hợp bằng một câu UPDATE (delta = 1 khi thêm, -1 khi bớt)
+    @Modifying
+    @Query("UPDATE ProductRatingSummary s SET " +
+           "s.ratingSum = s.ratingSum + :delta * :rating, " +
+           "s.ratingCount = s.ratingCount + :delta, " +
+           "s.star1Count = s.star1Count + CASE WHEN :rating = 1 THEN :delta ELSE 0 END, " +
+           "s.star2Count = s.star2Count + CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+           "s.star3Count = s.star3Count + CASE WHEN :rating = 3 THEN :delta ELSE 0 END, " +
+           "s.star4Count = s.star4Count + CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+           "s.star5Count = s.star5Count + CASE WHEN :rating = 5 THEN :delta ELSE 0 END, " +
+           "s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.productId = :productId")
+    int applyRating(@Param("productId") Integer productId, @Param("rating") Integer rating, @Param("delta") Integer delta);
+    // Khóa các dòng tổng hợp khi tính lại từ đầu (để không mất cập nhật đồng thời)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductRatingSummary s WHERE s.productId IN :productIds")
+    List<ProductRatingSummary> findAllByProductIdInForUpdate(@Param("productIds") Collection<Integer> productIds);
+}
@@ -3,14 +3,21 @@ package com.vestshop.repository;
 import com.vestshop.entity.Product;
 import com.vestshop.enums.ProductStatus;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
     // Tìm sản phẩm theo danh mục
     List<Product> findByCategory(String category);
     // Tìm sản phẩm theo trạng thái
@@ -21,5 +28,53 @@ public interface ProductRepository extends JpaRepository<Product, Integer>, JpaS
     List<Product> findByPriceBetween(Integer minPrice, Integer maxPrice);
     // Tìm sản phẩm còn hàng
     List<Product> findByStockGreaterThan(Integer stock);
+    // Lấy sản phẩm cho trang chi tiết (kèm images trong cùng query)
+    @EntityGraph("Product.detail")
+    Optional<Product> findDetailById(Integer id);
+    // Lấy ID sản phẩm theo từng khối (sắp xếp theo ID, dùng cho các job xử lý theo lô)
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Integer> findIdsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+    // Cộng/trừ bộ đếm bán hàng của sản phẩm (orders = số đơn, quantity = số lượng)
+    @Modifying
+    @Query("UPDATE Product p SET p.completedOrderCount = p.completedOrderCount + :orders, " +
+           "p.soldQuantity = p.soldQuantity + :quantity WHERE p.id = :productId")
+    int addSales(@Param("productId") Integer productId, @Param("orders") Integer orders, @Param("quantity") Integer quantity);
+    // Đồng bộ cột effective_price cho các dòng cũ (trước khi có cột hoặc được sửa trực tiếp trong DB)
+    @Modifying
+    @Query("UPDATE Product p SET p.effectivePrice = COALESCE(p.salePrice, p.price) " +
+           "WHERE p.effectivePrice IS NULL OR p.effectivePrice <> COALESCE(p.salePrice, p.price)")
+    int syncEffectivePrices();
+    // Lấy ID sản phẩm có ảnh nhưng chưa có primary_image (dữ liệu có từ trước khi có cột)
+    @Query("SELECT p.id FROM Product p WHERE p.primaryImage IS NULL AND p.images IS NOT EMPTY AND p.id > :afterId ORDER BY p.id")
+    List<Integer> findIdsMissingPrimaryImageAfter(@Param("afterId") Integer afterId, Pageable pageable);
+    // Cập nhật ảnh đại diện (không đổi updatedAt)
+    @Modifying
+    @Query("UPDATE Product p SET p.primaryImage = :primaryImage WHERE p.id = :productId")
+    int updatePrimaryImage(@Param("productId") Integer productId, @Param("primaryImage") String primaryImage);
+    // Lấy trạng thái và tồn kho hiện tại (ID, status, stock) của nhiều sản phẩm
+    @Query("SELECT p.id, p.status, p.stock FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStatusesByIds(@Param("ids") Collection<Integer> ids);
+    // Đặt lại bộ đếm bán hàng của tất cả sản phẩm về 0 (trước khi tính lại)
+    @Modifying
+    @Query("UPDATE Product p SET p.completedOrderCount = 0, p.soldQuantity = 0")
+    int resetSales();
+    // Kiểm tra đã có sản phẩm nào có bộ đếm bán hàng chưa
+    boolean existsByCompletedOrderCountGreaterThan(Integer count);
+    // Đếm số dòng ảnh sản phẩm có URL này (chỉ tạo ảnh thu nhỏ cho ảnh của sản phẩm; chỉ chạy khi ảnh chưa có trong cache)
+    @Query(value = "SELECT COUNT(*) FROM product_images WHERE image_url = :url", nativeQuery = true)
+    long countImageUrl(@Param("url") String url);
+    // Khóa các sản phẩm theo thứ tự ID tăng dần và lấy (ID, tồn kho, giá, giá giảm, trạng thái, danh mục)
+    // (dùng khi cập nhật hàng loạt - đọc và ghi trong cùng transaction)
+    @Query(value = "SELECT id, stock, price, sale_price, status, category, flash_sale FROM products WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockStockAndPrices(@Param("ids") Collection<Integer> ids);
+    // Lấy điểm xếp hạng (ID, trending, bestseller) của các sản phẩm đã có điểm
+    @Query("SELECT p.id, p.trendingScore, p.bestsellerScore FROM Product p WHERE p.trendingScore > 0 OR p.bestsellerScore > 0")
+    List<Object[]> findRankingScores();
+    // Ghi điểm xếp hạng của sản phẩm (không đổi updatedAt)
+    @Modifying
+    @Query("UPDATE Product p SET p.trendingScore = :trendingScore, p.bestsellerScore = :bestsellerScore WHERE p.id = :productId")
+    int updateRankingScores(@Param("productId") Integer productId, @Param("trendingScore") Double trendingScore,
+                            @Param("bestsellerScore") Double bestsellerScore);
 }
 
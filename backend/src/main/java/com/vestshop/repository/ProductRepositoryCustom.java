@@ -0,0 +1,19 @@
+package com.vestshop.repository;
+
+import com.vestshop.entity.Product;
+import com.vestshop.models.ProductSummaryModel;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Các query projection của sản phẩm (chỉ select các cột cần cho danh sách, không load entity)
+public interface ProductRepositoryCustom {
+    // Lấy trang sản phẩm dạng tóm tắt theo filter
+    Page<ProductSummaryModel> findSummaries(Specification<Product> spec, Pageable pageable);
+    // Lấy sản phẩm dạng tóm tắt theo filter, tối đa limit dòng (limit <= 0 = không giới hạn, không đếm tổng)
+    List<ProductSummaryModel> findSummaries(Specification<Product> spec, Sort sort, int limit);
+}
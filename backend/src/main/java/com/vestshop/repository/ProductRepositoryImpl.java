@@ -0,0 +1,96 @@
+package com.vestshop.repository;
+
+import com.vestshop.entity.Product;
+import com.vestshop.models.ProductSummaryModel;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    // Độ dài tối đa của đoạn mô tả trong danh sách
+    private static final int SHORT_DESCRIPTION_LENGTH = 200;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ProductSummaryModel> findSummaries(Specification<Product> spec, Pageable pageable) {
+        TypedQuery<ProductSummaryModel> query = createSummaryQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        // COUNT chỉ chạy khi cần (không chạy nếu trang đầu đã chứa tất cả kết quả)
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<ProductSummaryModel> findSummaries(Specification<Product> spec, Sort sort, int limit) {
+        TypedQuery<ProductSummaryModel> query = createSummaryQuery(spec, sort);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    private TypedQuery<ProductSummaryModel> createSummaryQuery(Specification<Product> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummaryModel> query = cb.createQuery(ProductSummaryModel.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.construct(ProductSummaryModel.class,
+            root.get("id"),
+            root.get("name"),
+            root.get("price"),
+            root.get("salePrice"),
+            root.get("category"),
+            cb.substring(root.get("description"), 1, SHORT_DESCRIPTION_LENGTH),
+            root.get("stock"),
+            root.get("status"),
+            root.get("primaryImage"),
+            root.get("completedOrderCount"),
+            root.get("soldQuantity"),
+            root.get("trendingScore"),
+            root.get("bestsellerScore")
+        ));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        // Spec có thể tự đặt ORDER BY (keyset pagination), chỉ ghi đè khi có sort
+        if (sort != null && sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.count(root));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
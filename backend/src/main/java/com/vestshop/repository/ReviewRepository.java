@@ -3,15 +3,17 @@ package com.vestshop.repository;
 import com.vestshop.entity.Review;
 import com.vestshop.enums.ReviewStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ReviewRepository extends JpaRepository<Review, Integer> {
+public interface ReviewRepository extends JpaRepository<Review, Integer>, JpaSpecificationExecutor<Review> {
     // Tìm đánh giá theo sản phẩm và trạng thái
     List<Review> findByProductIdAndStatus(Integer productId, ReviewStatus status);
     // Tìm đánh giá theo sản phẩm (tất cả trạng thái)
@@ -24,5 +26,15 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
     Optional<Review> findByProductIdAndUserId(@Param("productId") Integer productId, @Param("userId") Integer userId);
     // Đếm số đánh giá theo sản phẩm và trạng thái
     Integer countByProductIdAndStatus(Integer productId, ReviewStatus status);
+    // Đếm số đánh giá theo sản phẩm và số sao (dùng khi tính lại bảng tổng hợp rating)
+    @Query("SELECT r.product.id, r.rating, COUNT(r) FROM Review r " +
+           "WHERE r.product.id IN :productIds AND r.status = :status GROUP BY r.product.id, r.rating")
+    List<Object[]> countRatingsByProductIdsAndStatus(@Param("productIds") Collection<Integer> productIds, @Param("status") ReviewStatus status);
+    // Lấy (ID sản phẩm, thời điểm tạo) của các đánh giá theo trạng thái (dùng khi tính lại điểm xu hướng)
+    @Query("SELECT r.product.id, r.createdAt FROM Review r WHERE r.status = :status")
+    List<Object[]> findProductActivityByStatus(@Param("status") ReviewStatus status);
+    // Số đánh giá và thời điểm cập nhật gần nhất theo sản phẩm và trạng thái (dùng cho ETag/Last-Modified)
+    @Query("SELECT COUNT(r), MAX(r.updatedAt) FROM Review r WHERE r.product.id = :productId AND r.status = :status")
+    List<Object[]> findLastChangeByProductIdAndStatus(@Param("productId") Integer productId, @Param("status") ReviewStatus status);
 }
 
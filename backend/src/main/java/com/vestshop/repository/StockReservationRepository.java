@@ -0,0 +1,41 @@
+package com.vestshop.repository;
+
+import com.vestshop.entity.StockReservation;
+import com.vestshop.enums.ReservationStatus;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+    // Lấy các lượt giữ theo trạng thái kèm số lượng (nạp vào bộ nhớ khi khởi động)
+    @EntityGraph(attributePaths = "quantities")
+    List<StockReservation> findByStatus(ReservationStatus status);
+    // Chuyển trạng thái của lượt giữ còn hiệu lực (trả 0 nếu đã được dùng/hủy/hết hạn - chỉ một bên thắng)
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :status " +
+           "WHERE r.id = :id AND r.status = com.vestshop.enums.ReservationStatus.ACTIVE AND r.expiresAt > :now")
+    int closeActive(@Param("id") String id, @Param("status") ReservationStatus status, @Param("now") LocalDateTime now);
+    // Dùng lượt giữ của khách khi đặt hàng: chỉ cần còn ACTIVE, kể cả đã quá hạn nhưng job dọn dẹp chưa trả lại
+    // (hàng vẫn đang bị trừ cho lượt giữ này; job dọn dẹp khóa và chuyển trạng thái cùng dòng nên chỉ một bên thắng)
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = com.vestshop.enums.ReservationStatus.CONSUMED " +
+           "WHERE r.id = :id AND r.username = :username AND r.status = com.vestshop.enums.ReservationStatus.ACTIVE")
+    int consumeActive(@Param("id") String id, @Param("username") String username);
+    // Khóa các lượt giữ vẫn còn ACTIVE trong danh sách (job dọn dẹp, theo thứ tự ID)
+    @Query(value = "SELECT id FROM stock_reservations WHERE id IN (:ids) AND status = 'ACTIVE' ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<String> lockActiveIds(@Param("ids") Collection<String> ids);
+    // Chuyển trạng thái nhiều lượt giữ (đã được khóa)
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :status WHERE r.id IN :ids")
+    int updateStatuses(@Param("ids") Collection<String> ids, @Param("status") ReservationStatus status);
+}
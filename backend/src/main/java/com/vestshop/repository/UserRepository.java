@@ -1,6 +1,7 @@
 package com.vestshop.repository;
 
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -39,5 +40,7 @@ public interface UserRepository extends JpaRepository<User, Integer>{
     Integer countByRole(Role role);
     // Tìm các user với status cụ thể
     List<User> findByStatus(UserStatus status);
+    // Keyset pagination: lấy các user có ID lớn hơn ID cuối của trang trước (không đếm tổng)
+    List<User> findByUserIdGreaterThanOrderByUserIdAsc(Integer userId, Pageable pageable);
     
 }
@@ -0,0 +1,210 @@
+package com.vestshop.search;
+
+import com.vestshop.enums.OrderStatus;
+import com.vestshop.repository.OrderRepository;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Ma trận mua cùng (co-purchase) trong bộ nhớ cho gợi ý "thường được mua cùng":
+// - đếm số đơn hàng COMPLETED chứa cả hai sản phẩm (ma trận thưa)
+// - xây dựng lại từ lịch sử đơn hàng khi khởi động, cập nhật sau khi đơn hàng vào/ra trạng thái COMPLETED
+// - danh sách top sản phẩm liên quan được tính sẵn cho mỗi sản phẩm, đọc chỉ cần một lần tra map
+@Component
+public class CoPurchaseIndex {
+
+    // Số sản phẩm liên quan tối đa được tính sẵn cho mỗi sản phẩm
+    public static final int MAX_RELATED = 20;
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Matrix matrix = new Matrix();
+
+    // ID đơn hàng -> thay đổi cuối cùng của đơn hàng trong lúc rebuild, được đối chiếu sau khi đọc xong
+    private Map<Integer, OrderChange> pendingChanges = null;
+
+    // Sản phẩm của một đơn hàng được cộng (direction = 1, vào COMPLETED) hoặc trừ (direction = -1) vào ma trận
+    private static class OrderChange {
+        private final Integer orderId;
+        private final Set<Integer> productIds;
+        private final int direction;
+
+        private OrderChange(Integer orderId, Set<Integer> productIds, int direction) {
+            this.orderId = orderId;
+            this.productIds = productIds;
+            this.direction = direction;
+        }
+    }
+
+    // Ma trận thưa và danh sách top liên quan đã tính sẵn
+    private static class Matrix {
+        // sản phẩm -> (sản phẩm mua cùng -> số đơn hàng chứa cả hai)
+        private final Map<Integer, Map<Integer, Integer>> counts = new HashMap<>();
+        private final Map<Integer, List<Integer>> topRelated = new HashMap<>();
+
+        private void add(Set<Integer> productIds, int direction) {
+            for (Integer productId : productIds) {
+                for (Integer otherId : productIds) {
+                    if (productId.equals(otherId)) {
+                        continue;
+                    }
+                    Map<Integer, Integer> row = counts.computeIfAbsent(productId, key -> new HashMap<>());
+                    row.merge(otherId, direction, Integer::sum);
+                    if (row.get(otherId) <= 0) {
+                        row.remove(otherId);
+                    }
+                    if (row.isEmpty()) {
+                        counts.remove(productId);
+                    }
+                }
+            }
+        }
+
+        // Tính lại danh sách top liên quan của các sản phẩm (số đơn mua cùng giảm dần, ID tăng dần)
+        private void refresh(Collection<Integer> productIds) {
+            for (Integer productId : productIds) {
+                Map<Integer, Integer> row = counts.get(productId);
+                if (row == null) {
+                    topRelated.remove(productId);
+                    continue;
+                }
+                topRelated.put(productId, row.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(MAX_RELATED)
+                    .map(Map.Entry::getKey)
+                    .toList());
+            }
+        }
+    }
+
+    // Xây dựng lại ma trận từ lịch sử đơn hàng khi ứng dụng khởi động xong
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIndex() {
+        int orders = rebuild();
+        System.out.println("Co-purchase matrix built from " + orders + " completed orders");
+    }
+
+    // Xây dựng lại toàn bộ ma trận từ các đơn hàng COMPLETED, đọc theo từng nhóm ID đơn hàng
+    public int rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Matrix newMatrix = new Matrix();
+        // ID các đơn hàng đã được cộng vào ma trận mới
+        BitSet scanned = new BitSet();
+        int orders = 0;
+        try {
+            Integer afterId = 0;
+            while (true) {
+                Integer lastId = afterId;
+                List<Integer> orderIds = transactionTemplate.execute(status ->
+                    orderRepository.findIdsByStatusAfter(OrderStatus.COMPLETED, lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE)));
+                if (orderIds == null || orderIds.isEmpty()) {
+                    break;
+                }
+                Map<Integer, Set<Integer>> productsByOrder = new HashMap<>();
+                List<Object[]> rows = transactionTemplate.execute(status -> orderRepository.findProductIdsByOrderIds(orderIds));
+                for (Object[] row : rows) {
+                    productsByOrder.computeIfAbsent((Integer) row[0], key -> new LinkedHashSet<>()).add((Integer) row[1]);
+                }
+                for (Set<Integer> productIds : productsByOrder.values()) {
+                    newMatrix.add(productIds, 1);
+                }
+                orderIds.forEach(scanned::set);
+                orders += orderIds.size();
+                afterId = orderIds.get(orderIds.size() - 1);
+                if (orderIds.size() < REBUILD_CHUNK_SIZE) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Rebuild lỗi giữa chừng thì giữ nguyên ma trận cũ
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Đối chiếu các đơn hàng thay đổi trong lúc rebuild: thay đổi cuối cùng cho biết đơn hàng hiện có
+            // COMPLETED hay không, còn dữ liệu vừa đọc có thể đã hoặc chưa thấy thay đổi đó (tùy lúc commit so với
+            // lúc đọc nhóm chứa đơn hàng). Chỉ cộng/trừ khi hai bên khác nhau để không đếm một đơn hai lần
+            for (OrderChange change : pendingChanges.values()) {
+                if ((change.direction > 0) != scanned.get(change.orderId)) {
+                    newMatrix.add(change.productIds, change.direction);
+                }
+            }
+            pendingChanges = null;
+            newMatrix.refresh(new ArrayList<>(newMatrix.counts.keySet()));
+            matrix = newMatrix;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return orders;
+    }
+
+    // Cộng (direction = 1) hoặc trừ (direction = -1) các sản phẩm của một đơn hàng vào ma trận
+    // sau khi transaction hiện tại commit (đơn hàng vào/ra trạng thái COMPLETED)
+    public void applyOrder(Integer orderId, Collection<Integer> productIds, int direction) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(productIds);
+        if (orderId == null || distinctIds.size() < 2) {
+            return;
+        }
+        OrderChange change = new OrderChange(orderId, distinctIds, direction);
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                matrix.add(change.productIds, change.direction);
+                matrix.refresh(change.productIds);
+                if (pendingChanges != null) {
+                    pendingChanges.put(change.orderId, change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Lấy ID các sản phẩm thường được mua cùng sản phẩm, theo số đơn mua cùng giảm dần
+    public List<Integer> getRelated(Integer productId) {
+        lock.readLock().lock();
+        try {
+            return matrix.topRelated.getOrDefault(productId, List.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.vestshop.search;
+
+import com.vestshop.cache.CatalogCache;
+import com.vestshop.config.RankingConfig;
+import com.vestshop.enums.OrderStatus;
+import com.vestshop.enums.ReviewStatus;
+import com.vestshop.repository.OrderRepository;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.repository.ReviewRepository;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Điểm xếp hạng "xu hướng" (trending) và "bán chạy" (bestseller) của sản phẩm, có suy giảm theo thời gian:
+// - điểm = tổng trọng số * 2^(-tuổi / chu kỳ bán rã), cập nhật cộng dồn theo sự kiện đặt hàng/đánh giá/hoàn thành đơn
+// - lưu dưới dạng log của điểm quy về mốc thời gian cố định: ln(Σ w * e^(λ(t - t0))).
+//   Mọi sản phẩm cùng chia hệ số e^(-λ(now - t0)) nên sắp xếp theo giá trị này đúng bằng sắp xếp theo điểm hiện tại,
+//   không cần job giảm điểm định kỳ và giá trị tăng tuyến tính theo thời gian (không bị tràn số)
+// - giữ trong bộ nhớ, ghi các điểm đã thay đổi xuống bảng products theo chu kỳ để storefront sắp xếp bằng index
+@Component
+public class ProductRankingScores {
+
+    // Mốc thời gian quy đổi điểm (2020-01-01T00:00:00Z)
+    private static final long REFERENCE_EPOCH_SECOND = 1577836800L;
+
+    // Trọng số của từng sự kiện (>= 1 để điểm của sản phẩm đã có sự kiện luôn > 0)
+    private static final double ORDER_ITEM_WEIGHT = 1.0; // Mỗi sản phẩm được đặt (theo số lượng)
+    private static final double REVIEW_WEIGHT = 2.0; // Mỗi đánh giá mới
+    private static final double SOLD_ITEM_WEIGHT = 1.0; // Mỗi sản phẩm trong đơn hàng đã hoàn thành (theo số lượng)
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final double trendingDecayRate; // λ theo giây
+    private final double bestsellerDecayRate;
+
+    // ID sản phẩm -> điểm (0 = chưa có), được bảo vệ bởi lock của ProductRankingScores
+    private final Map<Integer, Double> trendingScores = new HashMap<>();
+    private final Map<Integer, Double> bestsellerScores = new HashMap<>();
+    // Sản phẩm có điểm thay đổi chưa được ghi xuống database
+    private final Set<Integer> dirty = new HashSet<>();
+
+    @Autowired
+    public ProductRankingScores(RankingConfig config) {
+        this.trendingDecayRate = Math.log(2) / (config.getTrendingHalfLifeHours() * 3600);
+        this.bestsellerDecayRate = Math.log(2) / (config.getBestsellerHalfLifeDays() * 86400);
+    }
+
+    // Nạp điểm đã lưu khi khởi động; tính từ lịch sử đơn hàng/đánh giá nếu chưa có (dữ liệu có từ trước khi có cột)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initScores() {
+        List<Object[]> rows = transactionTemplate.execute(status -> productRepo.findRankingScores());
+        if (rows != null && !rows.isEmpty()) {
+            synchronized (this) {
+                for (Object[] row : rows) {
+                    trendingScores.put((Integer) row[0], (Double) row[1]);
+                    bestsellerScores.put((Integer) row[0], (Double) row[2]);
+                }
+            }
+            return;
+        }
+        int products = rebuild();
+        if (products > 0) {
+            System.out.println("Computed ranking scores for " + products + " products");
+        }
+    }
+
+    // Tính lại toàn bộ điểm từ lịch sử đơn hàng và đánh giá, trả về số sản phẩm có điểm
+    public synchronized int rebuild() {
+        Map<Integer, Double> newTrending = new HashMap<>();
+        Map<Integer, Double> newBestseller = new HashMap<>();
+
+        Integer afterId = 0;
+        while (true) {
+            Integer lastId = afterId;
+            List<Integer> orderIds = transactionTemplate.execute(status ->
+                orderRepository.findIdsAfter(lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE)));
+            if (orderIds == null || orderIds.isEmpty()) {
+                break;
+            }
+            List<Object[]> items = transactionTemplate.execute(status -> orderRepository.findItemActivityByOrderIds(orderIds));
+            for (Object[] item : items) {
+                Integer productId = (Integer) item[0];
+                int quantity = (Integer) item[1];
+                OrderStatus orderStatus = (OrderStatus) item[4];
+                if (orderStatus != OrderStatus.CANCELLED) {
+                    newTrending.merge(productId, contribution(ORDER_ITEM_WEIGHT * quantity, trendingDecayRate, (LocalDateTime) item[2]),
+                        ProductRankingScores::logAdd);
+                }
+                if (orderStatus == OrderStatus.COMPLETED) {
+                    // Thời điểm cập nhật cuối của đơn hàng hoàn thành được xem là thời điểm bán
+                    newBestseller.merge(productId, contribution(SOLD_ITEM_WEIGHT * quantity, bestsellerDecayRate, (LocalDateTime) item[3]),
+                        ProductRankingScores::logAdd);
+                }
+            }
+            afterId = orderIds.get(orderIds.size() - 1);
+            if (orderIds.size() < REBUILD_CHUNK_SIZE) {
+                break;
+            }
+        }
+        List<Object[]> reviews = transactionTemplate.execute(status -> reviewRepository.findProductActivityByStatus(ReviewStatus.ACTIVE));
+        for (Object[] review : reviews) {
+            newTrending.merge((Integer) review[0], contribution(REVIEW_WEIGHT, trendingDecayRate, (LocalDateTime) review[1]),
+                ProductRankingScores::logAdd);
+        }
+
+        // Ghi lại cả các sản phẩm trước đây có điểm nhưng nay không còn
+        dirty.addAll(trendingScores.keySet());
+        dirty.addAll(bestsellerScores.keySet());
+        trendingScores.clear();
+        trendingScores.putAll(newTrending);
+        bestsellerScores.clear();
+        bestsellerScores.putAll(newBestseller);
+        dirty.addAll(newTrending.keySet());
+        dirty.addAll(newBestseller.keySet());
+        flush();
+
+        Set<Integer> scored = new HashSet<>(newTrending.keySet());
+        scored.addAll(newBestseller.keySet());
+        return scored.size();
+    }
+
+    // Ghi nhận đơn hàng được đặt hoặc khôi phục (direction = 1) hoặc bị hủy (direction = -1) (điểm xu hướng),
+    // áp dụng sau khi transaction hiện tại commit. orderedAt là thời điểm tạo đơn, giống thời điểm rebuild() dùng,
+    // để phần trừ khi hủy đúng bằng phần đã cộng lúc đặt
+    public void recordOrder(Map<Integer, Integer> quantityByProduct, int direction, LocalDateTime orderedAt) {
+        Map<Integer, Integer> quantities = new HashMap<>(quantityByProduct);
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                quantities.forEach((productId, quantity) ->
+                    add(trendingScores, productId, contribution(ORDER_ITEM_WEIGHT * quantity, trendingDecayRate, orderedAt), direction));
+            }
+        });
+    }
+
+    // Ghi nhận đánh giá mới (điểm xu hướng), áp dụng sau khi transaction hiện tại commit
+    public void recordReview(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                add(trendingScores, productId, contribution(REVIEW_WEIGHT, trendingDecayRate, now), 1);
+            }
+        });
+    }
+
+    // Ghi nhận đơn hàng vào (direction = 1) hoặc ra (direction = -1) trạng thái COMPLETED (điểm bán chạy),
+    // áp dụng sau khi transaction hiện tại commit. soldAt là thời điểm hoàn thành đơn (khi trừ phải là thời điểm
+    // hoàn thành ban đầu, không phải thời điểm hiện tại, nếu không phần trừ lớn hơn phần đã cộng)
+    public void recordSales(Map<Integer, Integer> quantityByProduct, int direction, LocalDateTime soldAt) {
+        Map<Integer, Integer> quantities = new HashMap<>(quantityByProduct);
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                quantities.forEach((productId, quantity) ->
+                    add(bestsellerScores, productId, contribution(SOLD_ITEM_WEIGHT * quantity, bestsellerDecayRate, soldAt), direction));
+            }
+        });
+    }
+
+    // Ghi các điểm đã thay đổi xuống database theo chu kỳ, sau đó xóa các trang danh sách đang sắp xếp theo điểm
+    @Scheduled(fixedDelayString = "${catalog.ranking.flush-interval-ms:60000}")
+    public void flush() {
+        Map<Integer, Double[]> changes = new HashMap<>();
+        synchronized (this) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            for (Integer productId : dirty) {
+                changes.put(productId, new Double[] {
+                    trendingScores.getOrDefault(productId, 0.0), bestsellerScores.getOrDefault(productId, 0.0)
+                });
+            }
+            dirty.clear();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> changes.forEach((productId, scores) ->
+                productRepo.updateRankingScores(productId, scores[0], scores[1])));
+        } catch (RuntimeException e) {
+            // Ghi lỗi thì đánh dấu lại để lần sau ghi tiếp (điểm trong bộ nhớ vẫn đúng)
+            synchronized (this) {
+                dirty.addAll(changes.keySet());
+            }
+            System.err.println("Error saving ranking scores: " + e.getMessage());
+            return;
+        }
+        catalogCache.evictListsBySort("trending");
+        catalogCache.evictListsBySort("bestseller");
+    }
+
+    // Cộng (direction = 1) hoặc trừ (direction = -1) một đóng góp vào điểm của sản phẩm
+    private void add(Map<Integer, Double> scores, Integer productId, double contribution, int direction) {
+        double current = scores.getOrDefault(productId, 0.0);
+        double updated = direction > 0 ? logAdd(current, contribution) : logSubtract(current, contribution);
+        if (updated > 0) {
+            scores.put(productId, updated);
+        } else {
+            scores.remove(productId);
+        }
+        dirty.add(productId);
+    }
+
+    // ln(w * e^(λ(t - t0))) = ln(w) + λ(t - t0)
+    private static double contribution(double weight, double decayRate, LocalDateTime time) {
+        long epochSecond = time.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return Math.log(weight) + decayRate * (epochSecond - REFERENCE_EPOCH_SECOND);
+    }
+
+    // ln(e^a + e^b), 0 = chưa có điểm
+    private static double logAdd(double a, double b) {
+        if (a <= 0) {
+            return b;
+        }
+        if (b <= 0) {
+            return a;
+        }
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    // ln(e^a - e^b), trả về 0 nếu không còn điểm
+    private static double logSubtract(double a, double b) {
+        if (a <= 0 || b >= a) {
+            return 0;
+        }
+        return a + Math.log1p(-Math.exp(b - a));
+    }
+}
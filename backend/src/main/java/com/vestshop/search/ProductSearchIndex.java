@@ -0,0 +1,552 @@
+package com.vestshop.search;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.utils.SearchTextUtils;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Chỉ mục tìm kiếm toàn văn (inverted index) trong bộ nhớ cho sản phẩm:
+// - đánh chỉ mục tên, danh mục, mô tả và chi tiết sản phẩm (đã bỏ dấu tiếng Việt)
+// - xây dựng lại khi khởi động, cập nhật sau khi transaction ghi sản phẩm commit
+// - xếp hạng theo trọng số trường * IDF, từ cuối của query được khớp theo tiền tố
+// - gợi ý (typeahead) theo tiền tố của tên sản phẩm/danh mục, xếp theo độ phổ biến (số lượng đã bán)
+@Component
+public class ProductSearchIndex {
+
+    // Trọng số của từng trường khi tính điểm
+    private static final double NAME_WEIGHT = 4.0;
+    private static final double CATEGORY_WEIGHT = 3.0;
+    private static final double DETAIL_WEIGHT = 1.5;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // Khớp theo tiền tố (đang gõ dở) được tính điểm thấp hơn khớp nguyên từ
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    // Ngăn cách cụm từ và ID sản phẩm trong khóa gợi ý (nhỏ hơn mọi ký tự nên không ảnh hưởng thứ tự)
+    private static final char SUGGEST_KEY_SEPARATOR = '\u0000';
+
+    // Tiền tố ngắn (1-2 ký tự) khớp rất nhiều khóa gợi ý nên kết quả được cache (tối đa SUGGEST_CACHE_LIMIT sản phẩm)
+    // cho đến lần thay đổi chỉ mục tiếp theo
+    private static final int SUGGEST_CACHE_MAX_PREFIX_LENGTH = 2;
+    private static final int SUGGEST_CACHE_LIMIT = 20;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexData data = new IndexData();
+
+    // Các thay đổi xảy ra trong lúc rebuild, được áp dụng lại sau khi thay chỉ mục mới
+    private List<IndexedProduct> pendingChanges = null;
+
+    // Thông tin của một sản phẩm trong chỉ mục
+    public static class IndexedProduct {
+        private final Integer id;
+        private final String name;
+        private final String category;
+        private final ProductStatus status;
+        private final Integer effectivePrice;
+        private final int popularity; // Số lượng đã bán
+        private final Map<String, Double> termWeights;
+        private final List<String> suggestPhrases; // Tên đã bỏ dấu, bắt đầu từ từng từ trong tên
+        private final boolean removed;
+
+        private IndexedProduct(Integer id, String name, String category, ProductStatus status, Integer effectivePrice,
+                               int popularity, Map<String, Double> termWeights, List<String> suggestPhrases,
+                               boolean removed) {
+            this.id = id;
+            this.name = name;
+            this.category = category;
+            this.status = status;
+            this.effectivePrice = effectivePrice;
+            this.popularity = popularity;
+            this.termWeights = termWeights;
+            this.suggestPhrases = suggestPhrases;
+            this.removed = removed;
+        }
+
+        // Bản sao với trạng thái/độ phổ biến mới (nội dung chỉ mục giữ nguyên)
+        private IndexedProduct with(ProductStatus newStatus, int newPopularity) {
+            return with(newStatus, effectivePrice, newPopularity);
+        }
+
+        private IndexedProduct with(ProductStatus newStatus, Integer newEffectivePrice, int newPopularity) {
+            return new IndexedProduct(id, name, category, newStatus, newEffectivePrice, newPopularity,
+                termWeights, suggestPhrases, false);
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public ProductStatus getStatus() {
+            return status;
+        }
+
+        public Integer getEffectivePrice() {
+            return effectivePrice;
+        }
+
+        public int getPopularity() {
+            return popularity;
+        }
+
+        private boolean isVisible() {
+            return status != ProductStatus.HIDDEN;
+        }
+    }
+
+    // Các cấu trúc của chỉ mục, được thay nguyên khối khi rebuild
+    private static class IndexData {
+        // từ -> (ID sản phẩm -> trọng số của từ trong sản phẩm)
+        private final TreeMap<String, Map<Integer, Double>> postings = new TreeMap<>();
+        private final Map<Integer, IndexedProduct> documents = new HashMap<>();
+        // cụm từ của tên + SUGGEST_KEY_SEPARATOR + ID -> ID sản phẩm (sắp xếp để tìm theo tiền tố)
+        private final TreeMap<String, Integer> suggestKeys = new TreeMap<>();
+        // danh mục -> số sản phẩm không bị ẩn
+        private final Map<String, Integer> categoryCounts = new HashMap<>();
+        // tiền tố ngắn -> gợi ý đã tính (được ghi khi đang giữ read lock nên phải là ConcurrentHashMap)
+        private final Map<String, List<IndexedProduct>> suggestCache = new ConcurrentHashMap<>();
+
+        // Thay (hoặc xóa) sản phẩm trong chỉ mục
+        private void apply(IndexedProduct change) {
+            suggestCache.clear();
+            IndexedProduct previous = documents.remove(change.getId());
+            if (previous != null) {
+                for (String term : previous.termWeights.keySet()) {
+                    Map<Integer, Double> postingList = postings.get(term);
+                    if (postingList != null) {
+                        postingList.remove(change.getId());
+                        if (postingList.isEmpty()) {
+                            postings.remove(term);
+                        }
+                    }
+                }
+                for (String phrase : previous.suggestPhrases) {
+                    suggestKeys.remove(phrase + SUGGEST_KEY_SEPARATOR + previous.getId());
+                }
+                if (previous.isVisible() && previous.getCategory() != null) {
+                    categoryCounts.computeIfPresent(previous.getCategory(), (category, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+            if (!change.removed) {
+                put(change);
+            }
+        }
+
+        private void put(IndexedProduct doc) {
+            documents.put(doc.getId(), doc);
+            for (Map.Entry<String, Double> term : doc.termWeights.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(doc.getId(), term.getValue());
+            }
+            for (String phrase : doc.suggestPhrases) {
+                suggestKeys.put(phrase + SUGGEST_KEY_SEPARATOR + doc.getId(), doc.getId());
+            }
+            if (doc.isVisible() && doc.getCategory() != null) {
+                categoryCounts.merge(doc.getCategory(), 1, Integer::sum);
+            }
+        }
+    }
+
+    // Xây dựng lại toàn bộ chỉ mục từ database khi ứng dụng khởi động xong
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIndex() {
+        int indexed = rebuild();
+        System.out.println("Product search index built: " + indexed + " products");
+    }
+
+    // Xây dựng lại toàn bộ chỉ mục, đọc sản phẩm theo từng nhóm ID
+    public int rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndexData newData = new IndexData();
+        try {
+            Integer afterId = 0;
+            while (true) {
+                Integer lastId = afterId;
+                List<IndexedProduct> chunk = transactionTemplate.execute(status -> {
+                    List<Integer> ids = productRepo.findIdsAfter(lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+                    List<IndexedProduct> docs = new ArrayList<>();
+                    for (Product product : productRepo.findAllById(ids)) {
+                        docs.add(toDocument(product));
+                    }
+                    return docs;
+                });
+                if (chunk == null || chunk.isEmpty()) {
+                    break;
+                }
+                for (IndexedProduct doc : chunk) {
+                    newData.put(doc);
+                    afterId = Math.max(afterId, doc.getId());
+                }
+                if (chunk.size() < REBUILD_CHUNK_SIZE) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Rebuild lỗi giữa chừng thì giữ nguyên chỉ mục cũ
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Áp dụng lại các thay đổi đã commit trong lúc rebuild (có thể chưa có trong dữ liệu vừa đọc)
+            for (IndexedProduct change : pendingChanges) {
+                newData.apply(change);
+            }
+            pendingChanges = null;
+            data = newData;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return newData.documents.size();
+    }
+
+    // Đánh chỉ mục lại sản phẩm sau khi transaction hiện tại commit
+    // (đọc dữ liệu ngay để collection lazy được load trong transaction)
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        IndexedProduct doc = toDocument(product);
+        TransactionUtils.afterCommit(() -> applyChange(doc));
+    }
+
+    // Cập nhật trạng thái sản phẩm trong chỉ mục sau khi transaction hiện tại commit
+    // (dùng khi chỉ tồn kho/trạng thái thay đổi, ví dụ khi đặt hàng - không cần đọc lại nội dung sản phẩm)
+    public void updateStatus(Integer productId, ProductStatus status) {
+        if (productId == null || status == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                IndexedProduct current = data.documents.get(productId);
+                if (current != null && current.getStatus() != status) {
+                    applyChange(current.with(status, current.getPopularity()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Cập nhật trạng thái và giá thực tế trong chỉ mục sau khi transaction hiện tại commit
+    // (dùng khi cập nhật tồn kho/giá hàng loạt - nội dung sản phẩm không đổi)
+    public void updateStatusAndPrice(Integer productId, ProductStatus status, Integer effectivePrice) {
+        if (productId == null || status == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                IndexedProduct current = data.documents.get(productId);
+                if (current != null && (current.getStatus() != status || !Objects.equals(current.getEffectivePrice(), effectivePrice))) {
+                    applyChange(current.with(status, effectivePrice, current.getPopularity()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Xóa sản phẩm khỏi chỉ mục sau khi transaction hiện tại commit
+    public void remove(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        IndexedProduct removal = new IndexedProduct(productId, null, null, null, null, 0, Map.of(), List.of(), true);
+        TransactionUtils.afterCommit(() -> applyChange(removal));
+    }
+
+    // Cộng/trừ số lượng đã bán của sản phẩm sau khi transaction hiện tại commit (đơn hàng vào/ra trạng thái hoàn thành)
+    public void addPopularity(Integer productId, int quantity) {
+        if (productId == null || quantity == 0) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                IndexedProduct current = data.documents.get(productId);
+                if (current != null) {
+                    applyChange(current.with(current.getStatus(), Math.max(0, current.getPopularity() + quantity)));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Gán lại số lượng đã bán của tất cả sản phẩm sau khi transaction hiện tại commit (khi tính lại bộ đếm bán hàng)
+    public void resetPopularity(Map<Integer, Integer> soldQuantityByProduct) {
+        Map<Integer, Integer> soldQuantities = new HashMap<>(soldQuantityByProduct);
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (IndexedProduct current : new ArrayList<>(data.documents.values())) {
+                    int popularity = soldQuantities.getOrDefault(current.getId(), 0);
+                    if (current.getPopularity() != popularity) {
+                        applyChange(current.with(current.getStatus(), popularity));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Tìm kiếm, trả về ID sản phẩm theo thứ tự điểm giảm dần.
+    // Tất cả các từ trong query phải khớp (AND); sản phẩm HIDDEN bị bỏ qua nếu includeHidden = false
+    public List<Integer> search(String query, boolean includeHidden) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTextUtils.tokenize(query)));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int totalDocuments = data.documents.size();
+            Map<Integer, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean allowPrefix = i == terms.size() - 1;
+                Map<Integer, Double> termScores = scoreTerm(terms.get(i), allowPrefix, totalDocuments);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Giữ lại sản phẩm khớp cả các từ trước đó
+                    Map<Integer, Double> merged = new HashMap<>();
+                    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                        Double termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            merged.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            Map<Integer, Double> finalScores = scores;
+            return finalScores.keySet().stream()
+                .filter(id -> includeHidden || data.documents.get(id).isVisible())
+                .sorted(Comparator.comparing((Integer id) -> finalScores.get(id)).reversed()
+                    .thenComparing(Comparator.naturalOrder()))
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Gợi ý sản phẩm có tên chứa cụm từ bắt đầu bằng prefix (tính từ đầu một từ trong tên),
+    // không gồm sản phẩm HIDDEN, xếp theo số lượng đã bán giảm dần
+    public List<IndexedProduct> suggestProducts(String prefix, int limit) {
+        String phrase = String.join(" ", SearchTextUtils.tokenize(prefix));
+        if (phrase.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (phrase.length() <= SUGGEST_CACHE_MAX_PREFIX_LENGTH && limit <= SUGGEST_CACHE_LIMIT) {
+                List<IndexedProduct> cached = data.suggestCache.computeIfAbsent(phrase,
+                    key -> topSuggestions(key, SUGGEST_CACHE_LIMIT));
+                return new ArrayList<>(cached.subList(0, Math.min(limit, cached.size())));
+            }
+            return topSuggestions(phrase, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // limit sản phẩm phổ biến nhất có tên chứa cụm từ bắt đầu bằng phrase (phải giữ read lock khi gọi)
+    private List<IndexedProduct> topSuggestions(String phrase, int limit) {
+        // Giữ limit sản phẩm phổ biến nhất bằng min-heap (phần tử đầu là sản phẩm kém nhất đang giữ)
+        Comparator<IndexedProduct> ranking = Comparator.comparingInt(IndexedProduct::getPopularity)
+            .thenComparing(IndexedProduct::getId, Comparator.reverseOrder());
+        PriorityQueue<IndexedProduct> best = new PriorityQueue<>(limit + 1, ranking);
+        Set<Integer> seen = new HashSet<>();
+        for (Integer id : data.suggestKeys.subMap(phrase, true, phrase + Character.MAX_VALUE, false).values()) {
+            IndexedProduct doc = data.documents.get(id);
+            if (doc == null || !doc.isVisible() || !seen.add(id)) {
+                continue;
+            }
+            best.add(doc);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<IndexedProduct> result = new ArrayList<>(best);
+        result.sort(ranking.reversed());
+        return result;
+    }
+
+    // Gợi ý danh mục có tên (đã bỏ dấu) bắt đầu bằng prefix, xếp theo số sản phẩm giảm dần
+    public List<String> suggestCategories(String prefix, int limit) {
+        String phrase = String.join(" ", SearchTextUtils.tokenize(prefix));
+        if (phrase.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return data.categoryCounts.entrySet().stream()
+                .filter(entry -> String.join(" ", SearchTextUtils.tokenize(entry.getKey())).startsWith(phrase))
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lấy thông tin sản phẩm trong chỉ mục (null nếu không có)
+    public IndexedProduct getDocument(Integer productId) {
+        lock.readLock().lock();
+        try {
+            return data.documents.get(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Duyệt tất cả sản phẩm trong chỉ mục (giữ read lock trong lúc duyệt, action không được ghi vào chỉ mục)
+    public void forEachDocument(Consumer<IndexedProduct> action) {
+        lock.readLock().lock();
+        try {
+            data.documents.values().forEach(action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Số sản phẩm đang có trong chỉ mục
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Điểm của một từ trong query cho từng sản phẩm khớp.
+    // Nếu khớp nhiều từ trong chỉ mục (theo tiền tố), lấy điểm cao nhất
+    private Map<Integer, Double> scoreTerm(String term, boolean allowPrefix, int totalDocuments) {
+        NavigableMap<String, Map<Integer, Double>> matches = allowPrefix
+            ? data.postings.subMap(term, true, term + Character.MAX_VALUE, false)
+            : data.postings.subMap(term, true, term, true);
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Double>> match : matches.entrySet()) {
+            Map<Integer, Double> postingList = match.getValue();
+            double idf = Math.log(1.0 + (double) totalDocuments / postingList.size());
+            double factor = match.getKey().equals(term) ? 1.0 : PREFIX_MATCH_FACTOR;
+            for (Map.Entry<Integer, Double> posting : postingList.entrySet()) {
+                double score = posting.getValue() * idf * factor;
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    // Áp dụng thay đổi vào chỉ mục hiện tại (và ghi lại nếu đang rebuild)
+    private void applyChange(IndexedProduct change) {
+        lock.writeLock().lock();
+        try {
+            data.apply(change);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Tách từ của các trường sản phẩm và cộng dồn trọng số theo trường
+    private static IndexedProduct toDocument(Product product) {
+        Map<String, Double> termWeights = new HashMap<>();
+        addTerms(termWeights, product.getName(), NAME_WEIGHT);
+        addTerms(termWeights, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (product.getDetails() != null) {
+            for (String detail : product.getDetails()) {
+                addTerms(termWeights, detail, DETAIL_WEIGHT);
+            }
+        }
+        Integer effectivePrice = product.getSalePrice() != null ? product.getSalePrice() : product.getPrice();
+        int popularity = product.getSoldQuantity() != null ? product.getSoldQuantity() : 0;
+        return new IndexedProduct(product.getId(), product.getName(), product.getCategory(), product.getStatus(),
+            effectivePrice, popularity, termWeights, suggestPhrases(product.getName()), false);
+    }
+
+    // Các cụm từ của tên bắt đầu từ từng từ ("ao vest den" -> "ao vest den", "vest den", "den")
+    // để gợi ý khớp cả khi người dùng gõ từ giữa tên
+    private static List<String> suggestPhrases(String name) {
+        List<String> words = SearchTextUtils.tokenize(name);
+        List<String> phrases = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            phrases.add(String.join(" ", words.subList(i, words.size())));
+        }
+        return phrases;
+    }
+
+    private static void addTerms(Map<String, Double> termWeights, String text, double weight) {
+        for (String term : SearchTextUtils.tokenize(text)) {
+            termWeights.merge(term, weight, Double::sum);
+        }
+    }
+}
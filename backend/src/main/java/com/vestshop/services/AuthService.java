@@ -9,13 +9,13 @@ import com.vestshop.models.UserModel;
 import com.vestshop.models.UpdateUserModel;
 import com.vestshop.enums.UserStatus;
 import com.vestshop.enums.Role;
+import com.vestshop.mappers.UserMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.modelmapper.ModelMapper;
 
 
 import java.time.LocalDateTime;
@@ -36,8 +36,6 @@ public class AuthService {
     AuthenticationManager authenticationManager;
     @Autowired
     JwtConfig jwtConfig;
-    @Autowired
-    ModelMapper modelMapper;
 
     private String formatExpirationTime(Long expirationMillis) {
         LocalDateTime expirationTime = LocalDateTime.now().plusSeconds(expirationMillis / 1000); // Chuyển đổi từ milliseconds sang seconds
@@ -263,7 +261,7 @@ public class AuthService {
 
         User savedUser = userRepository.saveAndFlush(user);
         
-        return modelMapper.map(savedUser, UserModel.class);
+        return UserMapper.toModel(savedUser);
     }
 
     // Cập nhật thông tin người dùng bởi chính user đó
@@ -352,7 +350,7 @@ public class AuthService {
 
         User savedUser = userRepository.saveAndFlush(user);
         
-        return modelMapper.map(savedUser, UserModel.class);
+        return UserMapper.toModel(savedUser);
     }
     
 }
@@ -19,5 +19,7 @@ public interface ContactService {
     Integer getUnreadCount();
     // Lấy danh sách messages có phân trang (cho admin)
     PageResponseModel<ContactMessageModel> getAllMessagesPaginated(int page, int size);
+    // Lấy danh sách tin nhắn liên hệ theo cursor (keyset pagination, không đếm tổng số bản ghi)
+    PageResponseModel<ContactMessageModel> getAllMessagesByCursor(String cursor, int size);
 }
 
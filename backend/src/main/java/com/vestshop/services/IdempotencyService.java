@@ -0,0 +1,27 @@
+package com.vestshop.services;
+
+import com.vestshop.cache.IdempotencyStore.StoredOrder;
+import com.vestshop.models.OrderModel;
+
+import java.util.Map;
+
+public interface IdempotencyService {
+    // Khóa lưu trữ cho Idempotency-Key của khách (ném lỗi nếu key không hợp lệ)
+    String resolveKey(String username, String idempotencyKey);
+
+    // Hash nội dung request tạo đơn
+    String hashRequest(OrderModel orderModel);
+
+    // Kết quả đã lưu của key (bộ nhớ trước, sau đó DB), null nếu chưa có hoặc đã hết hạn
+    StoredOrder findOrder(String key);
+
+    // Đánh dấu key đang được dùng (trong transaction tạo đơn): request trùng chạy song song chờ ở khóa chính
+    // rồi lỗi khi transaction này commit
+    void begin(String key, String requestHash);
+
+    // Ghi kết quả của key (trong transaction tạo đơn), đưa vào bộ nhớ sau khi commit
+    void complete(String key, String requestHash, OrderModel order);
+
+    // Thống kê kết quả đang giữ trong bộ nhớ
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,18 @@
+package com.vestshop.services;
+
+import com.vestshop.cache.CachedImage;
+import com.vestshop.models.ImageVariantModel;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface ImageService {
+    // Chuẩn hóa yêu cầu ảnh: kích thước làm tròn lên kích thước được hỗ trợ, định dạng theo tham số hoặc header Accept
+    ImageVariantModel resolveVariant(String src, Integer width, String format, String accept);
+
+    // Lấy ảnh đã resize (từ cache trên đĩa, hoặc được tạo trên thread pool riêng nếu chưa có)
+    CompletableFuture<CachedImage> getImage(ImageVariantModel variant);
+
+    // Thống kê cache ảnh
+    Map<String, Object> getStats();
+}
@@ -5,6 +5,7 @@ import com.vestshop.models.ContactMessageModel;
 import com.vestshop.models.CreateContactMessageModel;
 import com.vestshop.repository.ContactMessageRepository;
 import com.vestshop.services.ContactService;
+import com.vestshop.utils.CursorUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -12,11 +13,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.modelmapper.ModelMapper;
 
 import java.util.List;
 import java.util.stream.Collectors;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.mappers.ContactMessageMapper;
 
 @Service
 public class ContactServiceImp implements ContactService {
@@ -24,8 +25,6 @@ public class ContactServiceImp implements ContactService {
     @Autowired
     private ContactMessageRepository contactMessageRepository;
 
-    @Autowired
-    private ModelMapper modelMapper;
 
     // Tạo tin nhắn liên hệ mới
     @Override
@@ -77,7 +76,7 @@ public class ContactServiceImp implements ContactService {
 
     // Chuyển đổi tin nhắn liên hệ từ entity sang model
     private ContactMessageModel convertToModel(ContactMessage message) {
-        return modelMapper.map(message, ContactMessageModel.class);
+        return ContactMessageMapper.toModel(message);
     }
     
     // Lấy tất cả tin nhắn liên hệ có phân trang
@@ -107,5 +106,44 @@ public class ContactServiceImp implements ContactService {
         
         return response;
     }
+    
+    // Lấy tin nhắn liên hệ theo cursor (keyset pagination theo ngày tạo giảm dần)
+    @Override
+    public PageResponseModel<ContactMessageModel> getAllMessagesByCursor(String cursor, int size) {
+        if (size < 1) size = 10; // Kích thước mặc định là 10
+        
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, "createdAt");
+        
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ContactMessage> messages = after == null
+            ? contactMessageRepository.findAllByOrderByCreatedAtDescIdDesc(limit)
+            : contactMessageRepository.findPageAfter(after.getSortValueAsDateTime(), after.getId(), limit);
+        boolean hasNext = messages.size() > size;
+        if (hasNext) {
+            messages = messages.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            ContactMessage lastMessage = messages.get(messages.size() - 1);
+            nextCursor = CursorUtils.encode("createdAt", lastMessage.getCreatedAt(), lastMessage.getId());
+        }
+        
+        List<ContactMessageModel> content = messages.stream()
+            .map(message -> convertToModel(message))
+            .collect(Collectors.toList());
+        
+        // Tạo PageResponse (chế độ cursor không đếm tổng số bản ghi)
+        PageResponseModel<ContactMessageModel> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(0);
+        response.setSize(size);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(after == null);
+        response.setLast(nextCursor == null);
+        response.setNextCursor(nextCursor);
+        
+        return response;
+    }
 }
-
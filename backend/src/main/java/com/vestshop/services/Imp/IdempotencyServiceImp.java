@@ -0,0 +1,143 @@
+package com.vestshop.services.Imp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestshop.cache.IdempotencyStore;
+import com.vestshop.cache.IdempotencyStore.StoredOrder;
+import com.vestshop.config.IdempotencyConfig;
+import com.vestshop.entity.OrderIdempotencyKey;
+import com.vestshop.models.OrderModel;
+import com.vestshop.repository.OrderIdempotencyKeyRepository;
+import com.vestshop.services.IdempotencyService;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Idempotency-Key cho POST /api/orders: request gửi lại (cùng khách, cùng key, cùng nội dung) nhận lại đơn đã tạo
+// mà không chạy lại transaction trừ tồn kho. Kết quả được đọc từ bộ nhớ (IdempotencyStore), không có thì đọc
+// từ bảng order_idempotency_keys (sau khi khởi động lại, hoặc mục đã bị đẩy khỏi bộ nhớ)
+@Service
+public class IdempotencyServiceImp implements IdempotencyService {
+
+    @Autowired
+    private OrderIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyConfig idempotencyConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong databaseHits = new AtomicLong();
+
+    @Override
+    public String resolveKey(String username, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > idempotencyConfig.getMaxKeyLength()) {
+            throw new RuntimeException("Idempotency-Key không hợp lệ: phải có từ 1 đến " + idempotencyConfig.getMaxKeyLength() + " ký tự");
+        }
+        return sha256(username + "\n" + idempotencyKey);
+    }
+
+    @Override
+    public String hashRequest(OrderModel orderModel) {
+        try {
+            return sha256(objectMapper.writeValueAsString(orderModel));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể đọc nội dung đơn hàng: " + e.getMessage());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StoredOrder findOrder(String key) {
+        long now = System.currentTimeMillis();
+        StoredOrder stored = idempotencyStore.get(key, now);
+        if (stored != null) {
+            return stored;
+        }
+        OrderIdempotencyKey record = idempotencyKeyRepository.findById(key).orElse(null);
+        if (record == null || record.getResponseBody() == null) {
+            return null;
+        }
+        long expiresAt = record.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (expiresAt <= now) {
+            return null;
+        }
+        try {
+            stored = new StoredOrder(record.getRequestHash(), objectMapper.readValue(record.getResponseBody(), OrderModel.class), expiresAt);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể đọc kết quả đã lưu của Idempotency-Key: " + e.getMessage());
+        }
+        databaseHits.incrementAndGet();
+        idempotencyStore.put(key, stored);
+        return stored;
+    }
+
+    @Override
+    @Transactional
+    public void begin(String key, String requestHash) {
+        // Không dùng save/merge: bản ghi hết hạn vừa đọc ở findOrder có thể còn trong persistence context (open-in-view)
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyKeyRepository.deleteExpiredById(key, now);
+        idempotencyKeyRepository.insertKey(key, requestHash, now.plusHours(idempotencyConfig.getTtlHours()), now);
+    }
+
+    @Override
+    @Transactional
+    public void complete(String key, String requestHash, OrderModel order) {
+        String responseBody;
+        try {
+            responseBody = objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể lưu kết quả của Idempotency-Key: " + e.getMessage());
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(idempotencyConfig.getTtlHours());
+        if (idempotencyKeyRepository.completeKey(key, order.getId(), responseBody, expiresAt) == 0) {
+            throw new RuntimeException("Idempotency-Key không tồn tại");
+        }
+        StoredOrder stored = new StoredOrder(requestHash, order, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        TransactionUtils.afterCommit(() -> idempotencyStore.put(key, stored));
+    }
+
+    // Xóa các key đã hết hạn (DB và bộ nhớ)
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        idempotencyStore.removeExpired(System.currentTimeMillis());
+        if (deleted > 0) {
+            System.out.println("Purged " + deleted + " expired idempotency keys");
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = idempotencyStore.getStats();
+        stats.put("databaseHits", databaseHits.get());
+        return stats;
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
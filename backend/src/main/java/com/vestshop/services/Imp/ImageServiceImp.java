@@ -0,0 +1,318 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.cache.CachedImage;
+import com.vestshop.cache.DiskImageCache;
+import com.vestshop.config.ImageConfig;
+import com.vestshop.models.ImageVariantModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.ImageService;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Tạo ảnh thu nhỏ (resize + nén lại) cho ảnh sản phẩm:
+// - chỉ nhận ảnh gốc là ảnh của một sản phẩm (không tải URL tùy ý)
+// - kết quả lưu vào DiskImageCache, request sau đọc thẳng từ đĩa
+// - việc tạo ảnh chạy trên thread pool có hàng đợi giới hạn, đầy thì từ chối ngay (503)
+//   để một đợt nhiều sản phẩm mới không chiếm hết thread xử lý API
+@Service
+public class ImageServiceImp implements ImageService {
+
+    // Đổi khi thay đổi cách resize/nén để các ảnh cũ trong cache không còn được dùng
+    private static final String PIPELINE_VERSION = "1";
+
+    @Autowired
+    private DiskImageCache diskImageCache;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    private final ImageConfig config;
+    private final List<Integer> widths;
+    private final boolean webpSupported;
+    private final ThreadPoolExecutor executor;
+    private final HttpClient httpClient;
+    // Các ảnh đang được tạo (nhiều request cùng ảnh chỉ tạo một lần)
+    private final Map<String, CompletableFuture<CachedImage>> inProgress = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImageServiceImp(ImageConfig config) {
+        this.config = config;
+        this.widths = config.getWidths().stream().sorted().toList();
+        // ImageIO không có sẵn encoder WebP: chỉ tạo WebP khi có plugin ImageIO hỗ trợ trên classpath
+        this.webpSupported = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(config.getWorkerThreads(), config.getWorkerThreads(),
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getQueueCapacity()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "image-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(config.getFetchTimeoutMs()))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Chuẩn hóa yêu cầu ảnh
+    @Override
+    public ImageVariantModel resolveVariant(String src, Integer width, String format, String accept) {
+        if (!StringUtils.hasText(src) || !(src.startsWith("http://") || src.startsWith("https://") || src.startsWith("/"))) {
+            throw new RuntimeException("Đường dẫn ảnh không hợp lệ");
+        }
+        // Làm tròn lên kích thước được hỗ trợ gần nhất để giới hạn số biến thể của mỗi ảnh
+        int resolvedWidth = widths.get(widths.size() - 1);
+        if (width != null) {
+            for (Integer candidate : widths) {
+                if (candidate >= width) {
+                    resolvedWidth = candidate;
+                    break;
+                }
+            }
+        }
+        boolean negotiated = false;
+        String resolvedFormat;
+        if (format == null || format.isEmpty() || format.equalsIgnoreCase("auto")) {
+            negotiated = true;
+            resolvedFormat = webpSupported && accept != null && accept.contains("image/webp") ? "webp" : "jpg";
+        } else if (format.equalsIgnoreCase("webp")) {
+            resolvedFormat = webpSupported ? "webp" : "jpg";
+        } else if (format.equalsIgnoreCase("jpg") || format.equalsIgnoreCase("jpeg")) {
+            resolvedFormat = "jpg";
+        } else if (format.equalsIgnoreCase("png")) {
+            resolvedFormat = "png";
+        } else {
+            throw new RuntimeException("Định dạng ảnh không hợp lệ (webp, jpg, png)");
+        }
+        String key = sha256(PIPELINE_VERSION + "\n" + src + "\n" + resolvedWidth + "\n" + resolvedFormat);
+        return new ImageVariantModel(src, resolvedWidth, resolvedFormat, key, negotiated);
+    }
+
+    // Lấy ảnh từ cache, hoặc đưa vào hàng đợi tạo ảnh (ném RejectedExecutionException nếu hàng đợi đầy)
+    @Override
+    public CompletableFuture<CachedImage> getImage(ImageVariantModel variant) {
+        CachedImage cached = diskImageCache.get(variant.getKey());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<CachedImage> future = new CompletableFuture<>();
+        CompletableFuture<CachedImage> existing = inProgress.putIfAbsent(variant.getKey(), future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(generate(variant));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inProgress.remove(variant.getKey(), future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(variant.getKey(), future);
+            throw e;
+        }
+        return future;
+    }
+
+    // Thống kê cache ảnh và hàng đợi tạo ảnh
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(diskImageCache.getStats());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("queuedJobs", executor.getQueue().size());
+        stats.put("webpSupported", webpSupported);
+        return stats;
+    }
+
+    // Tạo ảnh (chạy trên thread của image-worker)
+    private CachedImage generate(ImageVariantModel variant) throws IOException {
+        // Có thể đã được tạo bởi request trước đó trong lúc chờ hàng đợi
+        CachedImage cached = diskImageCache.get(variant.getKey());
+        if (cached != null) {
+            return cached;
+        }
+        if (productRepo.countImageUrl(variant.getSrc()) == 0) {
+            throw new RuntimeException("Ảnh không tồn tại");
+        }
+        BufferedImage source = decode(loadSource(variant.getSrc()));
+        BufferedImage resized = resize(source, variant.getWidth(), !variant.getFormat().equals("jpg"));
+        CachedImage image = new CachedImage(variant.getKey(), DiskImageCache.contentTypeOf(variant.getFormat()),
+            encode(resized, variant.getFormat()));
+        diskImageCache.put(image, variant.getFormat());
+        return image;
+    }
+
+    // Đọc ảnh gốc: URL http(s) hoặc file tĩnh trong classpath:/static
+    private byte[] loadSource(String src) throws IOException {
+        if (src.startsWith("/")) {
+            String path = src.split("[?#]", 2)[0];
+            if (path.contains("..")) {
+                throw new RuntimeException("Đường dẫn ảnh không hợp lệ");
+            }
+            ClassPathResource resource = new ClassPathResource("static" + path);
+            if (!resource.exists()) {
+                throw new RuntimeException("Ảnh không tồn tại");
+            }
+            try (InputStream input = resource.getInputStream()) {
+                return readLimited(input);
+            }
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(src))
+            .timeout(Duration.ofMillis(config.getFetchTimeoutMs()))
+            .GET()
+            .build();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream input = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new RuntimeException("Không tải được ảnh gốc (HTTP " + response.statusCode() + ")");
+                }
+                return readLimited(input);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Đã hủy tải ảnh gốc", e);
+        }
+    }
+
+    private byte[] readLimited(InputStream input) throws IOException {
+        byte[] bytes = input.readNBytes(config.getMaxSourceBytes() + 1);
+        if (bytes.length > config.getMaxSourceBytes()) {
+            throw new RuntimeException("Ảnh gốc quá lớn");
+        }
+        return bytes;
+    }
+
+    // Giải mã ảnh gốc, kiểm tra kích thước trước khi giải mã toàn bộ
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new RuntimeException("Định dạng ảnh gốc không được hỗ trợ");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > config.getMaxSourcePixels()) {
+                    throw new RuntimeException("Ảnh gốc quá lớn");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Thu nhỏ ảnh về chiều rộng width (không phóng to), giữ tỉ lệ.
+    // Giảm một nửa nhiều lần rồi mới về kích thước cuối để ảnh không bị răng cưa khi thu nhỏ nhiều
+    private BufferedImage resize(BufferedImage source, int width, boolean keepAlpha) {
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        int type = keepAlpha && source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        do {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+            if (current != source && stepWidth == current.getWidth()) {
+                break;
+            }
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                if (type == BufferedImage.TYPE_INT_RGB) {
+                    // Nền trắng cho phần trong suốt khi chuyển sang JPEG
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, stepWidth, stepHeight);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() > targetWidth);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.equals("jpg") ? "jpeg" : format);
+        if (!writers.hasNext()) {
+            throw new IOException("Không có encoder cho định dạng " + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.equals("jpg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(config.getJpegQuality());
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,33 +1,44 @@
 package com.vestshop.services.Imp;
 
+import com.vestshop.cache.CatalogCache;
+import com.vestshop.services.IdempotencyService;
 import com.vestshop.services.OrderService;
+import com.vestshop.services.ReservationService;
+import com.vestshop.services.StockService;
 import com.vestshop.models.OrderModel;
-import com.vestshop.models.OrderItemModel;
 import com.vestshop.entity.Order;
 import com.vestshop.entity.OrderItem;
 import com.vestshop.entity.Product;
 import com.vestshop.enums.OrderStatus;
 import com.vestshop.enums.PaymentMethod;
-import com.vestshop.enums.ProductStatus;
 import com.vestshop.repository.OrderRepository;
 import com.vestshop.repository.ProductRepository;
+import com.vestshop.search.CoPurchaseIndex;
+import com.vestshop.search.ProductRankingScores;
+import com.vestshop.search.ProductSearchIndex;
+import com.vestshop.utils.CursorUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.modelmapper.ModelMapper;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.mappers.OrderMapper;
 
 @Service
 public class OrderServiceImp implements OrderService {
@@ -38,13 +49,44 @@ public class OrderServiceImp implements OrderService {
     @Autowired
     private ProductRepository productRepository;
     
+    
+    @Autowired
+    private CatalogCache catalogCache;
+    
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+    
+    @Autowired
+    private ProductRankingScores productRankingScores;
+    
+    @Autowired
+    private StockService stockService;
+    
     @Autowired
-    private ModelMapper modelMapper;
+    private ReservationService reservationService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
     
     // Tạo đơn hàng mới
     @Override
     @Transactional
-    public OrderModel createOrder(OrderModel orderModel) {
+    public OrderModel createOrder(OrderModel orderModel, String username) {
+        return createOrder(orderModel, username, null, null);
+    }
+    
+    // Tạo đơn hàng mới theo Idempotency-Key
+    @Override
+    @Transactional
+    public OrderModel createOrder(OrderModel orderModel, String username, String idempotencyKey, String requestHash) {
+        // Giữ key trước khi trừ tồn kho: request trùng chạy song song chờ ở đây và lỗi khi đơn này commit
+        if (idempotencyKey != null) {
+            idempotencyService.begin(idempotencyKey, requestHash);
+        }
+        
         // Chuẩn hóa email thành lowercase để đảm bảo tính nhất quán
         String normalizedEmail = orderModel.getEmail() != null ? 
             orderModel.getEmail().trim().toLowerCase() : null;
@@ -69,41 +111,46 @@ public class OrderServiceImp implements OrderService {
         
         // Tạo các item trong đơn hàng
         if (orderModel.getItems() != null && !orderModel.getItems().isEmpty()) {
-            List<OrderItem> orderItems = orderModel.getItems().stream().map(itemModel -> {
-                Product product = productRepository.findById(itemModel.getProductId())
-                        .orElseThrow(() -> new RuntimeException("Sản phẩm không tồn tại: " + itemModel.getProductId()));
-
-                        
-                // Kiểm tra tồn kho của sản phẩm
-                if (product.getStock() < itemModel.getQuantity()) {
-                    throw new RuntimeException("Sản phẩm '" + product.getName() + "' không đủ số lượng. Còn lại: " + product.getStock() + ", Yêu cầu: " + itemModel.getQuantity());
+            // Gom số lượng theo sản phẩm (TreeMap: ID tăng dần) và tải tất cả sản phẩm của đơn bằng một query
+            SortedMap<Integer, Integer> quantityByProduct = new TreeMap<>();
+            orderModel.getItems().forEach(itemModel -> quantityByProduct.merge(itemModel.getProductId(), itemModel.getQuantity(), Integer::sum));
+            Map<Integer, Product> productsById = productRepository.findAllById(quantityByProduct.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+            for (Integer productId : quantityByProduct.keySet()) {
+                if (!productsById.containsKey(productId)) {
+                    throw new RuntimeException("Sản phẩm không tồn tại: " + productId);
                 }
-                
-                OrderItem orderItem = OrderItem.builder()
+            }
+            
+            // Kiểm tra và giảm tồn kho cho cả đơn (một JDBC batch).
+            // Đơn có lượt giữ hàng: phần đã giữ đã được trừ từ lúc giữ, chỉ trừ phần đặt thêm và cộng lại phần giữ nhưng không đặt
+            SortedMap<Integer, Integer> deltaByProduct = new TreeMap<>(quantityByProduct);
+            if (orderModel.getReservationId() != null && !orderModel.getReservationId().isBlank()) {
+                reservationService.consumeReservation(username, orderModel.getReservationId())
+                    .forEach((productId, held) -> deltaByProduct.merge(productId, -held, Integer::sum));
+                deltaByProduct.values().removeIf(delta -> delta == 0);
+            }
+            stockService.adjustStocks(deltaByProduct);
+            
+            List<OrderItem> orderItems = orderModel.getItems().stream().map(itemModel -> OrderItem.builder()
                     .order(savedOrder)
-                    .product(product)
+                    .product(productsById.get(itemModel.getProductId()))
                     .size(itemModel.getSize())
                     .quantity(itemModel.getQuantity())
                     .price(itemModel.getPrice())
-                    .build();
-                
-                // Giảm số lượng tồn kho của sản phẩm
-                int newStock = product.getStock() - itemModel.getQuantity();
-                product.setStock(newStock);
-                
-                // Tự động chuyển trạng thái dựa trên số tồn kho của sản phẩm
-                if (newStock <= 0) {
-                    product.setStatus(ProductStatus.OUT_OF_STOCK);
-                }
-                
-                productRepository.save(product);
-                
-                return orderItem;
-            }).collect(Collectors.toList());
+                    .build()
+            ).collect(Collectors.toList());
             
             savedOrder.setItems(orderItems);
             Order createdOrder = orderRepository.save(savedOrder);
-            return convertToModel(createdOrder);
+            
+            // Cộng điểm xu hướng cho các sản phẩm được đặt (theo số lượng)
+            productRankingScores.recordOrder(quantityByProduct, 1, createdOrder.getCreatedAt());
+            OrderModel createdModel = convertToModel(createdOrder);
+            if (idempotencyKey != null) {
+                idempotencyService.complete(idempotencyKey, requestHash, createdModel);
+            }
+            return createdModel;
         }
         
         return null;
@@ -188,6 +235,15 @@ public class OrderServiceImp implements OrderService {
                 .collect(Collectors.toList());
     }
     
+    // Tổng số lượng theo sản phẩm của một đơn hàng (ID tăng dần)
+    private SortedMap<Integer, Integer> quantityByProduct(Order order) {
+        SortedMap<Integer, Integer> quantityByProduct = new TreeMap<>();
+        order.getItems().stream()
+            .filter(item -> item.getProduct() != null)
+            .forEach(item -> quantityByProduct.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum));
+        return quantityByProduct;
+    }
+    
     // Cập nhật trạng thái đơn hàng
     @Override
     @Transactional
@@ -205,20 +261,9 @@ public class OrderServiceImp implements OrderService {
                 && status == OrderStatus.CANCELLED) {
             // Cộng lại tồn kho cho tất cả sản phẩm trong đơn hàng
             if (order.getItems() != null && !order.getItems().isEmpty()) {
-                for (OrderItem item : order.getItems()) {
-                    Product product = item.getProduct();
-                    if (product != null) {
-                        int newStock = product.getStock() + item.getQuantity();
-                        product.setStock(newStock);
-                        
-                        // Nếu đang hết hàng và có stock mới > 0, chuyển về ACTIVE
-                        if (product.getStatus() == ProductStatus.OUT_OF_STOCK && newStock > 0) {
-                            product.setStatus(ProductStatus.ACTIVE);
-                        }
-                        
-                        productRepository.save(product);
-                    }
-                }
+                SortedMap<Integer, Integer> deltaByProduct = new TreeMap<>();
+                quantityByProduct(order).forEach((productId, quantity) -> deltaByProduct.put(productId, -quantity));
+                stockService.adjustStocks(deltaByProduct);
             }
         }
         
@@ -228,32 +273,98 @@ public class OrderServiceImp implements OrderService {
                 && (status == OrderStatus.PENDING || status == OrderStatus.PROCESSING)) {
             // Trừ lại tồn kho cho tất cả sản phẩm trong đơn hàng
             if (order.getItems() != null && !order.getItems().isEmpty()) {
-                for (OrderItem item : order.getItems()) {
-                    Product product = item.getProduct();
-                    if (product != null) {
-                        // Kiểm tra tồn kho trước khi trừ
-                        if (product.getStock() < item.getQuantity()) {
-                            throw new RuntimeException("Sản phẩm '" + product.getName() + "' không đủ số lượng. Còn lại: " + product.getStock() + ", Yêu cầu: " + item.getQuantity());
-                        }
-                        int newStock = product.getStock() - item.getQuantity();
-                        product.setStock(newStock);
-                        
-                        // Tự động chuyển trạng thái dựa trên số tồn kho
-                        if (newStock <= 0) {
-                            product.setStatus(ProductStatus.OUT_OF_STOCK);
-                        }
-                        
-                        productRepository.save(product);
-                    }
-                }
+                stockService.adjustStocks(quantityByProduct(order));
+            }
+        }
+        
+        // Cập nhật bộ đếm bán hàng khi đơn hàng ra khỏi trạng thái COMPLETED, trước khi đổi trạng thái:
+        // updatedAt lúc này vẫn là thời điểm hoàn thành đơn (thời điểm rebuild() dùng cho điểm bán chạy)
+        if (oldStatus == OrderStatus.COMPLETED && status != OrderStatus.COMPLETED) {
+            applySales(order, -1, order.getUpdatedAt());
+        }
+        
+        // Điểm xu hướng không tính đơn đã hủy (giống rebuild): trừ khi đơn bị hủy, cộng lại khi đơn được khôi phục
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            if (oldStatus != OrderStatus.CANCELLED && status == OrderStatus.CANCELLED) {
+                productRankingScores.recordOrder(quantityByProduct(order), -1, order.getCreatedAt());
+            } else if (oldStatus == OrderStatus.CANCELLED && status != OrderStatus.CANCELLED) {
+                productRankingScores.recordOrder(quantityByProduct(order), 1, order.getCreatedAt());
             }
         }
         
         order.setStatus(status);
         Order updatedOrder = orderRepository.save(order);
+        
+        // Đơn hàng vào trạng thái COMPLETED: ghi ngay để @PreUpdate gán updatedAt, dùng làm thời điểm bán
+        if (oldStatus != OrderStatus.COMPLETED && status == OrderStatus.COMPLETED) {
+            orderRepository.flush();
+            applySales(updatedOrder, 1, updatedOrder.getUpdatedAt());
+        }
         return convertToModel(updatedOrder);
     }
     
+    // Admin: Tính lại bộ đếm bán hàng của tất cả sản phẩm từ các đơn hàng đã hoàn thành
+    @Override
+    @Transactional
+    public int rebuildSalesCounters() {
+        productRepository.resetSales();
+        List<Object[]> sales = orderRepository.sumSalesByProductAndOrderStatus(OrderStatus.COMPLETED);
+        Map<Integer, Integer> soldQuantityByProduct = new HashMap<>();
+        for (Object[] row : sales) {
+            Integer productId = (Integer) row[0];
+            int orders = ((Long) row[1]).intValue();
+            int quantity = ((Long) row[2]).intValue();
+            productRepository.addSales(productId, orders, quantity);
+            soldQuantityByProduct.put(productId, quantity);
+        }
+        catalogCache.evictAll();
+        productSearchIndex.resetPopularity(soldQuantityByProduct);
+        return sales.size();
+    }
+    
+    // Admin: Xây dựng lại ma trận mua cùng từ các đơn hàng đã hoàn thành
+    @Override
+    public int rebuildCoPurchaseMatrix() {
+        int orders = coPurchaseIndex.rebuild();
+        // Danh sách "mua cùng" trong cache được tính từ ma trận cũ
+        catalogCache.evictAll();
+        return orders;
+    }
+    
+    // Khởi tạo bộ đếm bán hàng khi khởi động nếu chưa có (đơn hàng hoàn thành có từ trước khi có bộ đếm)
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initSalesCounters() {
+        if (!productRepository.existsByCompletedOrderCountGreaterThan(0)
+                && orderRepository.countByStatus(OrderStatus.COMPLETED) > 0) {
+            int products = rebuildSalesCounters();
+            System.out.println("Rebuilt sales counters for " + products + " products");
+        }
+    }
+    
+    // Cộng (direction = 1) hoặc trừ (direction = -1) số đơn và số lượng đã bán của các sản phẩm trong đơn hàng,
+    // soldAt là thời điểm hoàn thành đơn
+    private void applySales(Order order, int direction, LocalDateTime soldAt) {
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            return;
+        }
+        // Gộp số lượng theo sản phẩm (một sản phẩm có thể có nhiều dòng với size khác nhau)
+        Map<Integer, Integer> quantityByProduct = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct() != null) {
+                quantityByProduct.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        // Cập nhật ma trận mua cùng trước khi xóa cache để danh sách "mua cùng" được tính lại từ dữ liệu mới
+        coPurchaseIndex.applyOrder(order.getId(), quantityByProduct.keySet(), direction);
+        productRankingScores.recordSales(quantityByProduct, direction, soldAt);
+        quantityByProduct.forEach((productId, quantity) -> {
+            productRepository.addSales(productId, direction, direction * quantity);
+            catalogCache.evictProduct(productId);
+            productSearchIndex.addPopularity(productId, direction * quantity);
+        });
+    }
+    
     // Đếm số lượng đơn hàng theo trạng thái
     @Override
     public Integer countOrdersByStatus(OrderStatus status) {
@@ -381,24 +492,7 @@ public class OrderServiceImp implements OrderService {
 
     // Chuyển đổi đơn hàng từ entity sang model
     private OrderModel convertToModel(Order order) {
-        OrderModel model = modelMapper.map(order, OrderModel.class);
-        
-        // Chuyển đổi các item trong đơn hàng
-        if (order.getItems() != null && !order.getItems().isEmpty()) {
-            List<OrderItemModel> itemModels = order.getItems().stream().map(item -> {
-                OrderItemModel itemModel = modelMapper.map(item, OrderItemModel.class);
-                // Set productId và productName từ product entity
-                if (item.getProduct() != null) {
-                    itemModel.setProductId(item.getProduct().getId());
-                    itemModel.setProductName(item.getProduct().getName());
-                }
-                return itemModel;
-            }).collect(Collectors.toList());
-            
-            model.setItems(itemModels);
-        }
-        
-        return model;
+        return OrderMapper.toModel(order);
     }
     
     // Lấy danh sách đơn hàng có phân trang (cho admin)
@@ -435,5 +529,39 @@ public class OrderServiceImp implements OrderService {
         
         return response;
     }
+    
+    // Lấy danh sách đơn hàng theo cursor (cho admin, keyset pagination theo ID)
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<OrderModel> getAllOrdersByCursor(String cursor, int size) {
+        if (size < 1) size = 10; // Kích thước mặc định là 10
+        
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, "id");
+        int afterId = after != null ? after.getId() : 0;
+        
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không
+        List<Order> orders = orderRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size + 1));
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
+        String nextCursor = hasNext ? CursorUtils.encode("id", null, orders.get(orders.size() - 1).getId()) : null;
+        
+        List<OrderModel> content = orders.stream()
+            .map(order -> convertToModel(order))
+            .collect(Collectors.toList());
+        
+        // Tạo PageResponse (chế độ cursor không đếm tổng số bản ghi)
+        PageResponseModel<OrderModel> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(0);
+        response.setSize(size);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(after == null);
+        response.setLast(nextCursor == null);
+        response.setNextCursor(nextCursor);
+        
+        return response;
+    }
 }
-
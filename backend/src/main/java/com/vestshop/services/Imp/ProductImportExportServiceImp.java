@@ -0,0 +1,435 @@
+package com.vestshop.services.Imp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestshop.cache.CatalogCache;
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.mappers.ProductMapper;
+import com.vestshop.models.ImportRowErrorModel;
+import com.vestshop.models.ProductImportResultModel;
+import com.vestshop.models.ProductModel;
+import com.vestshop.search.ProductSearchIndex;
+import com.vestshop.services.ProductImportExportService;
+import com.vestshop.utils.CsvUtils;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Import/export sản phẩm số lượng lớn cho admin:
+// - import đọc từng dòng từ luồng request, kiểm tra hợp lệ như khi tạo sản phẩm qua API,
+//   ghi theo lô bằng JDBC batch (products, product_images, product_details) - mỗi lô một transaction
+// - export đọc bảng theo từng nhóm ID tăng dần và ghi thẳng ra luồng response
+@Service
+public class ProductImportExportServiceImp implements ProductImportExportService {
+
+    // Số sản phẩm trong mỗi lô ghi (một transaction) khi import
+    private static final int IMPORT_BATCH_SIZE = 500;
+    // Số sản phẩm đọc mỗi lần khi export
+    private static final int EXPORT_CHUNK_SIZE = 1000;
+    // Số lỗi theo dòng tối đa được trả về (vẫn đếm tất cả các dòng lỗi)
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    // Phân cách các ảnh/chi tiết trong một ô CSV
+    private static final String LIST_SEPARATOR = "|";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+        "id", "name", "price", "salePrice", "category", "description", "stock", "status", "images", "details");
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("name", "price", "category", "stock");
+
+    private static final String INSERT_PRODUCT_SQL =
+        "INSERT INTO products (name, price, sale_price, effective_price, category, description, stock, primary_image, status, " +
+        "completed_order_count, sold_quantity, trending_score, bestseller_score, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0, 0, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    // Import sản phẩm từ luồng CSV (dòng đầu là tiêu đề) hoặc NDJSON (mỗi dòng một ProductModel)
+    @Override
+    public ProductImportResultModel importProducts(InputStream input, String format) {
+        boolean csv = isCsv(format);
+        ProductImportResultModel result = new ProductImportResultModel();
+        List<ProductModel> batch = new ArrayList<>();
+        List<Long> batchRows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = null;
+            if (csv) {
+                List<String> header = CsvUtils.readRecord(reader);
+                if (header == null) {
+                    return result;
+                }
+                columns = toColumnIndex(header);
+            }
+            long row = 0;
+            while (true) {
+                ProductModel model;
+                String error;
+                if (csv) {
+                    List<String> record = CsvUtils.readRecord(reader);
+                    if (record == null) {
+                        break;
+                    }
+                    if (record.stream().allMatch(String::isBlank)) {
+                        continue;
+                    }
+                    row++;
+                    model = new ProductModel();
+                    error = fromCsv(record, columns, model);
+                } else {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    row++;
+                    model = null;
+                    error = null;
+                    try {
+                        model = objectMapper.readValue(line, ProductModel.class);
+                    } catch (JsonProcessingException e) {
+                        error = "JSON không hợp lệ: " + e.getOriginalMessage();
+                    }
+                }
+                if (error == null) {
+                    error = validate(model);
+                }
+                result.setTotalRows(row);
+                if (error != null) {
+                    addError(result, row, error);
+                    continue;
+                }
+                batch.add(model);
+                batchRows.add(row);
+                if (batch.size() >= IMPORT_BATCH_SIZE) {
+                    insertBatch(batch, batchRows, result);
+                    batch.clear();
+                    batchRows.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                insertBatch(batch, batchRows, result);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Không đọc được dữ liệu import: " + e.getMessage());
+        } finally {
+            // Các lô đã ghi vẫn được giữ lại kể cả khi luồng bị lỗi giữa chừng
+            if (result.getImportedRows() > 0) {
+                catalogCache.evictAll();
+            }
+        }
+        return result;
+    }
+
+    // Export sản phẩm theo thứ tự ID, mỗi lần đọc EXPORT_CHUNK_SIZE sản phẩm (keyset, không dùng OFFSET)
+    @Override
+    public void exportProducts(OutputStream output, String format) throws IOException {
+        boolean csv = isCsv(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (csv) {
+            CsvUtils.writeRecord(writer, CSV_COLUMNS);
+        }
+        int afterId = 0;
+        while (true) {
+            List<ProductModel> chunk = jdbcTemplate.query(
+                "SELECT id, name, price, sale_price, category, description, stock, status FROM products " +
+                "WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> {
+                    ProductModel model = new ProductModel();
+                    model.setId(rs.getInt("id"));
+                    model.setName(rs.getString("name"));
+                    model.setPrice(rs.getInt("price"));
+                    model.setSalePrice(rs.getObject("sale_price", Integer.class));
+                    model.setCategory(rs.getString("category"));
+                    model.setDescription(rs.getString("description"));
+                    model.setStock(rs.getInt("stock"));
+                    model.setStatus(ProductStatus.valueOf(rs.getString("status")));
+                    model.setImages(new ArrayList<>());
+                    model.setDetails(new ArrayList<>());
+                    return model;
+                },
+                afterId, EXPORT_CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            loadCollections(chunk);
+            for (ProductModel model : chunk) {
+                if (csv) {
+                    CsvUtils.writeRecord(writer, Arrays.asList(
+                        String.valueOf(model.getId()), model.getName(), String.valueOf(model.getPrice()),
+                        model.getSalePrice() != null ? String.valueOf(model.getSalePrice()) : null,
+                        model.getCategory(), model.getDescription(), String.valueOf(model.getStock()),
+                        model.getStatus().name(),
+                        String.join(LIST_SEPARATOR, model.getImages()), String.join(LIST_SEPARATOR, model.getDetails())));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(model));
+                    writer.write('\n');
+                }
+            }
+            // Đẩy dữ liệu ra client sau mỗi nhóm để không giữ toàn bộ file trong bộ nhớ
+            writer.flush();
+            afterId = chunk.get(chunk.size() - 1).getId();
+            if (chunk.size() < EXPORT_CHUNK_SIZE) {
+                break;
+            }
+        }
+        writer.flush();
+    }
+
+    // Ghi một lô sản phẩm hợp lệ trong một transaction; nếu lỗi thì cả lô bị rollback và mọi dòng trong lô được báo lỗi
+    private void insertBatch(List<ProductModel> models, List<Long> rows, ProductImportResultModel result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Product> products = models.stream().map(this::toNewProduct).collect(Collectors.toList());
+                insertProducts(products);
+
+                List<Object[]> imageRows = new ArrayList<>();
+                List<Object[]> detailRows = new ArrayList<>();
+                for (Product product : products) {
+                    product.getImages().forEach(image -> imageRows.add(new Object[] { product.getId(), image }));
+                    product.getDetails().forEach(detail -> detailRows.add(new Object[] { product.getId(), detail }));
+                }
+                if (!imageRows.isEmpty()) {
+                    jdbcTemplate.batchUpdate("INSERT INTO product_images (product_id, image_url) VALUES (?, ?)", imageRows);
+                }
+                if (!detailRows.isEmpty()) {
+                    jdbcTemplate.batchUpdate("INSERT INTO product_details (product_id, detail) VALUES (?, ?)", detailRows);
+                }
+                // Đánh chỉ mục tìm kiếm sau khi lô được commit
+                products.forEach(productSearchIndex::index);
+            });
+            result.setImportedRows(result.getImportedRows() + models.size());
+        } catch (RuntimeException e) {
+            String message = "Không ghi được dữ liệu: " + e.getMessage();
+            rows.forEach(row -> addError(result, row, message));
+        }
+    }
+
+    // INSERT các sản phẩm bằng một JDBC batch và gán ID được sinh cho từng sản phẩm (theo thứ tự insert)
+    private void insertProducts(List<Product> products) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_PRODUCT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Product product : products) {
+                    ps.setString(1, product.getName());
+                    ps.setInt(2, product.getPrice());
+                    if (product.getSalePrice() != null) {
+                        ps.setInt(3, product.getSalePrice());
+                    } else {
+                        ps.setNull(3, Types.INTEGER);
+                    }
+                    ps.setInt(4, product.getEffectivePrice());
+                    ps.setString(5, product.getCategory());
+                    ps.setString(6, product.getDescription());
+                    ps.setInt(7, product.getStock());
+                    ps.setString(8, product.getPrimaryImage());
+                    ps.setString(9, product.getStatus().name());
+                    ps.setTimestamp(10, Timestamp.valueOf(now));
+                    ps.setTimestamp(11, Timestamp.valueOf(now));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                int index = 0;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next() && index < products.size()) {
+                        products.get(index++).setId(keys.getInt(1));
+                    }
+                }
+                if (index != products.size()) {
+                    throw new IllegalStateException("Không lấy được ID của sản phẩm vừa tạo");
+                }
+            }
+            return null;
+        });
+        products.forEach(product -> {
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+        });
+    }
+
+    // Tạo entity sản phẩm mới từ dòng import (cùng quy tắc với createProduct)
+    private Product toNewProduct(ProductModel model) {
+        Product product = ProductMapper.toEntity(model);
+        product.setId(null);
+        product.setCompletedOrderCount(0);
+        product.setSoldQuantity(0);
+        // Tự động chuyển trạng thái dựa trên số tồn kho
+        if (product.getStock() == null || product.getStock() <= 0) {
+            product.setStatus(ProductStatus.OUT_OF_STOCK);
+        } else if (product.getStatus() == null) {
+            product.setStatus(ProductStatus.ACTIVE);
+        }
+        product.syncEffectivePrice();
+        product.syncPrimaryImage();
+        return product;
+    }
+
+    // Load ảnh và chi tiết của một nhóm sản phẩm bằng hai query (WHERE product_id IN (...))
+    private void loadCollections(List<ProductModel> chunk) {
+        Map<Integer, ProductModel> byId = new HashMap<>();
+        chunk.forEach(model -> byId.put(model.getId(), model));
+        Map<String, Object> params = Map.of("ids", byId.keySet());
+        namedParameterJdbcTemplate.query("SELECT product_id, image_url FROM product_images WHERE product_id IN (:ids)", params,
+            rs -> { byId.get(rs.getInt(1)).getImages().add(rs.getString(2)); });
+        namedParameterJdbcTemplate.query("SELECT product_id, detail FROM product_details WHERE product_id IN (:ids)", params,
+            rs -> { byId.get(rs.getInt(1)).getDetails().add(rs.getString(2)); });
+    }
+
+    // Đọc một dòng CSV vào model, trả về thông báo lỗi (null nếu đọc được)
+    private String fromCsv(List<String> record, Map<String, Integer> columns, ProductModel model) {
+        model.setName(cell(record, columns, "name"));
+        model.setCategory(cell(record, columns, "category"));
+        model.setDescription(cell(record, columns, "description"));
+        model.setImages(splitList(cell(record, columns, "images")));
+        model.setDetails(splitList(cell(record, columns, "details")));
+        List<String> errors = new ArrayList<>();
+        model.setPrice(parseInteger(cell(record, columns, "price"), "price", errors));
+        model.setSalePrice(parseInteger(cell(record, columns, "saleprice"), "salePrice", errors));
+        model.setStock(parseInteger(cell(record, columns, "stock"), "stock", errors));
+        String status = cell(record, columns, "status");
+        if (status != null) {
+            try {
+                model.setStatus(ProductStatus.valueOf(status.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                errors.add("status: trạng thái không hợp lệ");
+            }
+        }
+        return errors.isEmpty() ? null : String.join("; ", errors);
+    }
+
+    // Kiểm tra dòng import theo các ràng buộc của ProductModel (giống khi tạo sản phẩm qua API)
+    private String validate(ProductModel model) {
+        Set<ConstraintViolation<ProductModel>> violations = validator.validate(model);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    private void addError(ProductImportResultModel result, long row, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ImportRowErrorModel(row, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    // Vị trí các cột theo tên (không phân biệt hoa thường và dấu gạch dưới: salePrice = sale_price)
+    private Map<String, Integer> toColumnIndex(List<String> header) {
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // Bỏ BOM nếu file được lưu từ Excel
+            String name = header.get(i).replace("\uFEFF", "");
+            columns.putIfAbsent(normalizeColumn(name), i);
+        }
+        List<String> missing = REQUIRED_CSV_COLUMNS.stream()
+            .filter(column -> !columns.containsKey(column))
+            .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("File CSV phải có các cột: " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    private String normalizeColumn(String name) {
+        return name.trim().replace("_", "").toLowerCase();
+    }
+
+    // Giá trị của ô (null nếu không có cột hoặc ô trống)
+    private String cell(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index);
+        return value.isBlank() ? null : value;
+    }
+
+    private Integer parseInteger(String value, String column, List<String> errors) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            errors.add(column + ": phải là số nguyên");
+            return null;
+        }
+    }
+
+    private List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        if (value == null) {
+            return items;
+        }
+        for (String item : value.split("\\" + LIST_SEPARATOR)) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    private boolean isCsv(String format) {
+        if (format == null || format.equalsIgnoreCase("csv")) {
+            return true;
+        }
+        if (format.equalsIgnoreCase("ndjson")) {
+            return false;
+        }
+        throw new RuntimeException("Định dạng không hợp lệ (chỉ hỗ trợ csv, ndjson)");
+    }
+}
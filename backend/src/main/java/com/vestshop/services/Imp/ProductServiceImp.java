@@ -1,119 +1,266 @@
 package com.vestshop.services.Imp;
 
+import com.vestshop.cache.CachedJson;
+import com.vestshop.cache.CatalogCache;
+import com.vestshop.search.CoPurchaseIndex;
+import com.vestshop.search.ProductRankingScores;
+import com.vestshop.search.ProductSearchIndex;
+import com.vestshop.utils.CursorUtils;
 import com.vestshop.services.ProductService;
 import com.vestshop.services.ReviewService;
 import com.vestshop.enums.ProductStatus;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.criteria.Expression;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import com.vestshop.models.CacheValidatorModel;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.models.PriceBucketModel;
+import com.vestshop.models.ProductBulkUpdateModel;
+import com.vestshop.models.ProductBulkUpdateResultModel;
+import com.vestshop.models.ProductFacetsModel;
 import com.vestshop.models.ProductModel;
+import com.vestshop.models.ProductRatingModel;
+import com.vestshop.models.ProductSuggestionModel;
+import com.vestshop.models.ProductSummaryModel;
 import com.vestshop.repository.ProductRepository;
 import java.util.stream.Collectors;
 import com.vestshop.entity.Product;
-import org.modelmapper.ModelMapper;
+import com.vestshop.mappers.ProductMapper;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Predicate;
 
 @Service
 
 public class ProductServiceImp implements ProductService{
+    private static final int PRIMARY_IMAGE_BACKFILL_CHUNK_SIZE = 500;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_CATEGORY_SUGGESTIONS = 3;
+    // Số dòng tối đa trong một request cập nhật hàng loạt
+    private static final int MAX_BULK_UPDATE_ITEMS = 5000;
+    // Số ID trong mỗi câu SELECT ... IN khi khóa sản phẩm cập nhật hàng loạt
+    private static final int BULK_UPDATE_LOCK_CHUNK_SIZE = 1000;
+    // Cập nhật nhiều hơn số sản phẩm này thì xóa toàn bộ cache thay vì xóa từng sản phẩm
+    private static final int BULK_UPDATE_EVICT_ALL_THRESHOLD = 200;
+    
     @Autowired
     private ProductRepository productRepo;
     @Autowired
-    private ModelMapper modelMapper;
-    @Autowired
     private ReviewService reviewService;
+    @Autowired
+    private CatalogCache catalogCache;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductRankingScores productRankingScores;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private Validator validator;
     
     @Override
+    @Transactional(readOnly = true)
     public List<ProductModel> getAllProducts() {
+        List<ProductModel> cached = catalogCache.getList("all");
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
+        
         List<Product> products = productRepo.findAll();
-        return products.stream().map(
-            product -> convertToModel(product)
-        ).collect(Collectors.toList());
+        List<ProductModel> models = convertToModels(products);
+        catalogCache.putList("all", models, productIds(models), null, null, null, null, cacheVersion);
+        return models;
+    }
+    
+    // Lấy danh sách sản phẩm dạng tóm tắt (chỉ các cột hiển thị trên grid)
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductSummaryModel> getProductSummaries() {
+        List<ProductSummaryModel> cached = catalogCache.getList("summary:all");
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
+        
+        List<ProductSummaryModel> summaries = productRepo.findSummaries(null, Sort.unsorted(), 0);
+        applyRatings(summaries);
+        catalogCache.putList("summary:all", summaries, summaryIds(summaries), null, null, null, null, cacheVersion);
+        return summaries;
     }
     
     // Lấy danh sách sản phẩm có phân trang
     @Override
     public PageResponseModel<ProductModel> getAllProductsPaginated(int page, int size) {
-        return getAllProductsPaginated(page, size, null, null, null, null);
+        return getAllProductsPaginated(page, size, null, null, null, null, null);
     }
     
     // Lấy danh sách sản phẩm có phân trang với filter và sort
     @Override
-    public PageResponseModel<ProductModel> getAllProductsPaginated(int page, int size, String category, Integer minPrice, Integer maxPrice, String sortBy) {
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductModel> getAllProductsPaginated(int page, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy) {
         // Kiểm tra page và size
         if (page < 0) page = 0;
         if (size < 1) size = 8; // Kích thước mặc định là 8
         
-        // Xây dựng Specification cho việc lọc
-        Specification<Product> spec = Specification.where(null);
+        // Lấy từ cache nếu trang này đã được tính (cache bị xóa khi catalog thay đổi)
+        String categoryFilter = (category != null && !category.isEmpty() && !category.equals("all")) ? category : null;
+        String cacheKey = "page:" + page + ":" + size + ":" + categoryFilter + ":" + minPrice + ":" + maxPrice + ":" + status + ":" + sortBy;
+        PageResponseModel<ProductModel> cached = catalogCache.getList(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
         
-        if (category != null && !category.isEmpty() && !category.equals("all")) {
-            spec = spec.and((root, query, cb) -> cb.equal(root.get("category"), category));
+        Pageable pageable = PageRequest.of(page, size, buildPublicSort(sortBy));
+        Page<Product> productPage = productRepo.findAll(buildPublicFilter(category, minPrice, maxPrice, status), pageable);
+        
+        // Chuyển đổi sang ProductModel (rating của cả trang được lấy bằng một query)
+        List<ProductModel> content = convertToModels(productPage.getContent());
+        PageResponseModel<ProductModel> response = toPageResponse(productPage, content);
+        
+        catalogCache.putList(cacheKey, response, productIds(content), visibleStatuses(status), categoryFilter, minPrice, maxPrice, cacheVersion);
+        return response;
+    }
+    
+    // Lấy danh sách sản phẩm dạng tóm tắt có phân trang với filter và sort
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductSummaryModel> getProductSummariesPaginated(int page, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy) {
+        // Kiểm tra page và size
+        if (page < 0) page = 0;
+        if (size < 1) size = 8; // Kích thước mặc định là 8
+        
+        String categoryFilter = (category != null && !category.isEmpty() && !category.equals("all")) ? category : null;
+        String cacheKey = "summary:page:" + page + ":" + size + ":" + categoryFilter + ":" + minPrice + ":" + maxPrice + ":" + status + ":" + sortBy;
+        PageResponseModel<ProductSummaryModel> cached = catalogCache.getList(cacheKey);
+        if (cached != null) {
+            return cached;
         }
+        long cacheVersion = catalogCache.currentVersion();
         
-        if (minPrice != null || maxPrice != null) {
-            spec = spec.and((root, query, cb) -> {
-                // Lọc theo giá hiệu quả: sử dụng salePrice nếu tồn tại, nếu không thì sử dụng price
-                // COALESCE(salePrice, price) BETWEEN minPrice AND maxPrice
-                jakarta.persistence.criteria.Expression<Integer> effectivePrice = cb.coalesce(
-                    root.get("salePrice"),
-                    root.get("price")
-                );
-                
-                Predicate pricePredicate = null;
-                if (minPrice != null && maxPrice != null) {
-                    pricePredicate = cb.between(effectivePrice, minPrice, maxPrice);
-                } else if (minPrice != null) {
-                    pricePredicate = cb.greaterThanOrEqualTo(effectivePrice, minPrice);
-                } else if (maxPrice != null) {
-                    pricePredicate = cb.lessThanOrEqualTo(effectivePrice, maxPrice);
-                }
-                return pricePredicate;
-            });
+        Pageable pageable = PageRequest.of(page, size, buildPublicSort(sortBy));
+        Page<ProductSummaryModel> summaryPage = productRepo.findSummaries(buildPublicFilter(category, minPrice, maxPrice, status), pageable);
+        applyRatings(summaryPage.getContent());
+        PageResponseModel<ProductSummaryModel> response = toPageResponse(summaryPage, summaryPage.getContent());
+        
+        catalogCache.putList(cacheKey, response, summaryIds(summaryPage.getContent()), visibleStatuses(status), categoryFilter, minPrice, maxPrice, cacheVersion);
+        return response;
+    }
+    
+    // Lấy danh sách sản phẩm theo cursor (keyset pagination, không đếm tổng số bản ghi)
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductModel> getAllProductsByCursor(String cursor, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy) {
+        if (size < 1) size = 8; // Kích thước mặc định là 8
+        
+        String categoryFilter = (category != null && !category.isEmpty() && !category.equals("all")) ? category : null;
+        String cacheKey = "cursor:" + cursor + ":" + size + ":" + categoryFilter + ":" + minPrice + ":" + maxPrice + ":" + status + ":" + sortBy;
+        PageResponseModel<ProductModel> cached = catalogCache.getList(cacheKey);
+        if (cached != null) {
+            return cached;
         }
+        long cacheVersion = catalogCache.currentVersion();
         
-        // Xây dựng Sort
-        Sort sort = Sort.by(Sort.Direction.ASC, "name"); // Sắp xếp theo tên mặc định
-        if (sortBy != null && !sortBy.isEmpty()) {
-            if (sortBy.equals("price-asc")) {
-                // Sắp xếp theo salePrice nếu tồn tại, nếu không thì sắp xếp theo price
-                sort = Sort.by(Sort.Direction.ASC, "salePrice", "price");
-            } else if (sortBy.equals("price-desc")) {
-                sort = Sort.by(Sort.Direction.DESC, "salePrice", "price");
-            } else if (sortBy.equals("name")) {
-                sort = Sort.by(Sort.Direction.ASC, "name");
-            }
+        String sortType = cursorSortType(sortBy);
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, sortType);
+        Specification<Product> spec = buildPublicFilter(category, minPrice, maxPrice, status)
+            .and(buildCursorFilter(sortType, after));
+        
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không (không cần COUNT)
+        int pageSize = size;
+        List<Product> products = productRepo.findBy(spec, q -> q.limit(pageSize + 1).all());
+        boolean hasNext = products.size() > size;
+        if (hasNext) {
+            products = products.subList(0, size);
         }
         
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> productPage = productRepo.findAll(spec, pageable);
+        String nextCursor = null;
+        if (hasNext) {
+            nextCursor = nextCursor(sortType, products.get(products.size() - 1));
+        }
         
-        // Chuyển đổi sang ProductModel
-        List<ProductModel> content = productPage.getContent().stream()
-            .map(product -> convertToModel(product))
-            .collect(Collectors.toList());
+        List<ProductModel> content = convertToModels(products);
+        PageResponseModel<ProductModel> response = cursorPage(content, size, after == null, nextCursor);
         
-        // Tạo PageResponse
-        PageResponseModel<ProductModel> response = new PageResponseModel<>();
-        response.setContent(content);
-        response.setPage(productPage.getNumber());
-        response.setSize(productPage.getSize());
-        response.setTotalElements(productPage.getTotalElements());
-        response.setTotalPages(productPage.getTotalPages());
-        response.setFirst(productPage.isFirst());
-        response.setLast(productPage.isLast());
+        catalogCache.putList(cacheKey, response, productIds(content), visibleStatuses(status), categoryFilter, minPrice, maxPrice, cacheVersion);
+        return response;
+    }
+    
+    // Lấy danh sách sản phẩm dạng tóm tắt theo cursor (keyset pagination, không đếm tổng số bản ghi)
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductSummaryModel> getProductSummariesByCursor(String cursor, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy) {
+        if (size < 1) size = 8; // Kích thước mặc định là 8
+        
+        String categoryFilter = (category != null && !category.isEmpty() && !category.equals("all")) ? category : null;
+        String cacheKey = "summary:cursor:" + cursor + ":" + size + ":" + categoryFilter + ":" + minPrice + ":" + maxPrice + ":" + status + ":" + sortBy;
+        PageResponseModel<ProductSummaryModel> cached = catalogCache.getList(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
+        
+        String sortType = cursorSortType(sortBy);
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, sortType);
+        Specification<Product> spec = buildPublicFilter(category, minPrice, maxPrice, status)
+            .and(buildCursorFilter(sortType, after));
+        
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không (không cần COUNT)
+        List<ProductSummaryModel> summaries = productRepo.findSummaries(spec, Sort.unsorted(), size + 1);
+        boolean hasNext = summaries.size() > size;
+        if (hasNext) {
+            summaries = summaries.subList(0, size);
+        }
         
+        String nextCursor = null;
+        if (hasNext) {
+            nextCursor = nextCursor(sortType, summaries.get(summaries.size() - 1));
+        }
+        
+        applyRatings(summaries);
+        PageResponseModel<ProductSummaryModel> response = cursorPage(summaries, size, after == null, nextCursor);
+        
+        catalogCache.putList(cacheKey, response, summaryIds(summaries), visibleStatuses(status), categoryFilter, minPrice, maxPrice, cacheVersion);
         return response;
     }
     
@@ -125,107 +272,273 @@ public class ProductServiceImp implements ProductService{
     
     // Lấy danh sách sản phẩm có phân trang với filter và sort (cho admin)
     @Override
+    @Transactional(readOnly = true)
     public PageResponseModel<ProductModel> getAllProductsPaginatedAdmin(int page, int size, String searchTerm, String status, Integer minPrice, Integer maxPrice, String sortBy, String sortOrder) {
         // Kiểm tra page và size
         if (page < 0) page = 0;
         if (size < 1) size = 10; // Kích thước mặc định là 10
         
-        // Xây dựng Specification cho việc lọc
-        Specification<Product> spec = Specification.where(null);
-        
-        // Lọc theo tên (tìm kiếm gần đúng)
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            String searchLower = searchTerm.toLowerCase().trim();
-            spec = spec.and((root, query, cb) -> 
-                cb.like(cb.lower(root.get("name")), "%" + searchLower + "%")
-            );
+        Specification<Product> spec = buildAdminFilter(searchTerm, status, minPrice, maxPrice);
+        if (spec == null) {
+            return emptyPage(page, size);
         }
         
-        // Lọc theo trạng thái
-        if (status != null && !status.isEmpty() && !status.equals("all")) {
-            try {
-                ProductStatus productStatus = ProductStatus.valueOf(status);
-                spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), productStatus));
-            } catch (IllegalArgumentException e) {
-                // Invalid status, ignore
-            }
+        Pageable pageable = PageRequest.of(page, size, buildAdminSort(sortBy, sortOrder));
+        Page<Product> productPage = productRepo.findAll(spec, pageable);
+        
+        // Chuyển đổi sang ProductModel (rating của cả trang được lấy bằng một query)
+        List<ProductModel> content = convertToModels(productPage.getContent());
+        return toPageResponse(productPage, content);
+    }
+    
+    // Lấy danh sách sản phẩm dạng tóm tắt có phân trang với filter và sort (cho admin)
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductSummaryModel> getProductSummariesPaginatedAdmin(int page, int size, String searchTerm, String status, Integer minPrice, Integer maxPrice, String sortBy, String sortOrder) {
+        // Kiểm tra page và size
+        if (page < 0) page = 0;
+        if (size < 1) size = 10; // Kích thước mặc định là 10
+        
+        Specification<Product> spec = buildAdminFilter(searchTerm, status, minPrice, maxPrice);
+        if (spec == null) {
+            return emptyPage(page, size);
         }
         
-        // Lọc theo khoảng giá
-        if (minPrice != null || maxPrice != null) {
-            spec = spec.and((root, query, cb) -> {
-                // Lọc theo giá hiệu quả: sử dụng salePrice nếu tồn tại, nếu không thì sử dụng price
-                    Expression<Integer> effectivePrice = cb.coalesce(
-                    root.get("salePrice"),
-                    root.get("price")
-                );
-                
-                Predicate pricePredicate = null;
-                if (minPrice != null && maxPrice != null) {
-                    pricePredicate = cb.between(effectivePrice, minPrice, maxPrice);
-                } else if (minPrice != null) {
-                    pricePredicate = cb.greaterThanOrEqualTo(effectivePrice, minPrice);
-                } else if (maxPrice != null) {
-                    pricePredicate = cb.lessThanOrEqualTo(effectivePrice, maxPrice);
-                }
-                return pricePredicate;
-            });
+        Pageable pageable = PageRequest.of(page, size, buildAdminSort(sortBy, sortOrder));
+        Page<ProductSummaryModel> summaryPage = productRepo.findSummaries(spec, pageable);
+        applyRatings(summaryPage.getContent());
+        return toPageResponse(summaryPage, summaryPage.getContent());
+    }
+
+    // Facet cho storefront: số sản phẩm theo danh mục, giá min/max và histogram giá theo filter hiện tại.
+    // Tính trên chỉ mục trong bộ nhớ (một lần duyệt, không query DB), cache cho đến lần ghi catalog tiếp theo.
+    // Mỗi facet bỏ qua filter của chính nó để client vẫn thấy các lựa chọn khác (danh mục khác, khoảng giá khác)
+    @Override
+    public ProductFacetsModel getProductFacets(String keyword, String category, Integer minPrice, Integer maxPrice, String status, int buckets) {
+        if (buckets < 1) buckets = 5; // Số khoảng giá mặc định là 5
+        if (buckets > 50) buckets = 50;
+        
+        String categoryFilter = (category != null && !category.isEmpty() && !category.equals("all")) ? category : null;
+        String keywordFilter = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim() : null;
+        String cacheKey = "facets:" + keywordFilter + ":" + categoryFilter + ":" + minPrice + ":" + maxPrice + ":" + status + ":" + buckets;
+        ProductFacetsModel cached = catalogCache.getFacets(cacheKey);
+        if (cached != null) {
+            return cached;
         }
+        long cacheVersion = catalogCache.currentVersion();
         
-        // Xây dựng Sort
-        Sort.Direction direction = (sortOrder != null && sortOrder.equalsIgnoreCase("desc")) 
-            ? Sort.Direction.DESC 
-            : Sort.Direction.ASC;
+        Set<ProductStatus> statuses = visibleStatuses(status);
+        Set<Integer> matchedIds = keywordFilter != null ? new HashSet<>(productSearchIndex.search(keywordFilter, false)) : null;
         
-        Sort sort = Sort.by(direction, "name"); // Sắp xếp theo tên mặc định
-        if (sortBy != null && !sortBy.isEmpty()) {
-            if (sortBy.equals("price")) {
-                // Sắp xếp theo salePrice nếu tồn tại, nếu không thì sắp xếp theo price
-                sort = Sort.by(direction, "salePrice", "price");
-            } else if (sortBy.equals("stock")) {
-                sort = Sort.by(direction, "stock");
-            } else if (sortBy.equals("status")) {
-                sort = Sort.by(direction, "status");
-            } else if (sortBy.equals("name")) {
-                sort = Sort.by(direction, "name");
+        Map<String, Long> categoryCounts = new TreeMap<>();
+        List<Integer> prices = new ArrayList<>(); // Giá của sản phẩm thuộc danh mục đang lọc (cho histogram)
+        long[] totalProducts = {0};
+        productSearchIndex.forEachDocument(doc -> {
+            Integer price = doc.getEffectivePrice();
+            if (price == null || !statuses.contains(doc.getStatus())
+                    || (matchedIds != null && !matchedIds.contains(doc.getId()))) {
+                return;
+            }
+            boolean inCategory = categoryFilter == null || categoryFilter.equals(doc.getCategory());
+            boolean inPriceRange = (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+            if (inPriceRange) {
+                categoryCounts.merge(doc.getCategory(), 1L, Long::sum);
+            }
+            if (inCategory) {
+                prices.add(price);
+                if (inPriceRange) {
+                    totalProducts[0]++;
+                }
+            }
+        });
+        
+        ProductFacetsModel facets = new ProductFacetsModel();
+        facets.setTotalProducts(totalProducts[0]);
+        facets.setCategories(categoryCounts);
+        facets.setPriceHistogram(new ArrayList<>());
+        if (!prices.isEmpty()) {
+            int min = Collections.min(prices);
+            int max = Collections.max(prices);
+            facets.setMinPrice(min);
+            facets.setMaxPrice(max);
+            
+            // Chia [min, max] thành các khoảng có độ rộng bằng nhau
+            long width = Math.max(1, ((long) max - min + buckets) / buckets);
+            long[] counts = new long[buckets];
+            for (int price : prices) {
+                counts[(int) Math.min(buckets - 1, (price - min) / width)]++;
+            }
+            for (int i = 0; i < buckets; i++) {
+                long from = min + i * width;
+                if (from > max) {
+                    break;
+                }
+                int to = (int) Math.min(max, from + width - 1);
+                if (i == buckets - 1) {
+                    to = max;
+                }
+                facets.getPriceHistogram().add(new PriceBucketModel((int) from, to, counts[i]));
             }
         }
         
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> productPage = productRepo.findAll(spec, pageable);
+        catalogCache.putFacets(cacheKey, facets, cacheVersion);
+        return facets;
+    }
+    
+    // Tìm kiếm sản phẩm theo từ khóa (public), kết quả xếp theo độ liên quan
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductModel> searchProducts(String keyword, int page, int size) {
+        // Kiểm tra page và size
+        if (page < 0) page = 0;
+        if (size < 1) size = 8; // Kích thước mặc định là 8
+        
+        List<Integer> matchedIds = productSearchIndex.search(keyword, false);
+        List<Integer> pageIds = pageOf(matchedIds, page, size);
         
-        // Chuyển đổi sang ProductModel
-        List<ProductModel> content = productPage.getContent().stream()
-            .map(product -> convertToModel(product))
+        // Load sản phẩm của trang và giữ nguyên thứ tự theo điểm
+        Map<Integer, Product> productsById = productRepo.findAllById(pageIds).stream()
+            .collect(Collectors.toMap(Product::getId, product -> product));
+        List<Product> products = pageIds.stream()
+            .map(productsById::get)
+            .filter(product -> product != null && product.getStatus() != ProductStatus.HIDDEN)
             .collect(Collectors.toList());
         
-        // Tạo PageResponse
-        PageResponseModel<ProductModel> response = new PageResponseModel<>();
-        response.setContent(content);
-        response.setPage(productPage.getNumber());
-        response.setSize(productPage.getSize());
-        response.setTotalElements(productPage.getTotalElements());
-        response.setTotalPages(productPage.getTotalPages());
-        response.setFirst(productPage.isFirst());
-        response.setLast(productPage.isLast());
+        return searchPage(convertToModels(products), matchedIds.size(), page, size);
+    }
+    
+    // Tìm kiếm sản phẩm theo từ khóa (public), trả về dạng tóm tắt
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ProductSummaryModel> searchProductSummaries(String keyword, int page, int size) {
+        // Kiểm tra page và size
+        if (page < 0) page = 0;
+        if (size < 1) size = 8; // Kích thước mặc định là 8
         
-        return response;
+        List<Integer> matchedIds = productSearchIndex.search(keyword, false);
+        List<Integer> pageIds = pageOf(matchedIds, page, size);
+        
+        // Load sản phẩm của trang và giữ nguyên thứ tự theo điểm
+        Map<Integer, ProductSummaryModel> summariesById = pageIds.isEmpty()
+            ? Map.of()
+            : productRepo.findSummaries((root, query, cb) -> root.get("id").in(pageIds), Sort.unsorted(), 0).stream()
+                .collect(Collectors.toMap(ProductSummaryModel::getId, summary -> summary));
+        List<ProductSummaryModel> summaries = pageIds.stream()
+            .map(summariesById::get)
+            .filter(summary -> summary != null && summary.getStatus() != ProductStatus.HIDDEN)
+            .collect(Collectors.toList());
+        
+        applyRatings(summaries);
+        return searchPage(summaries, matchedIds.size(), page, size);
+    }
+
+    // Gợi ý theo tiền tố (đọc hoàn toàn từ chỉ mục trong bộ nhớ, không query DB):
+    // tối đa 3 danh mục khớp trước, sau đó là sản phẩm bán chạy nhất có tên khớp
+    @Override
+    public List<ProductSuggestionModel> suggestProducts(String prefix, int limit) {
+        if (limit < 1) limit = 8; // Số gợi ý mặc định là 8
+        if (limit > MAX_SUGGESTIONS) limit = MAX_SUGGESTIONS;
+        
+        List<ProductSuggestionModel> suggestions = new ArrayList<>();
+        for (String category : productSearchIndex.suggestCategories(prefix, Math.min(MAX_CATEGORY_SUGGESTIONS, limit))) {
+            suggestions.add(new ProductSuggestionModel("category", null, category, category));
+        }
+        for (ProductSearchIndex.IndexedProduct product : productSearchIndex.suggestProducts(prefix, limit - suggestions.size())) {
+            suggestions.add(new ProductSuggestionModel("product", product.getId(), product.getName(), product.getCategory()));
+        }
+        return suggestions;
+    }
+
+    // Sản phẩm thường được mua cùng: ID lấy từ ma trận mua cùng đã tính sẵn, bỏ qua sản phẩm bị ẩn/đã xóa
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductSummaryModel> getRelatedProducts(Integer id, int limit) {
+        if (limit < 1) limit = 4; // Số sản phẩm mặc định là 4
+        if (limit > CoPurchaseIndex.MAX_RELATED) limit = CoPurchaseIndex.MAX_RELATED;
+        
+        String cacheKey = "related:" + id + ":" + limit;
+        List<ProductSummaryModel> cached = catalogCache.getList(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
+        
+        List<Integer> relatedIds = coPurchaseIndex.getRelated(id);
+        List<ProductSummaryModel> related = new ArrayList<>();
+        if (!relatedIds.isEmpty()) {
+            Map<Integer, ProductSummaryModel> summariesById = productRepo.findSummaries(
+                    (root, query, cb) -> root.get("id").in(relatedIds), Sort.unsorted(), 0).stream()
+                .collect(Collectors.toMap(ProductSummaryModel::getId, summary -> summary));
+            for (Integer relatedId : relatedIds) {
+                ProductSummaryModel summary = summariesById.get(relatedId);
+                if (summary != null && summary.getStatus() != ProductStatus.HIDDEN) {
+                    related.add(summary);
+                    if (related.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            applyRatings(related);
+        }
+        
+        // Danh sách bị xóa khi sản phẩm gốc hoặc các sản phẩm liên quan thay đổi
+        // (đơn hàng hoàn thành cũng xóa cache của các sản phẩm trong đơn)
+        List<Integer> cachedIds = new ArrayList<>(relatedIds);
+        cachedIds.add(id);
+        catalogCache.putList(cacheKey, related, cachedIds, null, null, null, null, cacheVersion);
+        return related;
     }
 
     // Lấy chi tiết sản phẩm theo ID
     @Override
+    @Transactional(readOnly = true)
     public ProductModel getProductById(Integer id) {
-        Product product = productRepo.findById(id).orElse(null);
+        ProductModel cached = catalogCache.getProduct(id);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
+        
+        Product product = productRepo.findDetailById(id).orElse(null);
         if (product == null) {
             return null;
         }
-        return convertToModel(product);
+        ProductModel model = convertToModel(product);
+        catalogCache.putProduct(id, model, cacheVersion);
+        return model;
+    }
+
+    // Lấy chi tiết sản phẩm dạng JSON đã serialize sẵn (UTF-8 + gzip), null nếu không tồn tại
+    @Override
+    @Transactional(readOnly = true)
+    public CachedJson getProductJson(Integer id) {
+        CachedJson cached = catalogCache.getProductJson(id);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = catalogCache.currentVersion();
+        
+        ProductModel model = getProductById(id);
+        if (model == null) {
+            return null;
+        }
+        try {
+            CachedJson json = new CachedJson(objectMapper.writeValueAsBytes(model));
+            catalogCache.putProductJson(id, json, cacheVersion);
+            return json;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Lỗi khi tạo dữ liệu sản phẩm: " + e.getMessage(), e);
+        }
     }
 
     // Tạo sản phẩm mới
     @Override
+    @Transactional
     public ProductModel createProduct(ProductModel product) {
-        Product productEntity = modelMapper.map(product, Product.class);
+        Product productEntity = ProductMapper.toEntity(product);
+        // Bộ đếm bán hàng luôn bắt đầu từ 0, không lấy từ request
+        productEntity.setCompletedOrderCount(0);
+        productEntity.setSoldQuantity(0);
         
         // Tự động chuyển trạng thái dựa trên số tồn kho khi tạo mới
         if (productEntity.getStock() == null || productEntity.getStock() <= 0) {
@@ -234,19 +547,37 @@ public class ProductServiceImp implements ProductService{
             productEntity.setStatus(ProductStatus.ACTIVE);
         }
         
+        productEntity.syncEffectivePrice();
+        productEntity.syncPrimaryImage();
+        
         Product createdProduct = productRepo.save(productEntity);
+        catalogCache.evictProduct(createdProduct);
+        productSearchIndex.index(createdProduct);
         return convertToModel(createdProduct);
     }
 
     // Cập nhật sản phẩm
     @Override
+    @Transactional
     public ProductModel updateProduct(Integer id, ProductModel product) {
         // Lấy product hiện tại từ database để giữ các giá trị không được update
         Product existingProduct = productRepo.findById(id)
                 .orElseThrow(() -> new RuntimeException("Sản phẩm không tồn tại"));
+        // Xóa cache theo category/giá cũ (trước khi merge ghi đè lên entity)
+        catalogCache.evictProduct(existingProduct);
         
-        Product productEntity = modelMapper.map(product, Product.class);
+        Product productEntity = ProductMapper.toEntity(product);
         productEntity.setId(id); // Set ID để update đúng record
+        // Giữ nguyên bộ đếm bán hàng hiện tại (không cho phép sửa qua API cập nhật sản phẩm)
+        productEntity.setCompletedOrderCount(existingProduct.getCompletedOrderCount());
+        productEntity.setSoldQuantity(existingProduct.getSoldQuantity());
+        productEntity.setFlashSale(existingProduct.getFlashSale());
+        // Sản phẩm flash sale: tồn kho do bộ đếm trong bộ nhớ quản lý, giữ nguyên stock hiện tại
+        // (đọc trong khi khóa dòng để không ghi đè phần job ghi ledger vừa trừ)
+        if (Boolean.TRUE.equals(existingProduct.getFlashSale())) {
+            Object[] current = productRepo.lockStockAndPrices(List.of(id)).get(0);
+            productEntity.setStock(((Number) current[1]).intValue());
+        }
         
         // Xử lý logic status và stock:
         // 1. Nếu stock = 0, bắt buộc phải là OUT_OF_STOCK (không thể bán khi hết hàng)
@@ -270,17 +601,26 @@ public class ProductServiceImp implements ProductService{
             }
         }
         
+        productEntity.syncEffectivePrice();
+        productEntity.syncPrimaryImage();
+        
         Product updatedProduct = productRepo.save(productEntity);
+        catalogCache.evictProduct(updatedProduct);
+        productSearchIndex.index(updatedProduct);
         return convertToModel(updatedProduct);
     }
 
     @Override
+    @Transactional
     public void deleteProduct(Integer id) {
+        productRepo.findById(id).ifPresent(catalogCache::evictProduct);
         productRepo.deleteById(id);
+        productSearchIndex.remove(id);
     }
 
     // Cập nhật trạng thái sản phẩm
     @Override
+    @Transactional
     public ProductModel updateProductStatus(Integer id, ProductStatus status) {
         Product product = productRepo.findById(id)
                 .orElseThrow(() -> new RuntimeException("Sản phẩm không tồn tại"));
@@ -290,20 +630,31 @@ public class ProductServiceImp implements ProductService{
             throw new RuntimeException("Không thể đặt trạng thái 'Đang bán' khi sản phẩm hết hàng (stock = 0)");
         }
         
+        // Xóa cache theo trạng thái cũ (trước khi sửa entity)
+        catalogCache.evictProduct(product);
+        
         // Cho phép admin set bất kỳ status nào (ACTIVE, OUT_OF_STOCK, HIDDEN)
         // khi stock > 0, hoặc OUT_OF_STOCK/HIDDEN khi stock = 0
         product.setStatus(status);
         Product updatedProduct = productRepo.save(product);
+        catalogCache.evictProduct(updatedProduct);
+        productSearchIndex.index(updatedProduct);
         return convertToModel(updatedProduct);
     }
 
     // Cập nhật tồn kho sản phẩm
     @Override
+    @Transactional
     public ProductModel updateProductStock(Integer id, Integer stock) {
         Product product = productRepo.findById(id).orElse(null);
         if (product == null) {
             return null;
         }
+        if (Boolean.TRUE.equals(product.getFlashSale())) {
+            throw new RuntimeException("Tồn kho không hợp lệ: sản phẩm đang bật flash sale, cần tắt flash sale trước khi sửa tồn kho");
+        }
+        // Xóa cache theo trạng thái cũ (trạng thái có thể đổi theo tồn kho)
+        catalogCache.evictProduct(product);
         product.setStock(stock);
         
         // Tự động chuyển trạng thái dựa trên số tồn kho
@@ -315,37 +666,557 @@ public class ProductServiceImp implements ProductService{
         }
         
         Product updatedProduct = productRepo.save(product);
+        catalogCache.evictProduct(updatedProduct);
+        productSearchIndex.index(updatedProduct);
         return convertToModel(updatedProduct);
     }
     
+    // Cập nhật tồn kho/giá/trạng thái hàng loạt (đồng bộ từ kho):
+    // khóa các sản phẩm theo thứ tự ID bằng vài câu SELECT ... FOR UPDATE, áp dụng cùng quy tắc trạng thái với
+    // updateProductStock/updateProductStatus, rồi ghi bằng một JDBC batch UPDATE trong cùng transaction.
+    // Dòng không hợp lệ được báo lỗi và bỏ qua, các dòng còn lại vẫn được cập nhật
+    @Override
+    @Transactional
+    public List<ProductBulkUpdateResultModel> bulkUpdateProducts(List<ProductBulkUpdateModel> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BULK_UPDATE_ITEMS) {
+            throw new RuntimeException("Số dòng cập nhật không hợp lệ (1 - " + MAX_BULK_UPDATE_ITEMS + ")");
+        }
+        List<ProductBulkUpdateResultModel> results = new ArrayList<>(items.size());
+        Map<Integer, ProductBulkUpdateModel> validItems = new LinkedHashMap<>();
+        for (ProductBulkUpdateModel item : items) {
+            String error = validateBulkItem(item, validItems);
+            results.add(error == null ? null : failedBulkResult(item != null ? item.getId() : null, error));
+            if (error == null) {
+                validItems.put(item.getId(), item);
+            }
+        }
+        
+        // Khóa và đọc trạng thái hiện tại (ID tăng dần để các transaction cập nhật cùng sản phẩm không deadlock)
+        List<Integer> ids = new ArrayList<>(validItems.keySet());
+        Collections.sort(ids);
+        Map<Integer, Product> currentById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BULK_UPDATE_LOCK_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + BULK_UPDATE_LOCK_CHUNK_SIZE, ids.size()));
+            for (Object[] row : productRepo.lockStockAndPrices(chunk)) {
+                Product current = new Product();
+                current.setId(((Number) row[0]).intValue());
+                current.setStock(((Number) row[1]).intValue());
+                current.setPrice(((Number) row[2]).intValue());
+                current.setSalePrice(row[3] != null ? ((Number) row[3]).intValue() : null);
+                current.setStatus(ProductStatus.valueOf((String) row[4]));
+                current.setCategory((String) row[5]);
+                current.setFlashSale(Boolean.TRUE.equals(row[6]));
+                currentById.put(current.getId(), current);
+            }
+        }
+        
+        List<Product[]> changes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            ProductBulkUpdateModel item = items.get(i);
+            Product current = currentById.get(item.getId());
+            if (current == null) {
+                results.set(i, failedBulkResult(item.getId(), "Sản phẩm không tồn tại"));
+                continue;
+            }
+            if (item.getStock() != null && current.getFlashSale()) {
+                results.set(i, failedBulkResult(item.getId(), "Tồn kho không hợp lệ: sản phẩm đang bật flash sale"));
+                continue;
+            }
+            Product updated = applyBulkUpdate(current, item);
+            if (updated == null) {
+                results.set(i, failedBulkResult(item.getId(), "Không thể đặt trạng thái 'Đang bán' khi sản phẩm hết hàng (stock = 0)"));
+                continue;
+            }
+            changes.add(new Product[] { current, updated });
+            results.set(i, ProductBulkUpdateResultModel.builder()
+                .id(updated.getId())
+                .success(true)
+                .stock(updated.getStock())
+                .price(updated.getPrice())
+                .salePrice(updated.getSalePrice())
+                .status(updated.getStatus())
+                .build());
+        }
+        if (changes.isEmpty()) {
+            return results;
+        }
+        
+        // Một câu UPDATE cho mọi dòng (cùng dạng câu lệnh để driver gửi theo lô)
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = changes.stream()
+            .map(change -> {
+                Product updated = change[1];
+                return new Object[] {
+                    updated.getStock(), updated.getPrice(), updated.getSalePrice(), updated.getEffectivePrice(),
+                    updated.getStatus().name(), now, updated.getId()
+                };
+            })
+            .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(
+            "UPDATE products SET stock = ?, price = ?, sale_price = ?, effective_price = ?, status = ?, updated_at = ? WHERE id = ?",
+            batchArgs,
+            new int[] { Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP, Types.INTEGER });
+        
+        // Xóa cache theo giá trước và sau khi cập nhật (sản phẩm có thể chuyển sang khoảng giá khác)
+        boolean evictAll = changes.size() > BULK_UPDATE_EVICT_ALL_THRESHOLD;
+        if (evictAll) {
+            catalogCache.evictAll();
+        }
+        for (Product[] change : changes) {
+            if (!evictAll) {
+                catalogCache.evictProduct(change[0]);
+                catalogCache.evictProduct(change[1]);
+            }
+            productSearchIndex.updateStatusAndPrice(change[1].getId(), change[1].getStatus(), change[1].getEffectivePrice());
+        }
+        return results;
+    }
+    
+    // Kiểm tra một dòng cập nhật hàng loạt, trả về thông báo lỗi (null nếu hợp lệ)
+    private String validateBulkItem(ProductBulkUpdateModel item, Map<Integer, ProductBulkUpdateModel> validItems) {
+        if (item == null) {
+            return "Dòng cập nhật không được để trống";
+        }
+        Set<ConstraintViolation<ProductBulkUpdateModel>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        if (item.getStock() == null && item.getPrice() == null && item.getSalePrice() == null
+                && !Boolean.TRUE.equals(item.getClearSalePrice()) && item.getStatus() == null) {
+            return "Không có trường nào cần cập nhật";
+        }
+        if (validItems.containsKey(item.getId())) {
+            return "Sản phẩm bị lặp trong danh sách cập nhật";
+        }
+        return null;
+    }
+    
+    // Tính giá trị mới của sản phẩm theo quy tắc của updateProductStock/updateProductStatus
+    // (null nếu yêu cầu đặt ACTIVE khi hết hàng)
+    private Product applyBulkUpdate(Product current, ProductBulkUpdateModel item) {
+        Product updated = new Product();
+        updated.setId(current.getId());
+        updated.setCategory(current.getCategory());
+        updated.setStock(item.getStock() != null ? item.getStock() : current.getStock());
+        updated.setPrice(item.getPrice() != null ? item.getPrice() : current.getPrice());
+        if (Boolean.TRUE.equals(item.getClearSalePrice())) {
+            updated.setSalePrice(null);
+        } else {
+            updated.setSalePrice(item.getSalePrice() != null ? item.getSalePrice() : current.getSalePrice());
+        }
+        updated.syncEffectivePrice();
+        
+        if (item.getStatus() != null) {
+            // Admin đặt trạng thái thủ công: không cho phép ACTIVE khi hết hàng
+            if (item.getStatus() == ProductStatus.ACTIVE && updated.getStock() <= 0) {
+                return null;
+            }
+            updated.setStatus(item.getStatus());
+        } else if (item.getStock() == null) {
+            // Chỉ đổi giá: giữ nguyên trạng thái (kể cả HIDDEN khi stock = 0)
+            updated.setStatus(current.getStatus());
+        } else if (updated.getStock() <= 0) {
+            updated.setStatus(ProductStatus.OUT_OF_STOCK);
+        } else if (current.getStatus() == ProductStatus.OUT_OF_STOCK) {
+            // Đang hết hàng và có stock mới > 0, chuyển về ACTIVE
+            updated.setStatus(ProductStatus.ACTIVE);
+        } else {
+            updated.setStatus(current.getStatus());
+        }
+        return updated;
+    }
+    
+    private ProductBulkUpdateResultModel failedBulkResult(Integer id, String message) {
+        return ProductBulkUpdateResultModel.builder().id(id).success(false).message(message).build();
+    }
+    
+    // Đồng bộ cột effective_price khi khởi động (dữ liệu có từ trước khi có cột)
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initEffectivePrices() {
+        int updated = productRepo.syncEffectivePrices();
+        if (updated > 0) {
+            catalogCache.evictAll();
+            System.out.println("Synced effective price for " + updated + " products");
+        }
+    }
+    
+    // Gán ảnh đại diện cho các sản phẩm có từ trước khi có cột primary_image
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initPrimaryImages() {
+        int updated = 0;
+        Integer afterId = 0;
+        while (true) {
+            List<Integer> ids = productRepo.findIdsMissingPrimaryImageAfter(afterId, PageRequest.of(0, PRIMARY_IMAGE_BACKFILL_CHUNK_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (Product product : productRepo.findAllById(ids)) {
+                if (!product.getImages().isEmpty()) {
+                    updated += productRepo.updatePrimaryImage(product.getId(), product.getImages().get(0));
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        if (updated > 0) {
+            catalogCache.evictAll();
+            System.out.println("Set primary image for " + updated + " products");
+        }
+    }
+    
+    // ETag/Last-Modified cho danh sách sản phẩm (theo phiên bản catalog)
+    @Override
+    public CacheValidatorModel getCatalogValidator() {
+        return catalogCache.getCatalogValidator();
+    }
+    
+    // ETag/Last-Modified cho chi tiết sản phẩm
+    @Override
+    public CacheValidatorModel getProductValidator(Integer id) {
+        return catalogCache.getProductValidator(id);
+    }
+    
+    // Thống kê cache catalog (hit/miss/eviction)
+    @Override
+    public Map<String, Object> getCatalogCacheStats() {
+        return catalogCache.getStats();
+    }
+    
+    // Tính lại điểm xu hướng/bán chạy từ lịch sử đơn hàng và đánh giá
+    @Override
+    public int rebuildRankingScores() {
+        return productRankingScores.rebuild();
+    }
+    
+    // Xây dựng Specification lọc theo trạng thái, danh mục và khoảng giá (storefront).
+    // Thứ tự điều kiện khớp với index (status, category, effective_price)
+    private Specification<Product> buildPublicFilter(String category, Integer minPrice, Integer maxPrice, String status) {
+        Specification<Product> spec = Specification.where(null);
+        
+        // Lọc theo trạng thái: mặc định chỉ lấy sản phẩm hiển thị trên storefront (không lấy HIDDEN)
+        Set<ProductStatus> statuses = visibleStatuses(status);
+        spec = spec.and((root, query, cb) -> statuses.isEmpty() ? cb.disjunction() : root.get("status").in(statuses));
+        
+        if (category != null && !category.isEmpty() && !category.equals("all")) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("category"), category));
+        }
+        
+        if (minPrice != null || maxPrice != null) {
+            spec = spec.and((root, query, cb) -> effectivePriceBetween(root.get("effectivePrice"), cb, minPrice, maxPrice));
+        }
+        
+        return spec;
+    }
+    
+    // Trạng thái được hiển thị trên storefront theo filter (HIDDEN không bao giờ được hiển thị,
+    // nên lọc status=HIDDEN trả về tập rỗng thay vì bỏ qua filter)
+    private Set<ProductStatus> visibleStatuses(String status) {
+        if (status != null && !status.isEmpty() && !status.equals("all")) {
+            try {
+                ProductStatus productStatus = ProductStatus.valueOf(status);
+                return productStatus == ProductStatus.HIDDEN ? EnumSet.noneOf(ProductStatus.class) : EnumSet.of(productStatus);
+            } catch (IllegalArgumentException e) {
+                // Invalid status, ignore
+            }
+        }
+        return EnumSet.of(ProductStatus.ACTIVE, ProductStatus.OUT_OF_STOCK);
+    }
+    
+    // Lọc theo giá thực tế (cột effective_price = COALESCE(salePrice, price))
+    private Predicate effectivePriceBetween(Expression<Integer> effectivePrice, CriteriaBuilder cb, Integer minPrice, Integer maxPrice) {
+        if (minPrice != null && maxPrice != null) {
+            return cb.between(effectivePrice, minPrice, maxPrice);
+        } else if (minPrice != null) {
+            return cb.greaterThanOrEqualTo(effectivePrice, minPrice);
+        } else if (maxPrice != null) {
+            return cb.lessThanOrEqualTo(effectivePrice, maxPrice);
+        }
+        return null;
+    }
+    
+    // Sắp xếp cho storefront
+    private Sort buildPublicSort(String sortBy) {
+        Sort sort = Sort.by(Sort.Direction.ASC, "name"); // Sắp xếp theo tên mặc định
+        if (sortBy != null && !sortBy.isEmpty()) {
+            if (sortBy.equals("price-asc")) {
+                // Sắp xếp theo giá thực tế (cột effective_price có index), id để thứ tự ổn định giữa các trang
+                sort = Sort.by(Sort.Direction.ASC, "effectivePrice").and(Sort.by(Sort.Direction.ASC, "id"));
+            } else if (sortBy.equals("price-desc")) {
+                sort = Sort.by(Sort.Direction.DESC, "effectivePrice").and(Sort.by(Sort.Direction.ASC, "id"));
+            } else if (sortBy.equals("name")) {
+                sort = Sort.by(Sort.Direction.ASC, "name");
+            } else if (sortBy.equals("trending")) {
+                // Điểm xu hướng/bán chạy được tính sẵn và ghi định kỳ (ProductRankingScores), sắp xếp bằng index
+                sort = Sort.by(Sort.Direction.DESC, "trendingScore").and(Sort.by(Sort.Direction.ASC, "id"));
+            } else if (sortBy.equals("bestseller")) {
+                sort = Sort.by(Sort.Direction.DESC, "bestsellerScore").and(Sort.by(Sort.Direction.ASC, "id"));
+            }
+        }
+        return sort;
+    }
+    
+    // Xây dựng Specification lọc cho admin (null nếu tìm kiếm không có kết quả)
+    private Specification<Product> buildAdminFilter(String searchTerm, String status, Integer minPrice, Integer maxPrice) {
+        Specification<Product> spec = Specification.where(null);
+        
+        // Tìm kiếm theo chỉ mục toàn văn (tên, danh mục, mô tả, chi tiết - không phân biệt dấu)
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            List<Integer> matchedIds = productSearchIndex.search(searchTerm, true);
+            if (matchedIds.isEmpty()) {
+                return null;
+            }
+            spec = spec.and((root, query, cb) -> root.get("id").in(matchedIds));
+        }
+        
+        // Lọc theo trạng thái
+        if (status != null && !status.isEmpty() && !status.equals("all")) {
+            try {
+                ProductStatus productStatus = ProductStatus.valueOf(status);
+                spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), productStatus));
+            } catch (IllegalArgumentException e) {
+                // Invalid status, ignore
+            }
+        }
+        
+        // Lọc theo khoảng giá (giá thực tế)
+        if (minPrice != null || maxPrice != null) {
+            spec = spec.and((root, query, cb) -> effectivePriceBetween(root.get("effectivePrice"), cb, minPrice, maxPrice));
+        }
+        
+        return spec;
+    }
+    
+    // Sắp xếp cho admin
+    private Sort buildAdminSort(String sortBy, String sortOrder) {
+        Sort.Direction direction = (sortOrder != null && sortOrder.equalsIgnoreCase("desc")) 
+            ? Sort.Direction.DESC 
+            : Sort.Direction.ASC;
+        
+        Sort sort = Sort.by(direction, "name"); // Sắp xếp theo tên mặc định
+        if (sortBy != null && !sortBy.isEmpty()) {
+            if (sortBy.equals("price")) {
+                // Sắp xếp theo giá thực tế (salePrice nếu có, nếu không thì price)
+                sort = Sort.by(direction, "effectivePrice").and(Sort.by(Sort.Direction.ASC, "id"));
+            } else if (sortBy.equals("stock")) {
+                sort = Sort.by(direction, "stock");
+            } else if (sortBy.equals("status")) {
+                sort = Sort.by(direction, "status");
+            } else if (sortBy.equals("name")) {
+                sort = Sort.by(direction, "name");
+            }
+        }
+        return sort;
+    }
+    
+    // Kiểu sắp xếp của cursor (name, price-asc, price-desc)
+    private String cursorSortType(String sortBy) {
+        if (sortBy != null && (sortBy.equals("price-asc") || sortBy.equals("price-desc") || isRankingSort(sortBy))) {
+            return sortBy;
+        }
+        return "name";
+    }
+    
+    private boolean isRankingSort(String sortType) {
+        return sortType.equals("trending") || sortType.equals("bestseller");
+    }
+    
+    // Sắp xếp theo (khóa sắp xếp, id) và chỉ lấy các bản ghi nằm sau cursor để vị trí của cursor là duy nhất
+    private Specification<Product> buildCursorFilter(String sortType, CursorUtils.Cursor after) {
+        if (isRankingSort(sortType)) {
+            return buildRankingCursorFilter(sortType.equals("trending") ? "trendingScore" : "bestsellerScore", after);
+        }
+        boolean byPrice = !sortType.equals("name");
+        boolean descending = sortType.equals("price-desc");
+        return (root, query, cb) -> {
+            Expression<Integer> effectivePrice = root.get("effectivePrice");
+            query.orderBy(
+                byPrice ? (descending ? cb.desc(effectivePrice) : cb.asc(effectivePrice)) : cb.asc(root.get("name")),
+                cb.asc(root.get("id"))
+            );
+            if (after == null) {
+                return null;
+            }
+            // key > v OR (key = v AND id > lastId)
+            Predicate sameKeyAfterId;
+            Predicate afterKey;
+            if (byPrice) {
+                Integer lastPrice = after.getSortValueAsInteger();
+                sameKeyAfterId = cb.and(cb.equal(effectivePrice, lastPrice), cb.greaterThan(root.get("id"), after.getId()));
+                afterKey = descending ? cb.lessThan(effectivePrice, lastPrice) : cb.greaterThan(effectivePrice, lastPrice);
+            } else {
+                Expression<String> name = root.get("name");
+                sameKeyAfterId = cb.and(cb.equal(name, after.getSortValue()), cb.greaterThan(root.get("id"), after.getId()));
+                afterKey = cb.greaterThan(name, after.getSortValue());
+            }
+            return cb.or(afterKey, sameKeyAfterId);
+        };
+    }
+    
+    // Sắp xếp theo (điểm giảm dần, id): score < v OR (score = v AND id > lastId)
+    private Specification<Product> buildRankingCursorFilter(String scoreField, CursorUtils.Cursor after) {
+        return (root, query, cb) -> {
+            Expression<Double> score = root.get(scoreField);
+            query.orderBy(cb.desc(score), cb.asc(root.get("id")));
+            if (after == null) {
+                return null;
+            }
+            Double lastScore = after.getSortValueAsDouble();
+            return cb.or(cb.lessThan(score, lastScore),
+                cb.and(cb.equal(score, lastScore), cb.greaterThan(root.get("id"), after.getId())));
+        };
+    }
+    
+    // Cursor trỏ tới sản phẩm cuối trang
+    private String nextCursor(String sortType, Product product) {
+        if (isRankingSort(sortType)) {
+            Double score = sortType.equals("trending") ? product.getTrendingScore() : product.getBestsellerScore();
+            return CursorUtils.encode(sortType, score, product.getId());
+        }
+        return nextCursor(sortType, product.getId(), product.getName(), product.getPrice(), product.getSalePrice());
+    }
+    
+    // Cursor trỏ tới sản phẩm cuối trang (dạng tóm tắt)
+    private String nextCursor(String sortType, ProductSummaryModel summary) {
+        if (isRankingSort(sortType)) {
+            Double score = sortType.equals("trending") ? summary.getTrendingScore() : summary.getBestsellerScore();
+            return CursorUtils.encode(sortType, score, summary.getId());
+        }
+        return nextCursor(sortType, summary.getId(), summary.getName(), summary.getPrice(), summary.getSalePrice());
+    }
+    
+    private String nextCursor(String sortType, Integer id, String name, Integer price, Integer salePrice) {
+        Object lastKey = sortType.equals("name") ? name : (salePrice != null ? salePrice : price);
+        return CursorUtils.encode(sortType, lastKey, id);
+    }
+    
+    // Lấy ID của một trang trong danh sách kết quả tìm kiếm
+    private List<Integer> pageOf(List<Integer> ids, int page, int size) {
+        int from = (int) Math.min((long) page * size, ids.size());
+        int to = Math.min(from + size, ids.size());
+        return ids.subList(from, to);
+    }
+    
+    // Tạo PageResponse từ Page
+    private <T> PageResponseModel<T> toPageResponse(Page<?> page, List<T> content) {
+        PageResponseModel<T> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(page.getNumber());
+        response.setSize(page.getSize());
+        response.setTotalElements(page.getTotalElements());
+        response.setTotalPages(page.getTotalPages());
+        response.setFirst(page.isFirst());
+        response.setLast(page.isLast());
+        return response;
+    }
+    
+    // Trang kết quả tìm kiếm (đã phân trang trên danh sách ID theo điểm)
+    private <T> PageResponseModel<T> searchPage(List<T> content, int totalElements, int page, int size) {
+        int totalPages = (totalElements + size - 1) / size;
+        PageResponseModel<T> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(page);
+        response.setSize(size);
+        response.setTotalElements(totalElements);
+        response.setTotalPages(totalPages);
+        response.setFirst(page == 0);
+        response.setLast(page >= totalPages - 1);
+        return response;
+    }
+    
+    // Trang theo cursor (không có tổng số bản ghi)
+    private <T> PageResponseModel<T> cursorPage(List<T> content, int size, boolean first, String nextCursor) {
+        PageResponseModel<T> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(0);
+        response.setSize(size);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(first);
+        response.setLast(nextCursor == null);
+        response.setNextCursor(nextCursor);
+        return response;
+    }
+    
+    // Trang rỗng (dùng khi tìm kiếm không có kết quả)
+    private <T> PageResponseModel<T> emptyPage(int page, int size) {
+        PageResponseModel<T> response = new PageResponseModel<>();
+        response.setContent(List.of());
+        response.setPage(page);
+        response.setSize(size);
+        response.setTotalElements(0);
+        response.setTotalPages(0);
+        response.setFirst(page == 0);
+        response.setLast(true);
+        return response;
+    }
+    
+    // Lấy danh sách ID sản phẩm trong kết quả (để xóa cache chính xác khi sản phẩm thay đổi)
+    private List<Integer> productIds(List<ProductModel> models) {
+        return models.stream().map(ProductModel::getId).collect(Collectors.toList());
+    }
+    
+    private List<Integer> summaryIds(List<ProductSummaryModel> summaries) {
+        return summaries.stream().map(ProductSummaryModel::getId).collect(Collectors.toList());
+    }
+    
+    // Gán rating cho danh sách sản phẩm dạng tóm tắt (một query cho cả danh sách)
+    private void applyRatings(List<ProductSummaryModel> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        Map<Integer, ProductRatingModel> ratings = Map.of();
+        List<Integer> productIds = summaryIds(summaries);
+        try {
+            ratings = reviewService.getRatingsByProductIds(productIds);
+        } catch (Exception e) {
+            // Nếu có lỗi, dùng giá trị mặc định cho tất cả sản phẩm
+            System.err.println("Error calculating ratings for products " + productIds + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        for (ProductSummaryModel summary : summaries) {
+            ProductRatingModel rating = ratings.get(summary.getId());
+            summary.setAverageRating(rating != null && rating.getAverageRating() != null ? rating.getAverageRating() : 0.0);
+            summary.setReviewCount(rating != null && rating.getReviewCount() != null ? rating.getReviewCount().intValue() : 0);
+            if (summary.getCompletedOrderCount() == null) summary.setCompletedOrderCount(0);
+            if (summary.getSoldQuantity() == null) summary.setSoldQuantity(0);
+        }
+    }
+    
     // Chuyển đổi sản phẩm từ entity sang model với rating
     private ProductModel convertToModel(Product product) {
-        ProductModel model = modelMapper.map(product, ProductModel.class);
-        
-        // Tính rating trung bình, số lượng đánh giá và số lượng đơn hàng đã thành công
-        if (product.getId() != null) {
+        return convertToModels(List.of(product)).get(0);
+    }
+    
+    // Chuyển đổi danh sách sản phẩm sang model, rating của tất cả sản phẩm được tính bằng một query GROUP BY
+    private List<ProductModel> convertToModels(List<Product> products) {
+        Map<Integer, ProductRatingModel> ratings = Map.of();
+        List<Integer> productIds = products.stream()
+            .map(Product::getId)
+            .filter(id -> id != null)
+            .collect(Collectors.toList());
+        if (!productIds.isEmpty()) {
             try {
-                Double averageRating = reviewService.getAverageRating(product.getId());
-                Integer reviewCount = reviewService.getReviewCount(product.getId());
-                model.setAverageRating(averageRating != null ? averageRating : 0.0);
-                model.setReviewCount(reviewCount != null ? reviewCount : 0);
-                
-                model.setCompletedOrderCount(0);
+                ratings = reviewService.getRatingsByProductIds(productIds);
             } catch (Exception e) {
-                // Nếu có lỗi, set giá trị mặc định
-                System.err.println("Error calculating rating for product " + product.getId() + ": " + e.getMessage());
+                // Nếu có lỗi, dùng giá trị mặc định cho tất cả sản phẩm
+                System.err.println("Error calculating ratings for products " + productIds + ": " + e.getMessage());
                 e.printStackTrace();
-                model.setAverageRating(0.0);
-                model.setReviewCount(0);
-                model.setCompletedOrderCount(0);
             }
-        } else {
-            // Product chưa có ID (mới tạo), set giá trị mặc định
-            model.setAverageRating(0.0);
-            model.setReviewCount(0);
-            model.setCompletedOrderCount(0);
         }
         
-        return model;
+        Map<Integer, ProductRatingModel> ratingByProductId = ratings;
+        return products.stream().map(product -> {
+            ProductModel model = ProductMapper.toModel(product);
+            
+            // Sản phẩm chưa có đánh giá (hoặc chưa có ID) sẽ có rating mặc định là 0
+            ProductRatingModel rating = product.getId() != null ? ratingByProductId.get(product.getId()) : null;
+            model.setAverageRating(rating != null && rating.getAverageRating() != null ? rating.getAverageRating() : 0.0);
+            model.setReviewCount(rating != null && rating.getReviewCount() != null ? rating.getReviewCount().intValue() : 0);
+            return model;
+        }).collect(Collectors.toList());
     }
 }
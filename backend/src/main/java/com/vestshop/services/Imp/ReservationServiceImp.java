@@ -0,0 +1,193 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.cache.ReservationHolds;
+import com.vestshop.cache.ReservationHolds.Hold;
+import com.vestshop.config.ReservationConfig;
+import com.vestshop.entity.StockReservation;
+import com.vestshop.enums.ReservationStatus;
+import com.vestshop.models.CreateReservationModel;
+import com.vestshop.models.ReservationItemModel;
+import com.vestshop.models.ReservationModel;
+import com.vestshop.repository.StockReservationRepository;
+import com.vestshop.services.ReservationService;
+import com.vestshop.services.StockService;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Giữ hàng khi khách vào bước thanh toán: tồn kho được trừ ngay lúc giữ (cùng câu UPDATE có điều kiện như đặt hàng),
+// đặt hàng kèm reservationId chỉ trừ/cộng phần chênh lệch, lượt giữ hết hạn được job dọn dẹp trả lại theo lô.
+// Mọi chuyển trạng thái ACTIVE -> CONSUMED/RELEASED/EXPIRED là UPDATE có điều kiện trên stock_reservations
+// nên đặt hàng và job dọn dẹp chạy đồng thời thì chỉ một bên thắng, tồn kho không bị cộng/trừ hai lần
+@Service
+public class ReservationServiceImp implements ReservationService {
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ReservationHolds reservationHolds;
+
+    @Autowired
+    private ReservationConfig reservationConfig;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Nạp các lượt giữ còn ACTIVE khi khởi động (kể cả đã hết hạn trong lúc tắt - job dọn dẹp sẽ trả lại hàng)
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHolds() {
+        List<StockReservation> active = transactionTemplate.execute(status -> reservationRepository.findByStatus(ReservationStatus.ACTIVE));
+        active.forEach(reservation -> reservationHolds.add(toHold(reservation)));
+        System.out.println("Loaded " + active.size() + " active stock reservations");
+    }
+
+    @Override
+    @Transactional
+    public ReservationModel createReservation(String username, CreateReservationModel model) {
+        SortedMap<Integer, Integer> quantityByProduct = new TreeMap<>();
+        model.getItems().forEach(item -> quantityByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        if (quantityByProduct.size() > reservationConfig.getMaxItems()) {
+            throw new RuntimeException("Số sản phẩm giữ hàng không hợp lệ (tối đa " + reservationConfig.getMaxItems() + ")");
+        }
+        if (quantityByProduct.values().stream().anyMatch(quantity -> quantity > reservationConfig.getMaxQuantityPerItem())) {
+            throw new RuntimeException("Số lượng giữ hàng không hợp lệ (tối đa " + reservationConfig.getMaxQuantityPerItem() + " mỗi sản phẩm)");
+        }
+
+        // Mỗi khách một lượt giữ: lượt cũ được trả lại trong cùng transaction, cộng/trừ gộp thành một batch
+        SortedMap<Integer, Integer> deltaByProduct = new TreeMap<>(quantityByProduct);
+        Hold previous = reservationHolds.getByUsername(username);
+        if (previous != null && reservationRepository.closeActive(previous.getId(), ReservationStatus.RELEASED, LocalDateTime.now()) == 1) {
+            previous.getQuantities().forEach((productId, quantity) -> deltaByProduct.merge(productId, -quantity, Integer::sum));
+            deltaByProduct.values().removeIf(delta -> delta == 0);
+            TransactionUtils.afterCommit(() -> reservationHolds.remove(previous.getId()));
+        }
+        stockService.adjustStocks(deltaByProduct);
+
+        StockReservation reservation = reservationRepository.save(StockReservation.builder()
+            .id(UUID.randomUUID().toString())
+            .username(username)
+            .status(ReservationStatus.ACTIVE)
+            .quantities(quantityByProduct)
+            .expiresAt(LocalDateTime.now().plusMinutes(reservationConfig.getTtlMinutes()))
+            .build());
+        Hold hold = toHold(reservation);
+        TransactionUtils.afterCommit(() -> reservationHolds.add(hold));
+        return toModel(reservation);
+    }
+
+    @Override
+    @Transactional
+    public void releaseReservation(String username, String reservationId) {
+        Hold hold = reservationHolds.get(reservationId);
+        if (hold == null || !hold.getUsername().equals(username)
+                || reservationRepository.closeActive(reservationId, ReservationStatus.RELEASED, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Lượt giữ hàng không tồn tại hoặc đã hết hạn");
+        }
+        stockService.adjustStocks(negate(hold.getQuantities()));
+        TransactionUtils.afterCommit(() -> reservationHolds.remove(reservationId));
+    }
+
+    @Override
+    @Transactional
+    public SortedMap<Integer, Integer> consumeReservation(String username, String reservationId) {
+        // Lượt giữ không còn (đã dùng/hủy, đã được job trả lại hàng, ID lạ): coi như đơn không có lượt giữ,
+        // đơn trừ đủ số lượng như bình thường thay vì thất bại khi khách thanh toán chậm
+        Hold hold = reservationHolds.get(reservationId);
+        if (hold != null && !hold.getUsername().equals(username)) {
+            throw new RuntimeException("Lượt giữ hàng không hợp lệ");
+        }
+        if (hold == null || reservationRepository.consumeActive(reservationId, username) == 0) {
+            return new TreeMap<>();
+        }
+        TransactionUtils.afterCommit(() -> reservationHolds.remove(reservationId));
+        return hold.getQuantities();
+    }
+
+    // Trả lại hàng của các lượt giữ hết hạn, mỗi lô một transaction:
+    // khóa các lượt vẫn còn ACTIVE (lượt vừa được dùng/hủy bị bỏ qua), chuyển sang EXPIRED
+    // và cộng lại tồn kho của cả lô bằng một batch
+    @Scheduled(fixedDelayString = "${reservations.sweep-interval-ms:5000}")
+    public void releaseExpiredReservations() {
+        long now = System.currentTimeMillis();
+        int batchSize = reservationConfig.getSweepBatchSize();
+        int released = 0;
+        while (true) {
+            List<Hold> expired = reservationHolds.findExpired(now, batchSize);
+            if (expired.isEmpty()) {
+                break;
+            }
+            Map<String, Hold> expiredById = expired.stream().collect(Collectors.toMap(Hold::getId, Function.identity()));
+            try {
+                released += transactionTemplate.execute(status -> {
+                    List<String> lockedIds = reservationRepository.lockActiveIds(expiredById.keySet());
+                    if (lockedIds.isEmpty()) {
+                        return 0;
+                    }
+                    reservationRepository.updateStatuses(lockedIds, ReservationStatus.EXPIRED);
+                    SortedMap<Integer, Integer> deltaByProduct = new TreeMap<>();
+                    lockedIds.forEach(id -> expiredById.get(id).getQuantities()
+                        .forEach((productId, quantity) -> deltaByProduct.merge(productId, -quantity, Integer::sum)));
+                    stockService.adjustStocks(deltaByProduct);
+                    return lockedIds.size();
+                });
+            } catch (RuntimeException e) {
+                System.err.println("Failed to release expired stock reservations: " + e.getMessage());
+                break;
+            }
+            expiredById.keySet().forEach(reservationHolds::remove);
+            if (expired.size() < batchSize) {
+                break;
+            }
+        }
+        if (released > 0) {
+            System.out.println("Released " + released + " expired stock reservations");
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return reservationHolds.getStats();
+    }
+
+    private SortedMap<Integer, Integer> negate(SortedMap<Integer, Integer> quantityByProduct) {
+        SortedMap<Integer, Integer> result = new TreeMap<>();
+        quantityByProduct.forEach((productId, quantity) -> result.put(productId, -quantity));
+        return result;
+    }
+
+    private Hold toHold(StockReservation reservation) {
+        long expiresAt = reservation.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new Hold(reservation.getId(), reservation.getUsername(), expiresAt, new TreeMap<>(reservation.getQuantities()));
+    }
+
+    private ReservationModel toModel(StockReservation reservation) {
+        return ReservationModel.builder()
+            .id(reservation.getId())
+            .status(reservation.getStatus())
+            .items(new TreeMap<>(reservation.getQuantities()).entrySet().stream()
+                .map(entry -> new ReservationItemModel(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList()))
+            .expiresAt(reservation.getExpiresAt())
+            .build();
+    }
+}
@@ -1,31 +1,47 @@
 package com.vestshop.services.Imp;
 
+import com.vestshop.cache.CatalogCache;
 import com.vestshop.entity.Order;
 import com.vestshop.entity.OrderItem;
 import com.vestshop.entity.Product;
+import com.vestshop.entity.ProductRatingSummary;
 import com.vestshop.entity.Review;
 import com.vestshop.entity.User;
 import com.vestshop.enums.OrderStatus;
 import com.vestshop.enums.ReviewStatus;
+import com.vestshop.models.CacheValidatorModel;
+import com.vestshop.models.ProductRatingModel;
 import com.vestshop.models.ReviewModel;
 import com.vestshop.repository.OrderRepository;
+import com.vestshop.repository.ProductRatingSummaryRepository;
 import com.vestshop.repository.ProductRepository;
 import com.vestshop.repository.ReviewRepository;
 import com.vestshop.repository.UserRepository;
+import com.vestshop.search.ProductRankingScores;
 import com.vestshop.services.ReviewService;
-import org.modelmapper.ModelMapper;
+import com.vestshop.utils.CursorUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import org.springframework.data.domain.PageImpl;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.mappers.ReviewMapper;
 
 @Service
 public class ReviewServiceImp implements ReviewService {
@@ -43,7 +59,20 @@ public class ReviewServiceImp implements ReviewService {
     private OrderRepository orderRepository;
     
     @Autowired
-    private ModelMapper modelMapper;
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private CatalogCache catalogCache;
+    
+    @Autowired
+    private ProductRankingScores productRankingScores;
+    
+    // Số sản phẩm xử lý trong mỗi transaction khi tính lại bảng tổng hợp rating
+    private static final int RATING_SUMMARY_REBUILD_CHUNK_SIZE = 500;
+    
     
     // Tạo đánh giá mới
     @Override
@@ -77,6 +106,8 @@ public class ReviewServiceImp implements ReviewService {
                 .build();
         
         Review savedReview = reviewRepository.save(review);
+        applyRatingChange(productId, savedReview.getRating(), 1);
+        productRankingScores.recordReview(productId);
         return convertToModel(savedReview);
     }
     
@@ -95,6 +126,23 @@ public class ReviewServiceImp implements ReviewService {
                 .collect(Collectors.toList());
     }
     
+    // ETag/Last-Modified cho danh sách đánh giá của sản phẩm:
+    // số đánh giá + updatedAt mới nhất (thêm/sửa/ẩn/xóa) và mốc thay đổi của sản phẩm (tên sản phẩm, rating)
+    @Override
+    @Transactional(readOnly = true)
+    public CacheValidatorModel getProductReviewsValidator(Integer productId) {
+        CacheValidatorModel productValidator = catalogCache.getProductValidator(productId);
+        Object[] row = reviewRepository.findLastChangeByProductIdAndStatus(productId, ReviewStatus.ACTIVE).get(0);
+        long count = (Long) row[0];
+        LocalDateTime lastUpdatedAt = (LocalDateTime) row[1];
+        long reviewsModified = lastUpdatedAt != null ? lastUpdatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+        
+        // Ghép phần giữa W/"..." của ETag sản phẩm vào ETag danh sách đánh giá
+        String productTag = productValidator.getEtag().substring(3, productValidator.getEtag().length() - 1);
+        String etag = "W/\"reviews-" + count + "-" + reviewsModified + "-" + productTag + "\"";
+        return new CacheValidatorModel(etag, Math.max(reviewsModified, productValidator.getLastModified()));
+    }
+    
     // Lấy tất cả đánh giá của sản phẩm (bao gồm cả HIDDEN - cho admin)
     @Override
     @Transactional(readOnly = true)
@@ -134,6 +182,13 @@ public class ReviewServiceImp implements ReviewService {
             throw new RuntimeException("Bạn không có quyền sửa đánh giá này");
         }
         
+        // Cập nhật bảng tổng hợp rating nếu số sao của đánh giá đang hiển thị thay đổi
+        Integer oldRating = review.getRating();
+        if (review.getStatus() == ReviewStatus.ACTIVE && !oldRating.equals(reviewModel.getRating())) {
+            applyRatingChange(review.getProduct().getId(), oldRating, -1);
+            applyRatingChange(review.getProduct().getId(), reviewModel.getRating(), 1);
+        }
+        
         // Cập nhật thông tin
         review.setRating(reviewModel.getRating());
         review.setComment(reviewModel.getComment());
@@ -155,6 +210,9 @@ public class ReviewServiceImp implements ReviewService {
         }
         
         // Soft delete - đổi status thành DELETED
+        if (review.getStatus() == ReviewStatus.ACTIVE) {
+            applyRatingChange(review.getProduct().getId(), review.getRating(), -1);
+        }
         review.setStatus(ReviewStatus.DELETED);
         reviewRepository.save(review);
     }
@@ -215,6 +273,12 @@ public class ReviewServiceImp implements ReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new RuntimeException("Đánh giá không tồn tại"));
         
+        // Chỉ đánh giá ACTIVE được tính vào rating của sản phẩm
+        boolean wasActive = review.getStatus() == ReviewStatus.ACTIVE;
+        boolean isActive = status == ReviewStatus.ACTIVE;
+        if (wasActive != isActive) {
+            applyRatingChange(review.getProduct().getId(), review.getRating(), isActive ? 1 : -1);
+        }
         review.setStatus(status);
         Review updatedReview = reviewRepository.save(review);
         return convertToModel(updatedReview);
@@ -227,6 +291,9 @@ public class ReviewServiceImp implements ReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new RuntimeException("Đánh giá không tồn tại"));
         
+        if (review.getStatus() == ReviewStatus.ACTIVE) {
+            applyRatingChange(review.getProduct().getId(), review.getRating(), -1);
+        }
         reviewRepository.delete(review);
     }
     
@@ -234,21 +301,109 @@ public class ReviewServiceImp implements ReviewService {
     @Override
     @Transactional(readOnly = true)
     public Double getAverageRating(Integer productId) {
-        List<Review> reviews = reviewRepository.findByProductIdAndStatus(productId, ReviewStatus.ACTIVE);
-        if (reviews.isEmpty()) {
-            return 0.0;
-        }
-        double sum = reviews.stream()
-                .mapToInt(Review::getRating)
-                .sum();
-        return sum / reviews.size();
+        ProductRatingModel rating = getRatingsByProductIds(List.of(productId)).get(productId);
+        return rating != null ? rating.getAverageRating() : 0.0;
     }
     
     // Đếm số lượng đánh giá của sản phẩm
     @Override
     @Transactional(readOnly = true)
     public Integer getReviewCount(Integer productId) {
-        return reviewRepository.countByProductIdAndStatus(productId, ReviewStatus.ACTIVE);
+        ProductRatingModel rating = getRatingsByProductIds(List.of(productId)).get(productId);
+        return rating != null ? rating.getReviewCount().intValue() : 0;
+    }
+    
+    // Lấy rating trung bình và số lượng đánh giá của nhiều sản phẩm từ bảng tổng hợp (một query theo khóa chính)
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, ProductRatingModel> getRatingsByProductIds(Collection<Integer> productIds) {
+        Map<Integer, ProductRatingModel> ratings = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return ratings;
+        }
+        ratingSummaryRepository.findAllById(productIds).forEach(summary -> {
+            double average = summary.getRatingCount() > 0
+                    ? (double) summary.getRatingSum() / summary.getRatingCount()
+                    : 0.0;
+            ratings.put(summary.getProductId(),
+                    new ProductRatingModel(summary.getProductId(), average, summary.getRatingCount().longValue()));
+        });
+        return ratings;
+    }
+    
+    // Admin: Tính lại bảng tổng hợp rating từ bảng reviews (dùng để khôi phục khi dữ liệu lệch)
+    @Override
+    public int rebuildRatingSummaries() {
+        int processed = 0;
+        Integer lastId = 0;
+        while (true) {
+            List<Integer> productIds = productRepository.findIdsAfter(lastId, PageRequest.of(0, RATING_SUMMARY_REBUILD_CHUNK_SIZE));
+            if (productIds.isEmpty()) {
+                break;
+            }
+            // Mỗi khối chạy trong transaction riêng để không giữ khóa quá lâu
+            transactionTemplate.executeWithoutResult(tx -> rebuildRatingSummaryChunk(productIds));
+            processed += productIds.size();
+            lastId = productIds.get(productIds.size() - 1);
+        }
+        catalogCache.evictAll();
+        return processed;
+    }
+    
+    // Tính lại bảng tổng hợp khi khởi động nếu bảng còn trống (dữ liệu đánh giá có từ trước khi có bảng này)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initRatingSummaries() {
+        if (ratingSummaryRepository.count() == 0 && reviewRepository.count() > 0) {
+            int processed = rebuildRatingSummaries();
+            System.out.println("Rebuilt product rating summaries for " + processed + " products");
+        }
+    }
+    
+    // Tính lại tổng hợp rating cho một khối sản phẩm
+    private void rebuildRatingSummaryChunk(List<Integer> productIds) {
+        // Khóa các dòng tổng hợp trước khi đếm để các cập nhật đồng thời chờ khối này xong
+        ratingSummaryRepository.insertMissing(productIds);
+        Map<Integer, ProductRatingSummary> summaries = new HashMap<>();
+        ratingSummaryRepository.findAllByProductIdInForUpdate(productIds).forEach(summary -> {
+            summary.setRatingSum(0L);
+            summary.setRatingCount(0);
+            summary.setStar1Count(0);
+            summary.setStar2Count(0);
+            summary.setStar3Count(0);
+            summary.setStar4Count(0);
+            summary.setStar5Count(0);
+            summaries.put(summary.getProductId(), summary);
+        });
+        
+        for (Object[] row : reviewRepository.countRatingsByProductIdsAndStatus(productIds, ReviewStatus.ACTIVE)) {
+            ProductRatingSummary summary = summaries.get((Integer) row[0]);
+            int rating = (Integer) row[1];
+            int count = ((Long) row[2]).intValue();
+            if (summary == null) {
+                continue;
+            }
+            summary.setRatingSum(summary.getRatingSum() + (long) rating * count);
+            summary.setRatingCount(summary.getRatingCount() + count);
+            switch (rating) {
+                case 1 -> summary.setStar1Count(count);
+                case 2 -> summary.setStar2Count(count);
+                case 3 -> summary.setStar3Count(count);
+                case 4 -> summary.setStar4Count(count);
+                case 5 -> summary.setStar5Count(count);
+                default -> { }
+            }
+        }
+        ratingSummaryRepository.saveAll(summaries.values());
+    }
+    
+    // Cộng/trừ một đánh giá ACTIVE vào bảng tổng hợp rating (chạy trong transaction của thao tác đánh giá)
+    private void applyRatingChange(Integer productId, Integer rating, int delta) {
+        if (productId == null || rating == null) {
+            return;
+        }
+        ratingSummaryRepository.insertMissing(List.of(productId));
+        ratingSummaryRepository.applyRating(productId, rating, delta);
+        catalogCache.evictProduct(productId);
     }
     
     // Kiểm tra user đã đánh giá sản phẩm chưa
@@ -295,53 +450,15 @@ public class ReviewServiceImp implements ReviewService {
     @Override
     @Transactional(readOnly = true)
     public Integer getCompletedOrderCount(Integer productId) {
-        // Lấy tất cả đơn hàng đã thành công
-        List<Order> completedOrders = orderRepository.findByStatus(OrderStatus.COMPLETED);
-        
-        completedOrders.forEach(order -> {
-            if (order.getItems() != null) {
-                order.getItems().size(); 
-                order.getItems().forEach(item -> {
-                    if (item.getProduct() != null) {
-                        item.getProduct().getId(); 
-                    }
-                });
-            }
-        });
-        
-        // Đếm số lượng đơn hàng chứa sản phẩm này
-        Integer count = (int) completedOrders.stream()
-                .filter(order -> {
-                    if (order.getItems() != null) {
-                        return order.getItems().stream()
-                                .anyMatch(item -> item.getProduct() != null && 
-                                        item.getProduct().getId().equals(productId));
-                    }
-                    return false;
-                })
-                .count();
-        
-        return count;
+        // Đọc từ bộ đếm bán hàng được cập nhật khi đơn hàng vào/ra trạng thái COMPLETED
+        return productRepository.findById(productId)
+                .map(Product::getCompletedOrderCount)
+                .orElse(0);
     }
     
     // Phương thức trợ giúp để chuyển đổi từ Entity sang Model
     private ReviewModel convertToModel(Review review) {
-        ReviewModel model = modelMapper.map(review, ReviewModel.class);
-        
-        // Set product info
-        if (review.getProduct() != null) {
-            model.setProductId(review.getProduct().getId());
-            model.setProductName(review.getProduct().getName());
-        }
-        
-        // Set user info
-        if (review.getUser() != null) {
-            model.setUserId(review.getUser().getUserId());
-            model.setUserFullname(review.getUser().getFullname());
-            model.setUsername(review.getUser().getUsername());
-        }
-        
-        return model;
+        return ReviewMapper.toModel(review);
     }
     
     // Admin: Lấy tất cả đánh giá có phân trang (có filter) 
@@ -454,5 +571,64 @@ public class ReviewServiceImp implements ReviewService {
         
         return response;
     }
+    
+    // Admin: Lấy tất cả đánh giá theo cursor (keyset pagination theo ngày tạo giảm dần, có filter)
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponseModel<ReviewModel> getAllReviewsByCursor(String cursor, int size, Integer productId, Integer userId, ReviewStatus status) {
+        if (size < 1) size = 10; // Kích thước mặc định là 10
+        
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, "createdAt");
+        
+        // Lọc trong database thay vì lọc trên toàn bộ danh sách trong bộ nhớ
+        Specification<Review> spec = Specification.where(null);
+        if (productId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("product").get("id"), productId));
+        }
+        if (userId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("user").get("userId"), userId));
+        }
+        if (status != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+        if (after != null) {
+            // createdAt < v OR (createdAt = v AND id < lastId)
+            LocalDateTime lastCreatedAt = after.getSortValueAsDateTime();
+            spec = spec.and((root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), lastCreatedAt),
+                cb.and(cb.equal(root.get("createdAt"), lastCreatedAt), cb.lessThan(root.get("id"), after.getId()))
+            ));
+        }
+        
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không (không cần COUNT)
+        int pageSize = size;
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+        List<Review> reviews = reviewRepository.findBy(spec, q -> q.sortBy(sort).limit(pageSize + 1).all());
+        boolean hasNext = reviews.size() > size;
+        if (hasNext) {
+            reviews = reviews.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Review lastReview = reviews.get(reviews.size() - 1);
+            nextCursor = CursorUtils.encode("createdAt", lastReview.getCreatedAt(), lastReview.getId());
+        }
+        
+        List<ReviewModel> content = reviews.stream()
+            .map(this::convertToModel)
+            .collect(Collectors.toList());
+        
+        // Tạo PageResponse (chế độ cursor không đếm tổng số bản ghi)
+        PageResponseModel<ReviewModel> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(0);
+        response.setSize(size);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(after == null);
+        response.setLast(nextCursor == null);
+        response.setNextCursor(nextCursor);
+        
+        return response;
+    }
 }
-
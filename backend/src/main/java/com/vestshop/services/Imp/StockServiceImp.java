@@ -0,0 +1,324 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.cache.CatalogCache;
+import com.vestshop.cache.HotSkuInventory;
+import com.vestshop.config.FlashSaleConfig;
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.search.ProductSearchIndex;
+import com.vestshop.services.StockService;
+import com.vestshop.utils.TransactionUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+@Service
+public class StockServiceImp implements StockService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+
+    @Autowired
+    private FlashSaleConfig flashSaleConfig;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Nạp tồn kho của các sản phẩm flash sale khi khởi động: stock trong database trừ phần ledger chưa ghi
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFlashSaleProducts() {
+        Map<Integer, Integer> pending = pendingLedgerQuantities(null);
+        List<Object[]> rows = jdbcTemplate.query("SELECT id, stock FROM products WHERE flash_sale = TRUE",
+            (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getInt(2) });
+        for (Object[] row : rows) {
+            Integer productId = (Integer) row[0];
+            hotSkuInventory.enable(productId, (Integer) row[1] - pending.getOrDefault(productId, 0));
+        }
+        System.out.println("Loaded " + rows.size() + " flash sale products");
+    }
+
+    // Sản phẩm flash sale: trừ/cộng trên bộ đếm trong bộ nhớ và ghi một dòng ledger (không đụng dòng products),
+    // bộ đếm được hoàn lại nếu transaction rollback. Sản phẩm đang được tắt flash sale thì đợi tắt xong
+    // rồi đi theo đường của sản phẩm thường.
+    // Sản phẩm thường: mỗi sản phẩm một UPDATE có điều kiện (stock >= số trừ) thay vì đọc-trừ-ghi trong Java:
+    // các đơn đồng thời cho cùng sản phẩm không ghi đè lẫn nhau và không bao giờ bán vượt tồn kho.
+    // Các dòng đi theo ID tăng dần (mọi transaction khóa sản phẩm cùng một thứ tự nên không deadlock)
+    // và được gửi chung một JDBC batch
+    @Override
+    @Transactional
+    public void adjustStocks(SortedMap<Integer, Integer> deltaByProduct) {
+        SortedMap<Integer, Integer> rowDeltas = new TreeMap<>(deltaByProduct);
+        if (!hotSkuInventory.isEmpty()) {
+            // Khi transaction kết thúc: hoàn lại bộ đếm nếu rollback, rồi exit các sản phẩm đã enter
+            SortedMap<Integer, Integer> hotDeltas = new TreeMap<>();
+            SortedMap<Integer, Integer> applied = new TreeMap<>();
+            TransactionUtils.afterRollback(() -> revertHotStocks(applied));
+            TransactionUtils.afterCompletion(() -> hotDeltas.keySet().forEach(hotSkuInventory::exit));
+            deltaByProduct.forEach((productId, delta) -> {
+                if (hotSkuInventory.enter(productId, flashSaleConfig.getDrainTimeoutMs())) {
+                    hotDeltas.put(productId, delta);
+                    rowDeltas.remove(productId);
+                }
+            });
+            if (!hotDeltas.isEmpty()) {
+                adjustHotStocks(hotDeltas, applied);
+            }
+        }
+        updateStockRows(rowDeltas, true);
+    }
+
+    // applied: phần đã trừ/cộng trên bộ đếm, được hoàn lại nếu transaction rollback
+    private void adjustHotStocks(SortedMap<Integer, Integer> hotDeltas, SortedMap<Integer, Integer> applied) {
+        for (Map.Entry<Integer, Integer> entry : hotDeltas.entrySet()) {
+            Integer productId = entry.getKey();
+            int delta = entry.getValue();
+            boolean ok = delta > 0 ? hotSkuInventory.tryTake(productId, delta) : hotSkuInventory.give(productId, -delta);
+            if (!ok) {
+                // Trả lại phần đã trừ của các sản phẩm trước đó trong cùng lần gọi
+                revertHotStocks(applied);
+                applied.clear();
+                Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Sản phẩm không tồn tại: " + productId));
+                throw new RuntimeException("Sản phẩm '" + product.getName() + "' không đủ số lượng. Còn lại: "
+                    + Math.max(hotSkuInventory.getAvailable(productId), 0) + ", Yêu cầu: " + delta);
+            }
+            applied.put(productId, delta);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = hotDeltas.entrySet().stream()
+            .map(entry -> new Object[] { entry.getKey(), entry.getValue(), now })
+            .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO stock_ledger (product_id, quantity, created_at) VALUES (?, ?, ?)",
+            batchArgs, new int[] { Types.INTEGER, Types.INTEGER, Types.TIMESTAMP });
+    }
+
+    private void revertHotStocks(SortedMap<Integer, Integer> applied) {
+        applied.forEach((productId, delta) -> {
+            if (delta > 0) {
+                hotSkuInventory.give(productId, delta);
+            } else {
+                hotSkuInventory.tryTake(productId, -delta);
+            }
+        });
+    }
+
+    // status gán trước stock để mọi DB đều so với tồn kho cũ:
+    // trừ hết hàng -> OUT_OF_STOCK, cộng lại cho sản phẩm đang hết hàng -> ACTIVE.
+    // guarded = true: chỉ cập nhật khi đủ hàng và sản phẩm không bật flash sale (tồn kho của sản phẩm flash sale
+    // nằm trong bộ nhớ, kể cả khi vừa được bật bởi transaction khác)
+    private void updateStockRows(SortedMap<Integer, Integer> deltaByProduct, boolean guarded) {
+        if (deltaByProduct.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = deltaByProduct.entrySet().stream()
+            .map(entry -> {
+                Integer delta = entry.getValue();
+                return guarded
+                    ? new Object[] { delta, delta, delta, delta, delta, entry.getKey(), delta }
+                    : new Object[] { delta, delta, delta, delta, delta, entry.getKey() };
+            })
+            .collect(Collectors.toList());
+        String sql = "UPDATE products SET status = CASE " +
+            "WHEN ? > 0 AND stock <= ? THEN 'OUT_OF_STOCK' " +
+            "WHEN ? < 0 AND status = 'OUT_OF_STOCK' AND stock - ? > 0 THEN 'ACTIVE' " +
+            "ELSE status END, stock = stock - ? WHERE id = ?";
+        int[] updated = guarded
+            ? jdbcTemplate.batchUpdate(sql + " AND stock >= ? AND flash_sale = FALSE", batchArgs,
+                new int[] { Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER })
+            : jdbcTemplate.batchUpdate(sql, batchArgs,
+                new int[] { Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER });
+
+        int index = 0;
+        for (Map.Entry<Integer, Integer> entry : deltaByProduct.entrySet()) {
+            // 0 dòng bị ảnh hưởng = không tồn tại hoặc không đủ hàng, transaction rollback cả các dòng đã trừ trước đó.
+            // Riêng cộng lại hàng (hủy đơn, trả lượt giữ) cho sản phẩm đã bị xóa thì bỏ qua: không còn gì để cộng,
+            // và nếu báo lỗi thì cả lô của job dọn dẹp lượt giữ bị rollback mãi mãi
+            if (guarded && updated[index++] == 0) {
+                Product product = productRepository.findById(entry.getKey()).orElse(null);
+                if (product == null && entry.getValue() < 0) {
+                    System.out.println("Skip restoring stock of deleted product " + entry.getKey());
+                    continue;
+                }
+                if (product == null) {
+                    throw new RuntimeException("Sản phẩm không tồn tại: " + entry.getKey());
+                }
+                entityManager.refresh(product);
+                throw new RuntimeException("Sản phẩm '" + product.getName() + "' không đủ số lượng. Còn lại: " + product.getStock() + ", Yêu cầu: " + entry.getValue());
+            }
+        }
+
+        // Xóa cache và cập nhật trạng thái trong search index theo giá trị mới trong DB (một query cho cả lô).
+        // Entity Product trong persistence context không bị sửa nên không bị Hibernate ghi đè lại
+        for (Object[] row : productRepository.findStatusesByIds(deltaByProduct.keySet())) {
+            Integer productId = (Integer) row[0];
+            ProductStatus status = (ProductStatus) row[1];
+            catalogCache.evictProduct(productId, previousStatus(status, (Integer) row[2], deltaByProduct.get(productId)), status);
+            productSearchIndex.updateStatus(productId, status);
+        }
+    }
+
+    // Trạng thái trước câu UPDATE của updateStockRows, suy ra từ giá trị mới (dòng đang bị khóa nên không lệch):
+    // câu UPDATE chỉ đổi sang OUT_OF_STOCK khi trừ hết hàng và sang ACTIVE khi cộng lại cho sản phẩm đang hết hàng
+    private ProductStatus previousStatus(ProductStatus status, Integer stock, int delta) {
+        if (delta > 0 && status == ProductStatus.OUT_OF_STOCK && stock != null && stock <= 0) {
+            return ProductStatus.ACTIVE;
+        }
+        if (delta < 0 && status == ProductStatus.ACTIVE && stock != null && stock + delta <= 0) {
+            return ProductStatus.OUT_OF_STOCK;
+        }
+        return status;
+    }
+
+    // Ghi ledger xuống products.stock theo chu kỳ (write-behind), mỗi lô một transaction
+    @Scheduled(fixedDelayString = "${flash-sale.flush-interval-ms:1000}")
+    public void flushStockLedger() {
+        try {
+            int flushed;
+            do {
+                flushed = transactionTemplate.execute(status -> flushLedgerBatch(null));
+            } while (flushed >= flashSaleConfig.getFlushBatchSize());
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush stock ledger: " + e.getMessage());
+        }
+    }
+
+    // Cộng dồn một lô dòng ledger theo sản phẩm vào products.stock rồi xóa các dòng đó.
+    // Khóa theo cùng thứ tự với setFlashSale và đơn hàng: dòng products (ID tăng dần) trước, dòng ledger sau -
+    // đọc lô không khóa, khóa các sản phẩm liên quan, rồi khóa và đọc lại đúng các dòng ledger đó
+    // (dòng đã được transaction khác ghi và xóa trong lúc chờ khóa thì không còn).
+    // Xóa theo đúng các ID đã đọc (không xóa theo khoảng) để dòng của đơn hàng commit sau không bị mất
+    private int flushLedgerBatch(Integer productId) {
+        List<Object[]> batch = productId == null
+            ? jdbcTemplate.query("SELECT id, product_id FROM stock_ledger ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getInt(2) }, flashSaleConfig.getFlushBatchSize())
+            : jdbcTemplate.query("SELECT id, product_id FROM stock_ledger WHERE product_id = ? ORDER BY id",
+                (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getInt(2) }, productId);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        productRepository.lockStockAndPrices(batch.stream().map(row -> (Integer) row[1]).collect(Collectors.toCollection(TreeSet::new)));
+        List<Object[]> rows = namedParameterJdbcTemplate.query(
+            "SELECT id, product_id, quantity FROM stock_ledger WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+            new MapSqlParameterSource("ids", batch.stream().map(row -> (Long) row[0]).collect(Collectors.toList())),
+            (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getInt(2), rs.getInt(3) });
+        if (rows.isEmpty()) {
+            return batch.size();
+        }
+        SortedMap<Integer, Integer> deltaByProduct = new TreeMap<>();
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((Long) row[0]);
+            deltaByProduct.merge((Integer) row[1], (Integer) row[2], Integer::sum);
+        }
+        deltaByProduct.values().removeIf(delta -> delta == 0);
+        updateStockRows(deltaByProduct, false);
+        namedParameterJdbcTemplate.update("DELETE FROM stock_ledger WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids));
+        return batch.size();
+    }
+
+    // Tổng số lượng trong ledger chưa ghi theo sản phẩm
+    private Map<Integer, Integer> pendingLedgerQuantities(Integer productId) {
+        Map<Integer, Integer> pending = new HashMap<>();
+        String sql = "SELECT product_id, SUM(quantity) FROM stock_ledger" + (productId != null ? " WHERE product_id = ?" : "") + " GROUP BY product_id";
+        Object[] args = productId != null ? new Object[] { productId } : new Object[0];
+        jdbcTemplate.query(sql, rs -> {
+            pending.put(rs.getInt(1), rs.getInt(2));
+        }, args);
+        return pending;
+    }
+
+    // Bật: khóa dòng products, bật cờ và nạp tồn kho vào bộ nhớ ngay trong transaction (đơn hàng đến sau đó
+    // đi qua bộ đếm, đơn đang chờ khóa dòng sẽ không khớp điều kiện flash_sale = FALSE nên không trừ hai lần).
+    // Tắt: đóng bộ đếm và đợi các đơn đang trừ bộ đếm commit (trước khi khóa dòng products, vì đơn hàng cũng cần
+    // dòng đó khi ghi order_items), rồi khóa dòng, ghi hết ledger của sản phẩm xuống stock và tắt cờ.
+    // Nhờ vậy mọi dòng ledger của sản phẩm đều được ghi trước khi đơn mới đi qua UPDATE có điều kiện, không bán vượt.
+    // Bộ đếm được bỏ sau khi commit (đơn đang đợi chuyển sang trừ dòng products), mở lại nếu rollback
+    @Override
+    @Transactional
+    public Map<String, Object> setFlashSale(Integer productId, boolean enabled) {
+        if (!enabled && hotSkuInventory.isHot(productId)) {
+            if (!hotSkuInventory.close(productId, flashSaleConfig.getDrainTimeoutMs())) {
+                throw new RuntimeException("Còn đơn hàng flash sale đang xử lý, vui lòng thử lại");
+            }
+            TransactionUtils.afterCommit(() -> hotSkuInventory.disable(productId));
+            TransactionUtils.afterRollback(() -> hotSkuInventory.reopen(productId));
+        }
+        List<Object[]> locked = productRepository.lockStockAndPrices(List.of(productId));
+        if (locked.isEmpty()) {
+            throw new RuntimeException("Sản phẩm không tồn tại");
+        }
+        int stock = ((Number) locked.get(0)[1]).intValue();
+        if (enabled) {
+            jdbcTemplate.update("UPDATE products SET flash_sale = TRUE WHERE id = ?", productId);
+            // Bộ đếm đang đóng = lần tắt trước đã commit nhưng chưa kịp bỏ bộ đếm: enter đợi bỏ xong rồi nạp lại
+            boolean hot = hotSkuInventory.enter(productId, flashSaleConfig.getDrainTimeoutMs());
+            if (hot) {
+                hotSkuInventory.exit(productId);
+            } else {
+                hotSkuInventory.enable(productId, stock - pendingLedgerQuantities(productId).getOrDefault(productId, 0));
+                TransactionUtils.afterRollback(() -> hotSkuInventory.disable(productId));
+            }
+        } else {
+            flushLedgerBatch(productId);
+            jdbcTemplate.update("UPDATE products SET flash_sale = FALSE WHERE id = ?", productId);
+        }
+        catalogCache.evictProduct(productId);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("productId", productId);
+        result.put("flashSale", enabled);
+        result.put("stock", enabled ? hotSkuInventory.getAvailable(productId)
+            : jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId));
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> getFlashSaleStats() {
+        Map<String, Object> stats = hotSkuInventory.getStats();
+        stats.put("pendingLedgerRows", jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_ledger", Long.class));
+        return stats;
+    }
+}
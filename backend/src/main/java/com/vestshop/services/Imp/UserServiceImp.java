@@ -7,6 +7,7 @@ import com.vestshop.enums.UserStatus;
 import com.vestshop.models.UserModel;
 import com.vestshop.repository.UserRepository;
 import com.vestshop.services.UserService;
+import com.vestshop.utils.CursorUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -18,6 +19,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.mappers.UserMapper;
 
 @Service
 public class UserServiceImp implements UserService {
@@ -170,19 +172,7 @@ public class UserServiceImp implements UserService {
 
     // Chuyển đổi từ User sang UserModel
     private UserModel convertToModel(User user) {
-        return UserModel.builder()
-                .userId(user.getUserId())
-                .username(user.getUsername())
-                .fullname(user.getFullname())
-                .age(null) // Tính từ birth - cần tính toán từ ngày sinh
-                .gender(user.getGender())
-                .email(user.getEmail())
-                .phone(user.getPhone())
-                .birth(user.getBirth())
-                .address(user.getAddress())
-                .role(user.getRole())
-                .status(user.getStatus())
-                .build();
+        return UserMapper.toModel(user);
     }
     
     // Lấy danh sách users có phân trang (cho admin)
@@ -212,5 +202,38 @@ public class UserServiceImp implements UserService {
         
         return response;
     }
+    
+    // Lấy danh sách users theo cursor (cho admin, keyset pagination theo ID)
+    @Override
+    public PageResponseModel<UserModel> getAllUsersByCursor(String cursor, int size) {
+        if (size < 1) size = 10; // Kích thước mặc định là 10
+        
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, "id");
+        int afterId = after != null ? after.getId() : 0;
+        
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không
+        List<User> users = userRepository.findByUserIdGreaterThanOrderByUserIdAsc(afterId, PageRequest.of(0, size + 1));
+        boolean hasNext = users.size() > size;
+        if (hasNext) {
+            users = users.subList(0, size);
+        }
+        String nextCursor = hasNext ? CursorUtils.encode("id", null, users.get(users.size() - 1).getUserId()) : null;
+        
+        List<UserModel> content = users.stream()
+            .map(user -> convertToModel(user))
+            .collect(Collectors.toList());
+        
+        // Tạo PageResponse (chế độ cursor không đếm tổng số bản ghi)
+        PageResponseModel<UserModel> response = new PageResponseModel<>();
+        response.setContent(content);
+        response.setPage(0);
+        response.setSize(size);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(after == null);
+        response.setLast(nextCursor == null);
+        response.setNextCursor(nextCursor);
+        
+        return response;
+    }
 }
-
@@ -10,8 +10,11 @@ import com.vestshop.models.PageResponseModel;
 
 public interface OrderService {
     
-    // Tạo đơn hàng mới
-    OrderModel createOrder(OrderModel orderModel);
+    // Tạo đơn hàng mới (username: khách đang đăng nhập, chỉ được dùng lượt giữ hàng của chính mình)
+    OrderModel createOrder(OrderModel orderModel, String username);
+    
+    // Tạo đơn hàng mới theo Idempotency-Key (key đã qua IdempotencyService.resolveKey), kết quả được lưu lại cho request gửi lại
+    OrderModel createOrder(OrderModel orderModel, String username, String idempotencyKey, String requestHash);
     
     // Lấy tất cả đơn hàng
     List<OrderModel> getAllOrders();
@@ -45,5 +48,14 @@ public interface OrderService {
     
     // Lấy danh sách đơn hàng có phân trang (cho admin)
     PageResponseModel<OrderModel> getAllOrdersPaginated(int page, int size);
+
+    // Lấy danh sách đơn hàng theo cursor (keyset pagination, không đếm tổng số bản ghi)
+    PageResponseModel<OrderModel> getAllOrdersByCursor(String cursor, int size);
+    
+    // Admin: Tính lại bộ đếm bán hàng của sản phẩm (trả về số sản phẩm có đơn hoàn thành)
+    int rebuildSalesCounters();
+    
+    // Admin: Xây dựng lại ma trận mua cùng (trả về số đơn hàng hoàn thành đã xử lý)
+    int rebuildCoPurchaseMatrix();
 }
 
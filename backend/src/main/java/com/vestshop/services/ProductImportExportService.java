@@ -0,0 +1,15 @@
+package com.vestshop.services;
+
+import com.vestshop.models.ProductImportResultModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface ProductImportExportService {
+    // Import sản phẩm từ luồng CSV hoặc NDJSON (format = "csv" | "ndjson"), ghi theo lô, trả về kết quả và lỗi theo dòng
+    ProductImportResultModel importProducts(InputStream input, String format);
+
+    // Export toàn bộ sản phẩm ra luồng CSV hoặc NDJSON (đọc theo từng nhóm ID, bộ nhớ không phụ thuộc số sản phẩm)
+    void exportProducts(OutputStream output, String format) throws IOException;
+}
@@ -1,22 +1,48 @@
 package com.vestshop.services;
 
 import java.util.List;
+import java.util.Map;
 
+import com.vestshop.cache.CachedJson;
 import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.CacheValidatorModel;
+import com.vestshop.models.ProductBulkUpdateModel;
+import com.vestshop.models.ProductBulkUpdateResultModel;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.models.ProductFacetsModel;
 import com.vestshop.models.ProductModel;
+import com.vestshop.models.ProductSuggestionModel;
+import com.vestshop.models.ProductSummaryModel;
 
 public interface ProductService {
 
     // Lấy danh sách sản phẩm
     List<ProductModel> getAllProducts();
 
+    // Lấy danh sách sản phẩm dạng tóm tắt (cho các trang danh sách)
+    List<ProductSummaryModel> getProductSummaries();
+
     // Lấy danh sách sản phẩm có phân trang
     PageResponseModel<ProductModel> getAllProductsPaginated(int page, int size);
 
     // Lấy danh sách sản phẩm có phân trang với filter và sort
     PageResponseModel<ProductModel> getAllProductsPaginated(
-        int page, int size, String category, Integer minPrice, Integer maxPrice, String sortBy
+        int page, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy
+    );
+
+    // Lấy danh sách sản phẩm dạng tóm tắt có phân trang với filter và sort
+    PageResponseModel<ProductSummaryModel> getProductSummariesPaginated(
+        int page, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy
+    );
+    
+    // Lấy danh sách sản phẩm theo cursor (keyset pagination, không đếm tổng số bản ghi)
+    PageResponseModel<ProductModel> getAllProductsByCursor(
+        String cursor, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy
+    );
+
+    // Lấy danh sách sản phẩm dạng tóm tắt theo cursor
+    PageResponseModel<ProductSummaryModel> getProductSummariesByCursor(
+        String cursor, int size, String category, Integer minPrice, Integer maxPrice, String status, String sortBy
     );
     
     // Lấy danh sách sản phẩm có phân trang (cho admin)
@@ -28,9 +54,35 @@ public interface ProductService {
         Integer minPrice, Integer maxPrice, String sortBy, String sortOrder
     );
 
+    // Lấy danh sách sản phẩm dạng tóm tắt có phân trang với filter và sort (cho admin)
+    PageResponseModel<ProductSummaryModel> getProductSummariesPaginatedAdmin(
+        int page, int size, String searchTerm, String status, 
+        Integer minPrice, Integer maxPrice, String sortBy, String sortOrder
+    );
+
+    // Facet theo filter hiện tại: số sản phẩm theo danh mục, giá min/max và histogram giá
+    ProductFacetsModel getProductFacets(
+        String keyword, String category, Integer minPrice, Integer maxPrice, String status, int buckets
+    );
+
+    // Tìm kiếm sản phẩm theo từ khóa (không phân biệt dấu), xếp theo độ liên quan
+    PageResponseModel<ProductModel> searchProducts(String keyword, int page, int size);
+
+    // Tìm kiếm sản phẩm theo từ khóa, trả về dạng tóm tắt
+    PageResponseModel<ProductSummaryModel> searchProductSummaries(String keyword, int page, int size);
+
+    // Gợi ý danh mục và sản phẩm theo tiền tố đang gõ (typeahead), xếp theo độ phổ biến
+    List<ProductSuggestionModel> suggestProducts(String prefix, int limit);
+
+    // Sản phẩm thường được mua cùng sản phẩm (theo các đơn hàng đã hoàn thành)
+    List<ProductSummaryModel> getRelatedProducts(Integer id, int limit);
+
     // Lấy chi tiết sản phẩm theo ID
     ProductModel getProductById(Integer id);
 
+    // Lấy chi tiết sản phẩm dạng JSON đã serialize sẵn (UTF-8 + gzip)
+    CachedJson getProductJson(Integer id);
+
     // Tạo sản phẩm mới
     ProductModel createProduct(ProductModel product);
 
@@ -44,4 +96,19 @@ public interface ProductService {
 
     // Cập nhật tồn kho sản phẩm
     ProductModel updateProductStock(Integer id, Integer stock);
+
+    // Cập nhật tồn kho/giá/trạng thái của nhiều sản phẩm trong một transaction, trả về kết quả theo từng dòng
+    List<ProductBulkUpdateResultModel> bulkUpdateProducts(List<ProductBulkUpdateModel> items);
+
+    // ETag/Last-Modified cho danh sách sản phẩm (theo phiên bản catalog)
+    CacheValidatorModel getCatalogValidator();
+
+    // ETag/Last-Modified cho chi tiết sản phẩm
+    CacheValidatorModel getProductValidator(Integer id);
+
+    // Thống kê cache catalog (hit/miss/eviction)
+    Map<String, Object> getCatalogCacheStats();
+
+    // Tính lại điểm xu hướng/bán chạy từ lịch sử đơn hàng và đánh giá, trả về số sản phẩm có điểm
+    int rebuildRankingScores();
 }
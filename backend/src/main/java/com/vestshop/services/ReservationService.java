@@ -0,0 +1,22 @@
+package com.vestshop.services;
+
+import com.vestshop.models.CreateReservationModel;
+import com.vestshop.models.ReservationModel;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+public interface ReservationService {
+    // Giữ hàng cho khách trong thời gian thanh toán (lượt giữ cũ của khách, nếu có, được trả lại)
+    ReservationModel createReservation(String username, CreateReservationModel model);
+
+    // Khách hủy lượt giữ của mình, tồn kho được cộng lại
+    void releaseReservation(String username, String reservationId);
+
+    // Dùng lượt giữ khi đặt hàng (trong transaction của đơn hàng): trả về số lượng đã giữ theo sản phẩm,
+    // phần này đã được trừ tồn kho từ lúc giữ (rỗng nếu lượt giữ không còn). Lượt giữ của khách khác bị từ chối
+    SortedMap<Integer, Integer> consumeReservation(String username, String reservationId);
+
+    // Thống kê các lượt giữ đang hiệu lực
+    Map<String, Object> getStats();
+}
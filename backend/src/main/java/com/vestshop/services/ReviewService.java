@@ -2,9 +2,13 @@ package com.vestshop.services;
 
 import com.vestshop.enums.ReviewStatus;
 import com.vestshop.models.ReviewModel;
+import com.vestshop.models.CacheValidatorModel;
 import com.vestshop.models.PageResponseModel;
+import com.vestshop.models.ProductRatingModel;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ReviewService {
     
@@ -13,6 +17,9 @@ public interface ReviewService {
     
     // Lấy danh sách đánh giá của sản phẩm (chỉ ACTIVE)
     List<ReviewModel> getProductReviews(Integer productId);
+
+    // ETag/Last-Modified cho danh sách đánh giá của sản phẩm (chỉ ACTIVE)
+    CacheValidatorModel getProductReviewsValidator(Integer productId);
     
     // Lấy tất cả đánh giá của sản phẩm (bao gồm cả HIDDEN - cho admin)
     List<ReviewModel> getAllProductReviews(Integer productId);
@@ -41,6 +48,12 @@ public interface ReviewService {
     // Đếm số lượng đánh giá của sản phẩm
     Integer getReviewCount(Integer productId);
     
+    // Lấy rating trung bình và số lượng đánh giá của nhiều sản phẩm (key = productId)
+    Map<Integer, ProductRatingModel> getRatingsByProductIds(Collection<Integer> productIds);
+    
+    // Admin: Tính lại bảng tổng hợp rating từ bảng reviews (trả về số sản phẩm đã xử lý)
+    int rebuildRatingSummaries();
+    
     // Kiểm tra user đã đánh giá sản phẩm chưa
     boolean hasUserReviewed(Integer productId, Integer userId);
     
@@ -52,5 +65,8 @@ public interface ReviewService {
     
     // Admin: Lấy tất cả đánh giá có phân trang (có filter)
     PageResponseModel<ReviewModel> getAllReviewsPaginated(int page, int size, Integer productId, Integer userId, ReviewStatus status);
+    
+    // Admin: Lấy tất cả đánh giá theo cursor (keyset pagination, có filter, không đếm tổng số bản ghi)
+    PageResponseModel<ReviewModel> getAllReviewsByCursor(String cursor, int size, Integer productId, Integer userId, ReviewStatus status);
 }
 
@@ -0,0 +1,16 @@
+package com.vestshop.services;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+public interface StockService {
+    // Điều chỉnh tồn kho nhiều sản phẩm trong cùng transaction (số dương = trừ, số âm = cộng lại).
+    // Ném lỗi và không trừ gì nếu một sản phẩm không tồn tại hoặc không đủ hàng
+    void adjustStocks(SortedMap<Integer, Integer> deltaByProduct);
+
+    // Bật/tắt chế độ flash sale (tồn kho trừ trong bộ nhớ, ghi xuống database theo chu kỳ) cho một sản phẩm
+    Map<String, Object> setFlashSale(Integer productId, boolean enabled);
+
+    // Tồn kho trong bộ nhớ của các sản phẩm flash sale và số dòng ledger chưa ghi
+    Map<String, Object> getFlashSaleStats();
+}
@@ -39,5 +39,8 @@ public interface UserService {
     
     // Lấy danh sách users có phân trang (cho admin)
     PageResponseModel<UserModel> getAllUsersPaginated(int page, int size);
+
+    // Lấy danh sách users theo cursor (keyset pagination, không đếm tổng số bản ghi)
+    PageResponseModel<UserModel> getAllUsersByCursor(String cursor, int size);
 }
 
@@ -0,0 +1,83 @@
+package com.vestshop.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class CursorUtils {
+
+    private static final String SEPARATOR = "|";
+
+    // Mã hóa cursor của keyset pagination: kiểu sắp xếp + giá trị sắp xếp và ID của bản ghi cuối trang.
+    // Client chỉ cần gửi lại nguyên chuỗi (base64 url-safe), không cần hiểu nội dung
+    public static String encode(String sortType, Object sortValue, Integer id) {
+        String raw = sortType + SEPARATOR + (sortValue != null ? sortValue.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Giải mã cursor (null nếu cursor rỗng = trang đầu tiên).
+    // Cursor phải được tạo với cùng kiểu sắp xếp, nếu không sẽ báo lỗi
+    public static Cursor decode(String cursor, String expectedSortType) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            // Giá trị sắp xếp (ví dụ tên sản phẩm) có thể chứa dấu phân cách nên tách theo vị trí đầu và cuối
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            if (first < 0 || first == last || !raw.substring(0, first).equals(expectedSortType)) {
+                throw new RuntimeException("Cursor không hợp lệ");
+            }
+            String sortValue = raw.substring(first + 1, last);
+            Integer id = Integer.valueOf(raw.substring(last + 1));
+            return new Cursor(sortValue, id);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor không hợp lệ");
+        }
+    }
+
+    // Vị trí của bản ghi cuối trang trước
+    public static class Cursor {
+        private final String sortValue;
+        private final Integer id;
+
+        private Cursor(String sortValue, Integer id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+
+        public String getSortValue() {
+            return sortValue;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public Integer getSortValueAsInteger() {
+            try {
+                return Integer.valueOf(sortValue);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Cursor không hợp lệ");
+            }
+        }
+
+        public Double getSortValueAsDouble() {
+            try {
+                return Double.valueOf(sortValue);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Cursor không hợp lệ");
+            }
+        }
+
+        public LocalDateTime getSortValueAsDateTime() {
+            try {
+                return LocalDateTime.parse(sortValue);
+            } catch (DateTimeParseException e) {
+                throw new RuntimeException("Cursor không hợp lệ");
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.vestshop.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class SearchTextUtils {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Bỏ dấu tiếng Việt và chuyển về chữ thường ("Áo Vest Đen" -> "ao vest den")
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        // "đ"/"Đ" không tách được bằng NFD nên phải thay thủ công
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase();
+    }
+
+    // Tách văn bản đã bỏ dấu thành các từ (bỏ qua ký tự không phải chữ/số)
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
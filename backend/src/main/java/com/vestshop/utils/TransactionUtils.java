@@ -0,0 +1,52 @@
+package com.vestshop.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+
+    // Chạy action sau khi transaction hiện tại commit (chạy ngay nếu không có transaction).
+    // Dùng để cập nhật cache/index trong bộ nhớ chỉ khi dữ liệu đã thực sự được ghi.
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Chạy action nếu transaction hiện tại bị rollback (không làm gì nếu không có transaction).
+    // Dùng để hoàn lại thay đổi trong bộ nhớ đã làm trước khi biết transaction có thành công hay không.
+    public static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    // Chạy action khi transaction hiện tại kết thúc, dù commit hay rollback (chạy ngay nếu không có transaction).
+    // Dùng để giải phóng trạng thái trong bộ nhớ được giữ suốt transaction.
+    public static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- Script thêm cột effective_price (giá thực tế = COALESCE(sale_price, price)) cho bảng products
+-- và index (status, category, effective_price) dùng cho lọc/sắp xếp theo giá trên storefront.
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo cột/index,
+-- ứng dụng sẽ đồng bộ lại giá trị khi khởi động)
+
+-- Thêm cột
+ALTER TABLE products
+ADD COLUMN effective_price INT NOT NULL DEFAULT 0;
+
+-- Đồng bộ giá trị cho dữ liệu hiện có
+UPDATE products
+SET effective_price = COALESCE(sale_price, price);
+
+-- Tạo index
+CREATE INDEX idx_products_status_category_price
+ON products (status, category, effective_price);
+
+-- Kiểm tra kết quả
+SHOW INDEX FROM products;
@@ -0,0 +1,17 @@
+-- Script thêm chế độ flash sale: cột flash_sale trên products và bảng stock_ledger
+-- (thay đổi tồn kho của sản phẩm flash sale chưa được ghi xuống products.stock).
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo cột/bảng)
+
+ALTER TABLE products
+ADD COLUMN flash_sale BIT(1) NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS stock_ledger (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    product_id INT NOT NULL,
+    quantity INT NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
+
+-- Kiểm tra kết quả
+SELECT id, stock, flash_sale FROM products WHERE flash_sale = 1;
+SELECT product_id, SUM(quantity) FROM stock_ledger GROUP BY product_id;
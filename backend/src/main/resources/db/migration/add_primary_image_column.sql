@@ -0,0 +1,12 @@
+-- Script thêm cột primary_image (ảnh đại diện = ảnh đầu tiên của sản phẩm) cho bảng products,
+-- dùng cho các trang danh sách để không phải load bảng product_images.
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo cột).
+-- Ứng dụng sẽ tự gán ảnh đại diện cho các sản phẩm còn thiếu khi khởi động
+-- (product_images không có cột thứ tự nên không backfill bằng SQL)
+
+-- Thêm cột
+ALTER TABLE products
+ADD COLUMN primary_image VARCHAR(255) NULL;
+
+-- Kiểm tra kết quả
+SELECT id, primary_image FROM products LIMIT 10;
@@ -0,0 +1,16 @@
+-- Script thêm cột điểm xu hướng (trending_score) và bán chạy (bestseller_score) cho bảng products,
+-- dùng cho sortBy=trending / sortBy=bestseller trên storefront.
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo cột).
+-- Ứng dụng sẽ tự tính điểm từ lịch sử đơn hàng và đánh giá khi khởi động nếu chưa có sản phẩm nào có điểm
+
+-- Thêm cột
+ALTER TABLE products
+ADD COLUMN trending_score DOUBLE NOT NULL DEFAULT 0,
+ADD COLUMN bestseller_score DOUBLE NOT NULL DEFAULT 0;
+
+-- Index cho sắp xếp storefront
+CREATE INDEX idx_products_status_trending ON products (status, trending_score);
+CREATE INDEX idx_products_status_bestseller ON products (status, bestseller_score);
+
+-- Kiểm tra kết quả
+SELECT id, trending_score, bestseller_score FROM products LIMIT 10;
@@ -0,0 +1,25 @@
+-- Script thêm bộ đếm bán hàng (completed_order_count, sold_quantity) cho bảng products,
+-- được cộng/trừ khi đơn hàng vào/ra trạng thái COMPLETED.
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo cột,
+-- ứng dụng tự tính lại khi khởi động nếu chưa có sản phẩm nào có bộ đếm; admin có thể gọi
+-- POST /api/admin/orders/sales-counters/rebuild)
+
+-- Thêm cột
+ALTER TABLE products
+ADD COLUMN completed_order_count INT NOT NULL DEFAULT 0,
+ADD COLUMN sold_quantity INT NOT NULL DEFAULT 0;
+
+-- Tính bộ đếm cho các đơn hàng đã hoàn thành hiện có
+UPDATE products p
+JOIN (
+    SELECT oi.product_id, COUNT(DISTINCT oi.order_id) AS order_count, SUM(oi.quantity) AS quantity
+    FROM order_items oi
+    JOIN orders o ON o.id = oi.order_id
+    WHERE o.status = 'COMPLETED'
+    GROUP BY oi.product_id
+) sales ON sales.product_id = p.id
+SET p.completed_order_count = sales.order_count,
+    p.sold_quantity = sales.quantity;
+
+-- Kiểm tra kết quả
+SELECT id, completed_order_count, sold_quantity FROM products ORDER BY sold_quantity DESC LIMIT 10;
@@ -0,0 +1,17 @@
+-- Script tạo bảng lưu kết quả tạo đơn theo Idempotency-Key (POST /api/orders).
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo bảng)
+
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    id VARCHAR(64) NOT NULL PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    order_id INT NULL,
+    response_body TEXT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
+
+-- Job xóa các key hết hạn
+CREATE INDEX idx_order_idempotency_keys_expires ON order_idempotency_keys (expires_at);
+
+-- Kiểm tra kết quả
+SELECT COUNT(*), MIN(expires_at), MAX(expires_at) FROM order_idempotency_keys;
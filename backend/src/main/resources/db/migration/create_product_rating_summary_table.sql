@@ -0,0 +1,44 @@
+-- Script tạo bảng tổng hợp rating theo sản phẩm (chỉ tính đánh giá ACTIVE), được cập nhật cùng transaction với đánh giá.
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo bảng,
+-- ứng dụng tự tính lại khi khởi động nếu bảng còn trống; admin có thể gọi POST /api/admin/reviews/rating-summary/rebuild)
+
+CREATE TABLE IF NOT EXISTS product_rating_summary (
+    product_id INT NOT NULL PRIMARY KEY,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_count INT NOT NULL DEFAULT 0,
+    star_1_count INT NOT NULL DEFAULT 0,
+    star_2_count INT NOT NULL DEFAULT 0,
+    star_3_count INT NOT NULL DEFAULT 0,
+    star_4_count INT NOT NULL DEFAULT 0,
+    star_5_count INT NOT NULL DEFAULT 0,
+    updated_at DATETIME(6) NULL
+);
+
+-- Tính tổng hợp cho dữ liệu đánh giá hiện có (chạy lại được, ghi đè giá trị cũ)
+INSERT INTO product_rating_summary
+    (product_id, rating_sum, rating_count, star_1_count, star_2_count, star_3_count, star_4_count, star_5_count, updated_at)
+SELECT product_id,
+       SUM(rating),
+       COUNT(*),
+       SUM(rating = 1),
+       SUM(rating = 2),
+       SUM(rating = 3),
+       SUM(rating = 4),
+       SUM(rating = 5),
+       NOW(6)
+FROM reviews
+WHERE status = 'ACTIVE'
+GROUP BY product_id
+ON DUPLICATE KEY UPDATE
+    rating_sum = VALUES(rating_sum),
+    rating_count = VALUES(rating_count),
+    star_1_count = VALUES(star_1_count),
+    star_2_count = VALUES(star_2_count),
+    star_3_count = VALUES(star_3_count),
+    star_4_count = VALUES(star_4_count),
+    star_5_count = VALUES(star_5_count),
+    updated_at = VALUES(updated_at);
+
+-- Kiểm tra kết quả (hai cột phải bằng nhau)
+SELECT (SELECT COALESCE(SUM(rating_count), 0) FROM product_rating_summary) AS summary_count,
+       (SELECT COUNT(*) FROM reviews WHERE status = 'ACTIVE') AS active_review_count;
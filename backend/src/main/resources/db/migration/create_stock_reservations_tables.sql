@@ -0,0 +1,24 @@
+-- Script tạo bảng giữ hàng khi thanh toán (POST /api/reservations).
+-- Chạy script này trên database production trước khi deploy (ddl-auto=update cũng tự tạo bảng)
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id VARCHAR(36) NOT NULL PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
+
+-- Nạp các lượt giữ còn hiệu lực khi khởi động
+CREATE INDEX idx_stock_reservations_status_expires ON stock_reservations (status, expires_at);
+
+CREATE TABLE IF NOT EXISTS stock_reservation_items (
+    reservation_id VARCHAR(36) NOT NULL,
+    product_id INT NOT NULL,
+    quantity INT NOT NULL,
+    PRIMARY KEY (reservation_id, product_id),
+    CONSTRAINT fk_stock_reservation_items_reservation FOREIGN KEY (reservation_id) REFERENCES stock_reservations (id)
+);
+
+-- Kiểm tra kết quả
+SELECT status, COUNT(*) FROM stock_reservations GROUP BY status;
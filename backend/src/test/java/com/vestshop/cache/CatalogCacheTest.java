@@ -0,0 +1,92 @@
+package com.vestshop.cache;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.OrderStatus;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.models.ProductSummaryModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.OrderService;
+import com.vestshop.services.ProductService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Danh sách lọc theo trạng thái phải được xóa khi trạng thái đổi do trừ/cộng tồn kho (đặt hàng, hủy đơn),
+// kể cả khi sản phẩm chưa nằm trong danh sách đã cache
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogCacheTest {
+
+    private static final String CATEGORY = "Vest test cache trạng thái";
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void stockDrivenStatusFlipEvictsListsFilteredByOldOrNewStatus() {
+        Integer productId = productRepository.save(Product.builder()
+            .name("Áo vest test cache trạng thái")
+            .category(CATEGORY)
+            .price(1000000)
+            .stock(1)
+            .status(ProductStatus.ACTIVE)
+            .build()).getId();
+
+        // Cache cả hai danh sách trước khi đặt hàng
+        assertEquals(List.of(productId), idsWithStatus("ACTIVE"));
+        assertEquals(List.of(), idsWithStatus("OUT_OF_STOCK"));
+
+        // Đặt hết hàng: ACTIVE -> OUT_OF_STOCK
+        Integer orderId = orderService.createOrder(orderOf(productId), "user1").getId();
+        assertEquals(List.of(), idsWithStatus("ACTIVE"));
+        assertEquals(List.of(productId), idsWithStatus("OUT_OF_STOCK"));
+
+        // Hủy đơn, cộng lại hàng: OUT_OF_STOCK -> ACTIVE
+        orderService.updateOrderStatus(orderId, OrderStatus.CANCELLED);
+        assertEquals(List.of(productId), idsWithStatus("ACTIVE"));
+        assertEquals(List.of(), idsWithStatus("OUT_OF_STOCK"));
+    }
+
+    private List<Integer> idsWithStatus(String status) {
+        return productService.getProductSummariesPaginated(0, 8, CATEGORY, null, null, status, null).getContent().stream()
+            .map(ProductSummaryModel::getId)
+            .collect(Collectors.toList());
+    }
+
+    private OrderModel orderOf(Integer productId) {
+        OrderItemModel item = new OrderItemModel();
+        item.setProductId(productId);
+        item.setProductName("Áo vest test cache trạng thái");
+        item.setSize("M");
+        item.setQuantity(1);
+        item.setPrice(1000000);
+        OrderModel order = new OrderModel();
+        order.setFullName("Khách test");
+        order.setEmail("test@vestshop.vn");
+        order.setPhone("0900000000");
+        order.setAddress("1 ABC");
+        order.setCity("Hà Nội");
+        order.setDistrict("Ba Đình");
+        order.setWard("Phúc Xá");
+        order.setTotalAmount(1000000);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setItems(List.of(item));
+        return order;
+    }
+}
@@ -0,0 +1,92 @@
+package com.vestshop.controller;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.repository.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Chi tiết sản phẩm: chọn gzip theo q-value của Accept-Encoding, bản gzip và bản không nén có ETag riêng
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private String url;
+
+    @BeforeEach
+    void setUp() {
+        // Mô tả đủ dài để response được nén
+        Product product = productRepository.save(Product.builder()
+            .name("Áo vest nén gzip")
+            .category("Vest")
+            .price(1000000)
+            .description("Áo vest may đo, vải len pha. ".repeat(40))
+            .stock(5)
+            .status(ProductStatus.ACTIVE)
+            .build());
+        url = "/api/products/" + product.getId();
+    }
+
+    @Test
+    void gzipFollowsQualityValues() throws Exception {
+        assertEquals("gzip", contentEncoding("gzip, deflate, br"));
+        assertEquals("gzip", contentEncoding("br;q=1.0, gzip;q=0.5"));
+        assertEquals("gzip", contentEncoding("*"));
+        assertNull(contentEncoding(null));
+        assertNull(contentEncoding("identity"));
+        assertNull(contentEncoding("gzip;q=0"));
+        assertNull(contentEncoding("gzip; q=0.0, deflate"));
+        assertNull(contentEncoding("*, gzip;q=0"));
+    }
+
+    @Test
+    void gzipVariantHasItsOwnEtag() throws Exception {
+        String identityEtag = fetch(null).getResponse().getHeader(HttpHeaders.ETAG);
+        String gzipEtag = fetch("gzip").getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(identityEtag, gzipEtag);
+        assertTrue(gzipEtag.endsWith("-gzip\""));
+
+        // Mỗi ETag chỉ khớp với biến thể của nó
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, gzipEtag).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+            .andExpect(status().isOk());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, identityEtag))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, identityEtag).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk());
+    }
+
+    private String contentEncoding(String acceptEncoding) throws Exception {
+        return fetch(acceptEncoding).getResponse().getHeader(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    private MvcResult fetch(String acceptEncoding) throws Exception {
+        if (acceptEncoding == null) {
+            return mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        }
+        return mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)).andExpect(status().isOk()).andReturn();
+    }
+}
\ No newline at end of file
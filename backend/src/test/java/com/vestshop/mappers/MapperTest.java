@@ -0,0 +1,164 @@
+package com.vestshop.mappers;
+
+import com.vestshop.entity.ContactMessage;
+import com.vestshop.entity.Order;
+import com.vestshop.entity.OrderItem;
+import com.vestshop.entity.Product;
+import com.vestshop.entity.Review;
+import com.vestshop.entity.User;
+import com.vestshop.enums.Gender;
+import com.vestshop.enums.OrderStatus;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.enums.ReviewStatus;
+import com.vestshop.enums.Role;
+import com.vestshop.enums.UserStatus;
+import com.vestshop.models.ContactMessageModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.models.ProductModel;
+import com.vestshop.models.ReviewModel;
+import com.vestshop.models.UserModel;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Chuyển entity sang model: mapper viết tay cho cùng kết quả với ModelMapper mặc định (cách cũ, ánh xạ bằng reflection).
+// Không cần Spring context. Benchmark chạy bằng -Pbenchmark, số lần đo chỉnh bằng -Dbenchmark.iterations (mặc định 100000);
+// mỗi phép đo chạy WARMUP lần trước để JIT biên dịch xong
+class MapperTest {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 100000);
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    // Chặn JIT bỏ qua kết quả không dùng
+    private Object sink;
+
+    private Product product;
+    private User user;
+    private Order order;
+    private Review review;
+    private ContactMessage message;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        product = Product.builder()
+            .id(1)
+            .name("Áo vest lịch lãm")
+            .price(2500000)
+            .salePrice(2000000)
+            .category("Vest")
+            .description("Chất liệu len cao cấp")
+            .stock(12)
+            .images(new ArrayList<>(List.of("a.jpg", "b.jpg", "c.jpg")))
+            .details(new ArrayList<>(List.of("Len 80%", "May đo")))
+            .status(ProductStatus.ACTIVE)
+            .createdAt(now)
+            .updatedAt(now)
+            .build();
+        user = User.builder()
+            .userId(7)
+            .username("user1")
+            .password("secret")
+            .fullname("Nguyễn Văn A")
+            .gender(Gender.values()[0])
+            .email("user1@vestshop.vn")
+            .phone("0900000000")
+            .birth(LocalDate.of(1995, 5, 20))
+            .address("1 ABC")
+            .role(Role.values()[0])
+            .status(UserStatus.ACTIVE)
+            .build();
+        order = Order.builder()
+            .id(3)
+            .fullName("Nguyễn Văn A")
+            .email("user1@vestshop.vn")
+            .phone("0900000000")
+            .address("1 ABC")
+            .city("Hà Nội")
+            .district("Ba Đình")
+            .ward("Phúc Xá")
+            .totalAmount(4000000)
+            .paymentMethod(PaymentMethod.COD)
+            .status(OrderStatus.PENDING)
+            .createdAt(now)
+            .updatedAt(now)
+            .build();
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            items.add(OrderItem.builder().id(10 + i).order(order).product(product).size("M").quantity(1).price(2000000).build());
+        }
+        order.setItems(items);
+        review = Review.builder()
+            .id(5)
+            .product(product)
+            .user(user)
+            .rating(5)
+            .comment("Vải đẹp, may vừa")
+            .status(ReviewStatus.ACTIVE)
+            .createdAt(now)
+            .updatedAt(now)
+            .build();
+        message = ContactMessage.builder()
+            .id(9)
+            .name("Nguyễn Văn A")
+            .email("user1@vestshop.vn")
+            .phone("0900000000")
+            .subject("Đặt may")
+            .message("Cho tôi hỏi lịch đo")
+            .createdAt(now)
+            .isRead(false)
+            .build();
+    }
+
+    @Test
+    void staticMappersMatchModelMapper() {
+        // Hai cách cho cùng kết quả ở các trường chính
+        assertEquals(modelMapper.map(product, ProductModel.class).getImages(), ProductMapper.toModel(product).getImages());
+        assertEquals(modelMapper.map(order, OrderModel.class).getItems().size(), OrderMapper.toModel(order).getItems().size());
+        assertEquals(modelMapper.map(review, ReviewModel.class).getComment(), ReviewMapper.toModel(review).getComment());
+        assertEquals(modelMapper.map(user, UserModel.class).getUsername(), UserMapper.toModel(user).getUsername());
+        assertEquals(modelMapper.map(message, ContactMessageModel.class).getSubject(), ContactMessageMapper.toModel(message).getSubject());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void staticMappersVersusModelMapper() {
+        System.out.println("entity          | static ns/op | ModelMapper ns/op | speedup");
+        report("Product", () -> ProductMapper.toModel(product), () -> modelMapper.map(product, ProductModel.class));
+        report("Order (3 items)", () -> OrderMapper.toModel(order), () -> modelMapper.map(order, OrderModel.class));
+        report("Review", () -> ReviewMapper.toModel(review), () -> modelMapper.map(review, ReviewModel.class));
+        report("User", () -> UserMapper.toModel(user), () -> modelMapper.map(user, UserModel.class));
+        report("ContactMessage", () -> ContactMessageMapper.toModel(message), () -> modelMapper.map(message, ContactMessageModel.class));
+    }
+
+    private void report(String entity, Supplier<?> staticMapper, Supplier<?> reflectiveMapper) {
+        double staticNs = measure(staticMapper);
+        double reflectiveNs = measure(reflectiveMapper);
+        System.out.printf("%-15s | %12.0f | %17.0f | %6.1fx%n", entity, staticNs, reflectiveNs, reflectiveNs / staticNs);
+    }
+
+    // Thời gian trung bình (ns) của một lần chuyển đổi
+    private double measure(Supplier<?> mapper) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = mapper.get();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = mapper.get();
+        }
+        return (double) (System.nanoTime() - startedAt) / ITERATIONS;
+    }
+}
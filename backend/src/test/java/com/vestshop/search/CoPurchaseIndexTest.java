@@ -0,0 +1,148 @@
+package com.vestshop.search;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.OrderStatus;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.OrderService;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+// Đơn hàng đổi trạng thái trong lúc rebuild() đang đọc phải được đếm đúng một lần (hoặc không lần nào),
+// dù thay đổi commit trước hay sau khi nhóm đơn hàng chứa nó được đọc.
+// Dùng database riêng vì SpyBean tạo Spring context riêng (create-drop không đụng schema của các test khác)
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:vestshop_copurchase_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+class CoPurchaseIndexTest {
+
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // rebuild() đọc mỗi nhóm bằng hai transaction: ID đơn hàng COMPLETED (lần đọc 1) rồi sản phẩm của các đơn (lần đọc 2)
+    @SpyBean
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void orderCompletedBeforeItsChunkIsReadIsCountedOnce() {
+        // A-C mua cùng 2 lần, A-B 1 lần (đơn hoàn thành trong lúc rebuild, trước khi nhóm của nó được đọc)
+        List<Product> products = createProducts("Áo vest A", "Cà vạt B", "Sơ mi C");
+        Integer a = products.get(0).getId();
+        Integer b = products.get(1).getId();
+        Integer c = products.get(2).getId();
+        completeOrder(a, c);
+        completeOrder(a, c);
+        Integer pending = orderService.createOrder(orderOf(a, b), "user1").getId();
+
+        rebuildWithChange(1, true, () -> orderService.updateOrderStatus(pending, OrderStatus.COMPLETED));
+
+        // Đếm hai lần thì B (ID nhỏ hơn) bằng C và đứng trước
+        assertEquals(List.of(c, b), coPurchaseIndex.getRelated(a));
+    }
+
+    @Test
+    void orderLeavingCompletedAfterItsChunkIsReadIsRemoved() {
+        List<Product> products = createProducts("Áo vest D", "Cà vạt E", "Sơ mi F");
+        Integer d = products.get(0).getId();
+        Integer e = products.get(1).getId();
+        Integer f = products.get(2).getId();
+        completeOrder(d, f);
+        Integer reverted = completeOrder(d, e);
+
+        rebuildWithChange(2, false, () -> orderService.updateOrderStatus(reverted, OrderStatus.PROCESSING));
+
+        assertEquals(List.of(f), coPurchaseIndex.getRelated(d));
+    }
+
+    // Chạy rebuild(), đổi trạng thái đơn hàng trên luồng khác (đợi commit xong) ngay trước (before = true)
+    // hoặc ngay sau lần đọc thứ read của rebuild(). Chỉ tính các lần đọc trên luồng test (job nền cũng dùng TransactionTemplate)
+    private void rebuildWithChange(int read, boolean before, Runnable change) {
+        Thread testThread = Thread.currentThread();
+        AtomicInteger reads = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            boolean hit = Thread.currentThread() == testThread && reads.incrementAndGet() == read;
+            if (hit && before) {
+                CompletableFuture.runAsync(change).join();
+            }
+            Object result = invocation.callRealMethod();
+            if (hit && !before) {
+                CompletableFuture.runAsync(change).join();
+            }
+            return result;
+        }).when(transactionTemplate).execute(any());
+        try {
+            coPurchaseIndex.rebuild();
+        } finally {
+            Mockito.reset(transactionTemplate);
+        }
+    }
+
+    private List<Product> createProducts(String... names) {
+        List<Product> products = new ArrayList<>();
+        for (String name : names) {
+            products.add(productRepository.save(Product.builder()
+                .name(name)
+                .category("Vest")
+                .price(1000000)
+                .stock(100)
+                .status(ProductStatus.ACTIVE)
+                .build()));
+        }
+        return products;
+    }
+
+    private Integer completeOrder(Integer... productIds) {
+        Integer orderId = orderService.createOrder(orderOf(productIds), "user1").getId();
+        orderService.updateOrderStatus(orderId, OrderStatus.COMPLETED);
+        return orderId;
+    }
+
+    private OrderModel orderOf(Integer... productIds) {
+        List<OrderItemModel> items = new ArrayList<>();
+        for (Integer productId : productIds) {
+            OrderItemModel item = new OrderItemModel();
+            item.setProductId(productId);
+            item.setProductName("Sản phẩm " + productId);
+            item.setSize("M");
+            item.setQuantity(1);
+            item.setPrice(1000000);
+            items.add(item);
+        }
+        OrderModel order = new OrderModel();
+        order.setFullName("Khách test");
+        order.setEmail("test@vestshop.vn");
+        order.setPhone("0900000000");
+        order.setAddress("1 ABC");
+        order.setCity("Hà Nội");
+        order.setDistrict("Ba Đình");
+        order.setWard("Phúc Xá");
+        order.setTotalAmount(1000000 * productIds.length);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setItems(items);
+        return order;
+    }
+}
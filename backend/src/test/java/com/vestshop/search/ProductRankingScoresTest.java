@@ -0,0 +1,91 @@
+package com.vestshop.search;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.OrderStatus;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.OrderService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Điểm cập nhật trực tiếp theo sự kiện phải bằng điểm rebuild() tính lại từ lịch sử đơn hàng,
+// kể cả khi đơn hàng ra khỏi COMPLETED sau một khoảng thời gian hoặc bị hủy
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductRankingScoresTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Autowired
+    private ProductRankingScores productRankingScores;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void liveScoresMatchRebuildAfterUncompleteAndCancel() throws Exception {
+        Product product = productRepository.save(Product.builder()
+            .name("Áo vest test xếp hạng")
+            .category("Vest")
+            .price(1000000)
+            .stock(100)
+            .status(ProductStatus.ACTIVE)
+            .build());
+
+        OrderModel kept = orderService.createOrder(orderOf(product.getId(), 2), "user1");
+        orderService.updateOrderStatus(kept.getId(), OrderStatus.COMPLETED);
+        OrderModel reverted = orderService.createOrder(orderOf(product.getId(), 3), "user1");
+        orderService.updateOrderStatus(reverted.getId(), OrderStatus.COMPLETED);
+        OrderModel cancelled = orderService.createOrder(orderOf(product.getId(), 4), "user1");
+
+        // Đổi trạng thái muộn hơn thời điểm hoàn thành/đặt hàng vài giây: phần trừ vẫn phải dùng thời điểm ban đầu
+        Thread.sleep(2100);
+        orderService.updateOrderStatus(reverted.getId(), OrderStatus.PROCESSING);
+        orderService.updateOrderStatus(cancelled.getId(), OrderStatus.CANCELLED);
+
+        productRankingScores.flush();
+        Product live = productRepository.findById(product.getId()).orElseThrow();
+        productRankingScores.rebuild();
+        Product rebuilt = productRepository.findById(product.getId()).orElseThrow();
+
+        assertTrue(rebuilt.getTrendingScore() > 0);
+        assertTrue(rebuilt.getBestsellerScore() > 0);
+        assertEquals(rebuilt.getTrendingScore(), live.getTrendingScore(), TOLERANCE);
+        assertEquals(rebuilt.getBestsellerScore(), live.getBestsellerScore(), TOLERANCE);
+    }
+
+    private OrderModel orderOf(Integer productId, int quantity) {
+        OrderItemModel item = new OrderItemModel();
+        item.setProductId(productId);
+        item.setProductName("Áo vest test xếp hạng");
+        item.setSize("M");
+        item.setQuantity(quantity);
+        item.setPrice(1000000);
+        OrderModel order = new OrderModel();
+        order.setFullName("Khách test");
+        order.setEmail("test@vestshop.vn");
+        order.setPhone("0900000000");
+        order.setAddress("1 ABC");
+        order.setCity("Hà Nội");
+        order.setDistrict("Ba Đình");
+        order.setWard("Phúc Xá");
+        order.setTotalAmount(1000000 * quantity);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setItems(List.of(item));
+        return order;
+    }
+}
@@ -0,0 +1,119 @@
+package com.vestshop.search;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.repository.ProductRepository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Tìm kiếm sản phẩm bằng chỉ mục trong bộ nhớ (ProductSearchIndex.search) so với cách cũ của trang admin
+// (LOWER(name) LIKE '%từ khóa%', quét cả bảng): mọi sản phẩm khớp LIKE đều khớp chỉ mục, không dấu vẫn khớp có dấu.
+// Benchmark độ trễ chạy bằng -Pbenchmark, số sản phẩm chỉnh bằng -Dbenchmark.products (mặc định 2000),
+// số lần đo mỗi query bằng -Dbenchmark.iterations (mặc định 200).
+// H2 trong bộ nhớ không tốn round trip, trên MySQL qua mạng chênh lệch lớn hơn nhiều
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchIndexTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 2000);
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200);
+
+    private static final String[] STYLES = { "lịch lãm", "cưới", "công sở", "dạ hội", "nhung đen" };
+    private static final String[] CATEGORIES = { "Vest", "Áo sơ mi", "Quần âu", "Phụ kiện" };
+    private static final String[] MATERIALS = { "len", "lụa", "cotton", "linen", "kaki" };
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void indexFindsEverythingLikeFinds() {
+        saveProducts(100, "tìm kiếm");
+        productSearchIndex.rebuild();
+
+        for (String query : List.of("áo vest", "ao vest", "vest cưới", "cong so", "tìm kiếm 99", "lụa")) {
+            // Chỉ mục còn tìm theo danh mục, mô tả, không dấu nên có thể khớp nhiều hơn LIKE trên tên
+            assertTrue(new HashSet<>(productSearchIndex.search(query, true)).containsAll(likeSearch(query)), query);
+        }
+
+        // Không dấu vẫn khớp có dấu, LIKE thì không
+        assertEquals(new HashSet<>(productSearchIndex.search("áo vest", true)), new HashSet<>(productSearchIndex.search("ao vest", true)));
+        assertTrue(productSearchIndex.search("ao vest", true).size() >= 100 / CATEGORIES.length);
+        assertTrue(likeSearch("ao vest").isEmpty());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void indexSearchVersusLikeScan() {
+        saveProducts(PRODUCTS, "benchmark");
+        productSearchIndex.rebuild();
+
+        System.out.println("query            | index hits | index avg ms | index p99 ms | LIKE hits | LIKE avg ms | LIKE p99 ms");
+        for (String query : List.of("áo vest", "ao vest", "vest cưới", "cong so", "benchmark 1999", "lụa")) {
+            List<Integer> indexHits = productSearchIndex.search(query, true);
+            List<Integer> likeHits = likeSearch(query);
+            double[] indexMs = measure(() -> productSearchIndex.search(query, true));
+            double[] likeMs = measure(() -> likeSearch(query));
+            System.out.printf("%-16s | %10d | %12.3f | %12.3f | %9d | %11.3f | %11.3f%n",
+                query, indexHits.size(), indexMs[0], indexMs[1], likeHits.size(), likeMs[0], likeMs[1]);
+        }
+    }
+
+    private void saveProducts(int count, String marker) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            String kind = category.equals("Vest") ? "Áo vest" : category;
+            products.add(Product.builder()
+                .name(kind + " " + STYLES[i % STYLES.length] + " " + marker + " " + i)
+                .category(category)
+                .description("Chất liệu " + MATERIALS[i % MATERIALS.length] + " cao cấp, may đo theo số đo khách hàng")
+                .price(1000000 + i)
+                .stock(10)
+                .status(ProductStatus.ACTIVE)
+                .build());
+        }
+        productRepository.saveAll(products);
+    }
+
+    // Cách tìm cũ của trang admin
+    private List<Integer> likeSearch(String query) {
+        return jdbcTemplate.queryForList("SELECT id FROM products WHERE LOWER(name) LIKE ?", Integer.class,
+            "%" + query.toLowerCase().trim() + "%");
+    }
+
+    // [trung bình, p99] độ trễ (ms) sau WARMUP lần chạy thử
+    private double[] measure(Supplier<?> action) {
+        for (int i = 0; i < WARMUP; i++) {
+            action.get();
+        }
+        double[] samples = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long startedAt = System.nanoTime();
+            action.get();
+            samples[i] = (System.nanoTime() - startedAt) / 1e6;
+        }
+        Arrays.sort(samples);
+        return new double[] { Arrays.stream(samples).average().orElse(0), samples[(int) Math.ceil(ITERATIONS * 0.99) - 1] };
+    }
+}
@@ -0,0 +1,137 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.OrderService;
+import com.vestshop.services.StockService;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Benchmark độ trễ tạo đơn theo số dòng trong giỏ:
+// - createOrder: toàn bộ luồng tạo đơn (một findAllById + một JDBC batch trừ tồn kho)
+// - trừ tồn kho bằng batch (StockService.adjustStocks) so với cách cũ: findById + save từng sản phẩm
+// Chạy bằng -Pbenchmark, số lần đo chỉnh bằng -Dbenchmark.iterations (mặc định 30). H2 trong bộ nhớ gần như không tốn round trip,
+// trên MySQL qua mạng chênh lệch giữa hai cách lớn hơn nhiều
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+class OrderServiceImpCartSizeBenchmarkTest {
+
+    private static final int[] CART_SIZES = { 1, 5, 10, 20 };
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 30);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void orderCreationLatencyByCartSize() {
+        int maxCartSize = CART_SIZES[CART_SIZES.length - 1];
+        int stock = 4 * (WARMUP + ITERATIONS) * CART_SIZES.length;
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < maxCartSize; i++) {
+            products.add(productRepository.save(Product.builder()
+                .name("Áo vest benchmark " + i)
+                .category("Vest")
+                .price(1000000)
+                .stock(stock)
+                .status(ProductStatus.ACTIVE)
+                .build()));
+        }
+
+        System.out.println("cart size | createOrder ms | batch stock ms | per-line stock ms");
+        for (int cartSize : CART_SIZES) {
+            List<Product> cart = products.subList(0, cartSize);
+            OrderModel order = orderOf(cart);
+            SortedMap<Integer, Integer> deltaByProduct = new TreeMap<>();
+            cart.forEach(product -> deltaByProduct.put(product.getId(), 1));
+
+            double createOrderMs = measure(() -> orderService.createOrder(order, "user1"));
+            double batchMs = measure(() -> stockService.adjustStocks(deltaByProduct));
+            double perLineMs = measure(() -> transactionTemplate.executeWithoutResult(status -> decrementPerLine(cart)));
+            System.out.printf("%9d | %14.2f | %14.2f | %17.2f%n", cartSize, createOrderMs, batchMs, perLineMs);
+        }
+
+        // Mỗi sản phẩm chỉ bị trừ bởi các giỏ có chứa nó
+        for (int i = 0; i < maxCartSize; i++) {
+            int expectedUnits = 0;
+            for (int cartSize : CART_SIZES) {
+                if (i < cartSize) {
+                    expectedUnits += 3 * (WARMUP + ITERATIONS);
+                }
+            }
+            assertEquals(stock - expectedUnits, productRepository.findById(products.get(i).getId()).orElseThrow().getStock());
+        }
+    }
+
+    // Cách trừ tồn kho trước đây: đọc từng sản phẩm, trừ trong Java rồi lưu lại
+    private void decrementPerLine(List<Product> cart) {
+        for (Product cartProduct : cart) {
+            Product product = productRepository.findById(cartProduct.getId()).orElseThrow();
+            product.setStock(product.getStock() - 1);
+            productRepository.save(product);
+        }
+    }
+
+    // Độ trễ trung bình (ms) sau WARMUP lần chạy thử
+    private double measure(Runnable action) {
+        for (int i = 0; i < WARMUP; i++) {
+            action.run();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - startedAt) / 1e6 / ITERATIONS;
+    }
+
+    private OrderModel orderOf(List<Product> cart) {
+        List<OrderItemModel> items = new ArrayList<>();
+        for (Product product : cart) {
+            OrderItemModel item = new OrderItemModel();
+            item.setProductId(product.getId());
+            item.setProductName(product.getName());
+            item.setSize("M");
+            item.setQuantity(1);
+            item.setPrice(product.getPrice());
+            items.add(item);
+        }
+        OrderModel order = new OrderModel();
+        order.setFullName("Khách benchmark");
+        order.setEmail("bench@vestshop.vn");
+        order.setPhone("0900000000");
+        order.setAddress("1 ABC");
+        order.setCity("Hà Nội");
+        order.setDistrict("Ba Đình");
+        order.setWard("Phúc Xá");
+        order.setTotalAmount(1000000 * cart.size());
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setItems(items);
+        return order;
+    }
+}
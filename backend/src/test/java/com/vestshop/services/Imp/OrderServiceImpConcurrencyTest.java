@@ -0,0 +1,102 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.OrderService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Nhiều luồng cùng đặt một sản phẩm: trừ tồn kho bằng UPDATE có điều kiện nên không bao giờ bán vượt tồn kho
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderServiceImpConcurrencyTest {
+
+    private static final int STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void concurrentOrdersForOneSkuNeverOversell() throws Exception {
+        Product product = productRepository.save(Product.builder()
+            .name("Áo vest test đồng thời")
+            .category("Vest")
+            .price(1000000)
+            .stock(STOCK)
+            .status(ProductStatus.ACTIVE)
+            .build());
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(orderOf(product.getId(), 1), "user1");
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        Product reloaded = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(STOCK, succeeded.get());
+        assertEquals(ATTEMPTS - STOCK, rejected.get());
+        assertEquals(0, reloaded.getStock());
+        assertEquals(ProductStatus.OUT_OF_STOCK, reloaded.getStatus());
+    }
+
+    private OrderModel orderOf(Integer productId, int quantity) {
+        OrderItemModel item = new OrderItemModel();
+        item.setProductId(productId);
+        item.setProductName("Áo vest test đồng thời");
+        item.setSize("M");
+        item.setQuantity(quantity);
+        item.setPrice(1000000);
+        OrderModel order = new OrderModel();
+        order.setFullName("Khách test");
+        order.setEmail("test@vestshop.vn");
+        order.setPhone("0900000000");
+        order.setAddress("1 ABC");
+        order.setCity("Hà Nội");
+        order.setDistrict("Ba Đình");
+        order.setWard("Phúc Xá");
+        order.setTotalAmount(1000000 * quantity);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setItems(List.of(item));
+        return order;
+    }
+}
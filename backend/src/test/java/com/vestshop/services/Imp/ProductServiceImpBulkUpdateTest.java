@@ -0,0 +1,73 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.ProductBulkUpdateModel;
+import com.vestshop.models.ProductBulkUpdateResultModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.ProductService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cập nhật hàng loạt chỉ tính lại trạng thái theo tồn kho khi dòng cập nhật có stock
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceImpBulkUpdateTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void priceOnlyUpdateKeepsHiddenStatus() {
+        Product product = saveProduct("Áo vest ẩn hết hàng", 0, ProductStatus.HIDDEN);
+
+        ProductBulkUpdateModel item = new ProductBulkUpdateModel();
+        item.setId(product.getId());
+        item.setPrice(1500000);
+        ProductBulkUpdateResultModel result = productService.bulkUpdateProducts(List.of(item)).get(0);
+
+        assertTrue(result.isSuccess());
+        assertEquals(ProductStatus.HIDDEN, result.getStatus());
+        Product reloaded = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(1500000, reloaded.getPrice());
+        assertEquals(ProductStatus.HIDDEN, reloaded.getStatus());
+    }
+
+    @Test
+    void stockUpdateStillFollowsStock() {
+        Product outOfStock = saveProduct("Áo vest hết hàng", 0, ProductStatus.OUT_OF_STOCK);
+        Product active = saveProduct("Áo vest đang bán", 5, ProductStatus.ACTIVE);
+
+        ProductBulkUpdateModel restock = new ProductBulkUpdateModel();
+        restock.setId(outOfStock.getId());
+        restock.setStock(3);
+        ProductBulkUpdateModel sellOut = new ProductBulkUpdateModel();
+        sellOut.setId(active.getId());
+        sellOut.setStock(0);
+        productService.bulkUpdateProducts(List.of(restock, sellOut));
+
+        assertEquals(ProductStatus.ACTIVE, productRepository.findById(outOfStock.getId()).orElseThrow().getStatus());
+        assertEquals(ProductStatus.OUT_OF_STOCK, productRepository.findById(active.getId()).orElseThrow().getStatus());
+    }
+
+    private Product saveProduct(String name, int stock, ProductStatus status) {
+        return productRepository.save(Product.builder()
+            .name(name)
+            .category("Vest")
+            .price(1000000)
+            .stock(stock)
+            .status(status)
+            .build());
+    }
+}
\ No newline at end of file
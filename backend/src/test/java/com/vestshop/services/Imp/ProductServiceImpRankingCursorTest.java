@@ -0,0 +1,84 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.PageResponseModel;
+import com.vestshop.models.ProductModel;
+import com.vestshop.models.ProductSummaryModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.ProductService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Cursor của trang tóm tắt khi sort trending/bestseller được tạo từ điểm trong projection,
+// giống hệt cursor của trang đầy đủ
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceImpRankingCursorTest {
+
+    // Giá riêng để trang chỉ chứa sản phẩm của test này
+    private static final int PRICE = 913579;
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void summaryCursorWalksRankingOrder() {
+        // Hai sản phẩm cùng điểm để kiểm tra thứ tự phụ theo ID
+        double[] trendingScores = { 3.5, 9.0, 1.25, 9.0, 6.0 };
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < trendingScores.length; i++) {
+            ids.add(productRepository.save(Product.builder()
+                .name("Áo vest xếp hạng " + i)
+                .category("Vest")
+                .price(PRICE)
+                .stock(5)
+                .status(ProductStatus.ACTIVE)
+                .trendingScore(trendingScores[i])
+                .bestsellerScore((double) i)
+                .build()).getId());
+        }
+
+        List<Integer> expectedTrending = List.of(ids.get(1), ids.get(3), ids.get(4), ids.get(0), ids.get(2));
+        assertEquals(expectedTrending, walkSummaries("trending"));
+        assertEquals(expectedTrending, walkProducts("trending"));
+
+        List<Integer> expectedBestseller = List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0));
+        assertEquals(expectedBestseller, walkSummaries("bestseller"));
+        assertEquals(expectedBestseller, walkProducts("bestseller"));
+    }
+
+    private List<Integer> walkSummaries(String sortBy) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResponseModel<ProductSummaryModel> page = productService.getProductSummariesByCursor(cursor, PAGE_SIZE, null, PRICE, PRICE, null, sortBy);
+            page.getContent().forEach(summary -> ids.add(summary.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Integer> walkProducts(String sortBy) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResponseModel<ProductModel> page = productService.getAllProductsByCursor(cursor, PAGE_SIZE, null, PRICE, PRICE, null, sortBy);
+            page.getContent().forEach(product -> ids.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.cache.CatalogCache;
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.PageResponseModel;
+import com.vestshop.models.ProductModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.ProductService;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Số câu lệnh SQL của trang danh sách và trang chi tiết không phụ thuộc số sản phẩm trong trang
+// hay số images/details của sản phẩm (images/details được load theo lô hoặc bằng JOIN, không N+1)
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceImpStatementCountTest {
+
+    private static final int[] PAGE_SIZES = { 2, 10, 40 };
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingPagesUseConstantStatementCount() {
+        Map<Integer, Long> adminCounts = new LinkedHashMap<>();
+        Map<Integer, Long> publicCounts = new LinkedHashMap<>();
+        for (int size : PAGE_SIZES) {
+            // Giá riêng cho mỗi nhóm để trang chỉ chứa sản phẩm của nhóm đó
+            int price = 700000 + size;
+            for (int i = 0; i < size; i++) {
+                saveProduct("Áo vest trang " + size + "-" + i, price, 3, 2);
+            }
+            adminCounts.put(size, countStatements(() -> {
+                PageResponseModel<ProductModel> page = productService.getAllProductsPaginatedAdmin(0, size, null, null, price, price, null, null);
+                assertEquals(size, page.getContent().size());
+                page.getContent().forEach(model -> {
+                    assertEquals(3, model.getImages().size());
+                    assertEquals(2, model.getDetails().size());
+                });
+                return page;
+            }));
+            publicCounts.put(size, countStatements(() -> {
+                PageResponseModel<ProductModel> page = productService.getAllProductsPaginated(0, size, null, price, price, null, null);
+                assertEquals(size, page.getContent().size());
+                return page;
+            }));
+        }
+        assertConstant(adminCounts);
+        assertConstant(publicCounts);
+    }
+
+    @Test
+    void detailViewUsesConstantStatementCount() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int collectionSize : new int[] { 1, 4, 12 }) {
+            Product product = saveProduct("Áo vest chi tiết " + collectionSize, 800000, collectionSize, collectionSize);
+            counts.put(collectionSize, countStatements(() -> {
+                ProductModel model = productService.getProductById(product.getId());
+                assertEquals(collectionSize, model.getImages().size());
+                assertEquals(collectionSize, model.getDetails().size());
+                return model;
+            }));
+        }
+        assertConstant(counts);
+    }
+
+    // Số câu lệnh ít nhất trong vài lần chạy (bỏ qua câu lệnh của các job chạy nền cùng lúc), cache catalog được xóa trước mỗi lần
+    private long countStatements(Supplier<Object> action) {
+        long min = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            catalogCache.evictAll();
+            statistics.clear();
+            action.get();
+            min = Math.min(min, statistics.getPrepareStatementCount());
+        }
+        return min;
+    }
+
+    private void assertConstant(Map<Integer, Long> counts) {
+        long first = counts.values().iterator().next();
+        counts.forEach((size, count) -> assertEquals(first, count, "statement count for " + size + ": " + counts));
+    }
+
+    private Product saveProduct(String name, int price, int imageCount, int detailCount) {
+        List<String> images = new ArrayList<>();
+        for (int i = 0; i < imageCount; i++) {
+            images.add("/images/test-" + i + ".jpg");
+        }
+        List<String> details = new ArrayList<>();
+        for (int i = 0; i < detailCount; i++) {
+            details.add("Chi tiết " + i);
+        }
+        return productRepository.save(Product.builder()
+            .name(name)
+            .category("Vest")
+            .price(price)
+            .stock(10)
+            .status(ProductStatus.ACTIVE)
+            .images(images)
+            .details(details)
+            .build());
+    }
+}
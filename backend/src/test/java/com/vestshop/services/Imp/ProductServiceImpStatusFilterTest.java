@@ -0,0 +1,88 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.PageResponseModel;
+import com.vestshop.models.ProductModel;
+import com.vestshop.models.ProductSummaryModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.ProductService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Filter status trên storefront: mặc định ACTIVE + OUT_OF_STOCK, status=HIDDEN không trả về sản phẩm nào
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceImpStatusFilterTest {
+
+    // Giá riêng cho mỗi test để trang chỉ chứa sản phẩm của test đó
+    private static final AtomicInteger NEXT_PRICE = new AtomicInteger(912000);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private int price;
+    private Product active;
+    private Product outOfStock;
+
+    @BeforeEach
+    void setUp() {
+        price = NEXT_PRICE.incrementAndGet();
+        active = saveProduct("Áo vest lọc đang bán", 5, ProductStatus.ACTIVE);
+        outOfStock = saveProduct("Áo vest lọc hết hàng", 0, ProductStatus.OUT_OF_STOCK);
+        saveProduct("Áo vest lọc bị ẩn", 5, ProductStatus.HIDDEN);
+    }
+
+    @Test
+    void defaultListingShowsActiveAndOutOfStock() {
+        assertEquals(Set.of(active.getId(), outOfStock.getId()), listedIds(null));
+        assertEquals(Set.of(active.getId(), outOfStock.getId()), summaryIds(null));
+    }
+
+    @Test
+    void statusFilterIsApplied() {
+        assertEquals(Set.of(outOfStock.getId()), listedIds("OUT_OF_STOCK"));
+        assertEquals(Set.of(active.getId()), summaryIds("ACTIVE"));
+    }
+
+    @Test
+    void hiddenFilterReturnsNothing() {
+        assertTrue(listedIds("HIDDEN").isEmpty());
+        assertTrue(summaryIds("HIDDEN").isEmpty());
+        assertEquals(0, productService.getProductFacets(null, null, null, null, "HIDDEN", 5).getTotalProducts());
+    }
+
+    private Set<Integer> listedIds(String status) {
+        PageResponseModel<ProductModel> page = productService.getAllProductsPaginated(0, 20, null, price, price, status, null);
+        return page.getContent().stream().map(ProductModel::getId).collect(Collectors.toSet());
+    }
+
+    private Set<Integer> summaryIds(String status) {
+        PageResponseModel<ProductSummaryModel> page = productService.getProductSummariesPaginated(0, 20, null, price, price, status, null);
+        return page.getContent().stream().map(ProductSummaryModel::getId).collect(Collectors.toSet());
+    }
+
+    private Product saveProduct(String name, int stock, ProductStatus status) {
+        return productRepository.save(Product.builder()
+            .name(name)
+            .category("Vest")
+            .price(price)
+            .stock(stock)
+            .status(status)
+            .build());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.vestshop.services.Imp;
+
+import com.vestshop.entity.Product;
+import com.vestshop.enums.PaymentMethod;
+import com.vestshop.enums.ProductStatus;
+import com.vestshop.models.OrderItemModel;
+import com.vestshop.models.OrderModel;
+import com.vestshop.repository.ProductRepository;
+import com.vestshop.services.OrderService;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Tải cho một sản phẩm bán chạy: tắt flash sale giữa lúc đang tải không được bán vượt tồn kho.
+// Benchmark (chạy bằng -Pbenchmark): số đơn/giây khi trừ dòng products và khi bật flash sale (bộ đếm trong bộ nhớ + ledger)
+@SpringBootTest
+@ActiveProfiles("test")
+class StockServiceImpFlashSaleLoadTest {
+
+    private static final int STOCK = 300;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = Integer.getInteger("benchmark.attempts", 600);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockServiceImp stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @Tag("benchmark")
+    void ordersPerSecondWithAndWithoutFlashSale() throws Exception {
+        Product rowProduct = createProduct("Áo vest test tải thường");
+        Product hotProduct = createProduct("Áo vest test tải flash sale");
+        stockService.setFlashSale(hotProduct.getId(), true);
+
+        int[] rowResult = hammer(rowProduct.getId(), null);
+        int[] hotResult = hammer(hotProduct.getId(), null);
+        stockService.flushStockLedger();
+        System.out.printf("createOrder on one SKU (%d attempts, %d threads): %d orders/s without flash sale, %d orders/s with flash sale%n",
+            ATTEMPTS, THREADS, rowResult[2], hotResult[2]);
+
+        assertEquals(STOCK, rowResult[0]);
+        assertEquals(STOCK, hotResult[0]);
+        assertEquals(0, stockOf(rowProduct.getId()));
+        assertEquals(0, stockOf(hotProduct.getId()));
+        assertEquals(0, ledgerRowsOf(hotProduct.getId()));
+    }
+
+    @Test
+    void disablingFlashSaleUnderLoadNeverOversells() throws Exception {
+        Product product = createProduct("Áo vest test tắt flash sale");
+        stockService.setFlashSale(product.getId(), true);
+
+        int[] result = hammer(product.getId(), () -> stockService.setFlashSale(product.getId(), false));
+        stockService.flushStockLedger();
+
+        assertEquals(STOCK, result[0]);
+        assertEquals(ATTEMPTS - STOCK, result[1]);
+        assertEquals(0, stockOf(product.getId()));
+        assertEquals(0, ledgerRowsOf(product.getId()));
+        Product reloaded = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(false, reloaded.getFlashSale());
+        assertEquals(ProductStatus.OUT_OF_STOCK, reloaded.getStatus());
+    }
+
+    @Test
+    void disablingWaitsForInFlightHotOrders() throws Exception {
+        Product product = productRepository.save(Product.builder()
+            .name("Áo vest test đơn đang xử lý")
+            .category("Vest")
+            .price(1000000)
+            .stock(1)
+            .status(ProductStatus.ACTIVE)
+            .build());
+        stockService.setFlashSale(product.getId(), true);
+
+        // Đơn đã trừ bộ đếm nhưng chưa commit khi admin tắt flash sale
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> inFlight = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            stockService.adjustStocks(new TreeMap<>(Map.of(product.getId(), 1)));
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        taken.await(10, TimeUnit.SECONDS);
+        Future<?> disable = pool.submit(() -> stockService.setFlashSale(product.getId(), false));
+        Thread.sleep(300);
+        assertFalse(disable.isDone());
+
+        release.countDown();
+        inFlight.get(10, TimeUnit.SECONDS);
+        disable.get(10, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        // Phần đơn đang xử lý đã được ghi xuống stock trước khi tắt cờ: đơn mới qua UPDATE có điều kiện bị từ chối
+        assertEquals(0, stockOf(product.getId()));
+        assertThrows(RuntimeException.class,
+            () -> stockService.adjustStocks(new TreeMap<>(Map.of(product.getId(), 1))));
+        stockService.flushStockLedger();
+        assertEquals(0, stockOf(product.getId()));
+    }
+
+    // Gửi ATTEMPTS đơn 1 sản phẩm từ THREADS luồng, chạy midway (nếu có) sau khi đã gửi một phần ba số đơn.
+    // Trả về [số đơn thành công, số đơn bị từ chối, số đơn/giây]
+    private int[] hammer(Integer productId, Runnable midway) throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger submitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch third = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                if (submitted.incrementAndGet() == ATTEMPTS / 3) {
+                    third.countDown();
+                }
+                try {
+                    orderService.createOrder(orderOf(productId), "user1");
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        if (midway != null) {
+            third.await(60, TimeUnit.SECONDS);
+            midway.run();
+        }
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        pool.shutdown();
+        return new int[] { succeeded.get(), rejected.get(), (int) Math.round(ATTEMPTS / seconds) };
+    }
+
+    private Product createProduct(String name) {
+        return productRepository.save(Product.builder()
+            .name(name)
+            .category("Vest")
+            .price(1000000)
+            .stock(STOCK)
+            .status(ProductStatus.ACTIVE)
+            .build());
+    }
+
+    private int stockOf(Integer productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private long ledgerRowsOf(Integer productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_ledger WHERE product_id = ?", Long.class, productId);
+    }
+
+    private OrderModel orderOf(Integer productId) {
+        OrderItemModel item = new OrderItemModel();
+        item.setProductId(productId);
+        item.setProductName("Áo vest test tải");
+        item.setSize("M");
+        item.setQuantity(1);
+        item.setPrice(1000000);
+        OrderModel order = new OrderModel();
+        order.setFullName("Khách test");
+        order.setEmail("test@vestshop.vn");
+        order.setPhone("0900000000");
+        order.setAddress("1 ABC");
+        order.setCity("Hà Nội");
+        order.setDistrict("Ba Đình");
+        order.setWard("Phúc Xá");
+        order.setTotalAmount(1000000);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setItems(List.of(item));
+        return order;
+    }
+}
@@ -1,8 +1,8 @@
-import { useState, useEffect } from 'react'
+import { useState, useEffect, useRef } from 'react'
 import { useNavigate } from 'react-router-dom'
 import { useCart } from '../context/CartContext'
 import { useAuth } from '../context/AuthContext'
-import { authAPI, orderAPI } from '../services/api'
+import { authAPI, orderAPI, reservationAPI } from '../services/api'
 import { provinces, getDistricts, getWards } from '../data/addressData'
 
 function Checkout() {
@@ -131,6 +131,24 @@ function Checkout() {
     }
   }
 
+  // Giữ hàng trong giỏ khi vào trang thanh toán (giỏ thay đổi thì giữ lại theo giỏ mới)
+  const [reservation, setReservation] = useState(null)
+  // Idempotency-Key của lần đặt hàng hiện tại: dùng lại khi khách bấm đặt hàng lần nữa sau lỗi mạng/timeout
+  // (server trả lại đơn đã tạo thay vì tạo đơn mới), tạo key mới khi server đã trả lỗi
+  const idempotencyKeyRef = useRef(null)
+  const canReserve = !authLoading && isAuthenticated() && cartItems.length > 0
+  useEffect(() => {
+    if (!canReserve) return
+    const items = cartItems.map(item => ({ productId: item.id, quantity: item.quantity }))
+    reservationAPI.create(items)
+      .then(response => setReservation(response.data))
+      .catch(error => {
+        // Không giữ được hàng (hết hàng...) vẫn cho đặt hàng, lỗi tồn kho sẽ báo khi đặt
+        console.error('Error reserving cart items:', error)
+        setReservation(null)
+      })
+  }, [canReserve, cartItems])
+
   // Tự động hiện QR code khi chọn BANKING
   useEffect(() => {
     if (formData.paymentMethod === 'BANKING') {
@@ -254,6 +272,7 @@ function Checkout() {
         ...formData,
         phone: formData.phone.replace(/\s/g, ''), // Remove spaces from phone
         totalAmount: getTotalPrice(),
+        reservationId: reservation?.id,
         items: cartItems.map(item => ({
           productId: item.id,
           productName: item.name,
@@ -264,7 +283,12 @@ function Checkout() {
       };
 
       // Call API to create order
-      const response = await orderAPI.create(orderData);
+      if (!idempotencyKeyRef.current) {
+        idempotencyKeyRef.current = window.crypto?.randomUUID
+          ? window.crypto.randomUUID()
+          : `${Date.now()}-${Math.random().toString(36).slice(2)}`
+      }
+      const response = await orderAPI.create(orderData, idempotencyKeyRef.current);
       const createdOrder = response.data;
       console.log('Order created:', createdOrder);
       
@@ -275,6 +299,9 @@ function Checkout() {
     } catch (error) {
       console.error('Error creating order:', error);
       const status = error.response?.status;
+      if (error.response) {
+        idempotencyKeyRef.current = null
+      }
       const errorMessage = error.response?.data?.message || error.message;
       
       if (status === 401 || status === 403) {
@@ -594,6 +621,12 @@ function Checkout() {
                   </div>
                 </div>
 
+                {reservation && (
+                  <p className="text-sm text-gray-600 mb-3">
+                    Sản phẩm trong giỏ được giữ cho bạn đến {new Date(reservation.expiresAt).toLocaleTimeString('vi-VN', { hour: '2-digit', minute: '2-digit' })}
+                  </p>
+                )}
+
                 <button type="submit" className="btn-primary w-full">
                   Đặt hàng
                 </button>
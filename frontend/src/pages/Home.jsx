@@ -1,6 +1,7 @@
 import { Link } from 'react-router-dom'
 import { useEffect, useState } from 'react'
 import { productAPI } from '../services/api'
+import { thumbnailUrl } from '../utils/imageUtils'
 
 function Home() {
   const [featuredProducts, setFeaturedProducts] = useState([])
@@ -126,7 +127,7 @@ function Home() {
               >
                 <div className="aspect-[3/4] overflow-hidden">
                   <img
-                    src={product.images?.[0] || 'https://via.placeholder.com/500'}
+                    src={thumbnailUrl(product.primaryImage || product.images?.[0], 480) || 'https://via.placeholder.com/500'}
                     alt={product.name}
                     className="w-full h-full object-cover group-hover:scale-110 transition-transform duration-500"
                   />
@@ -2,6 +2,7 @@ import { useState, useEffect } from 'react'
 import { Link } from 'react-router-dom'
 import { productAPI } from '../services/api'
 import Pagination from '../components/Pagination'
+import { thumbnailUrl } from '../utils/imageUtils'
 
 function Products() {
   const [products, setProducts] = useState([])
@@ -130,6 +131,8 @@ function Products() {
                 <option value="name">Tên A-Z</option>
                 <option value="price-asc">Giá thấp đến cao</option>
                 <option value="price-desc">Giá cao đến thấp</option>
+                <option value="trending">Xu hướng</option>
+                <option value="bestseller">Bán chạy</option>
               </select>
             </div>
           </div>
@@ -152,7 +155,7 @@ function Products() {
                 >
                   <div className="aspect-[3/4] overflow-hidden">
                     <img
-                      src={product.images?.[0] || 'https://via.placeholder.com/500'}
+                      src={thumbnailUrl(product.primaryImage || product.images?.[0], 480) || 'https://via.placeholder.com/500'}
                       alt={product.name}
                       className="w-full h-full object-cover group-hover:scale-110 transition-transform duration-500"
                     />
@@ -167,7 +170,7 @@ function Products() {
                       )}
                     </div>
                     <h3 className="text-lg font-serif font-semibold mt-1 mb-2">{product.name}</h3>
-                    <p className="text-sm text-gray-600 mb-2">{product.description}</p>
+                    <p className="text-sm text-gray-600 mb-2">{product.shortDescription ?? product.description}</p>
                     <div className="flex items-center gap-2 flex-wrap">
                       {product.salePrice ? (
                         <>
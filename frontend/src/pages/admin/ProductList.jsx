@@ -2,6 +2,7 @@ import { useState, useEffect } from 'react'
 import { Link } from 'react-router-dom'
 import { adminProductAPI } from '../../services/api'
 import Pagination from '../../components/Pagination'
+import { thumbnailUrl } from '../../utils/imageUtils'
 
 function ProductList() {
   const [products, setProducts] = useState([])
@@ -244,7 +245,7 @@ function ProductList() {
                   <td className="px-4 md:px-6 py-4">
                     <div className="flex items-center space-x-3 min-w-0">
                       <img
-                        src={product.images?.[0] || 'https://via.placeholder.com/200'}
+                        src={thumbnailUrl(product.primaryImage || product.images?.[0], 160) || 'https://via.placeholder.com/200'}
                         alt={product.name}
                         className="w-16 h-20 object-cover rounded flex-shrink-0"
                       />
@@ -83,17 +83,28 @@ export const productAPI = {
     return api.get(`/products?${params.toString()}`);
   },
   getById: (id) => api.get(`/products/${id}`),
-  search: (keyword) => api.get(`/products/search?keyword=${keyword}`),
+  search: (keyword, page = 0, size = 8) => api.get(`/products/search?q=${encodeURIComponent(keyword)}&page=${page}&size=${size}`),
+  suggest: (prefix, limit = 8) => api.get(`/products/suggest?prefix=${encodeURIComponent(prefix)}&limit=${limit}`),
+  getRelated: (id, limit = 4) => api.get(`/products/${id}/related?limit=${limit}`),
 };
 
 // Orders API
 export const orderAPI = {
-  create: (orderData) => api.post('/orders', orderData),
+  // idempotencyKey: giữ nguyên khi gửi lại sau lỗi mạng/timeout để server không tạo đơn trùng
+  create: (orderData, idempotencyKey) => api.post('/orders', orderData, {
+    headers: idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : {},
+  }),
   getById: (id) => api.get(`/orders/${id}`),
   getMyOrders: () => api.get('/orders/my-orders'),
   getByEmail: (email) => api.get(`/orders/by-email?email=${email}`), // Chỉ dùng cho admin
 };
 
+// Reservations API (giữ hàng trong giỏ khi ở bước thanh toán)
+export const reservationAPI = {
+  create: (items) => api.post('/reservations', { items }),
+  release: (id) => api.delete(`/reservations/${id}`),
+};
+
 // Admin Products API
 export const adminProductAPI = {
   getAll: (params) => api.get('/admin/products', { params }),
@@ -125,6 +136,13 @@ export const adminProductAPI = {
   delete: (id) => api.delete(`/admin/products/${id}`),
   updateStatus: (id, status) => api.patch(`/admin/products/${id}/status?status=${status}`),
   updateStock: (id, stock) => api.patch(`/admin/products/${id}/stock?stock=${stock}`),
+  // Cập nhật tồn kho/giá/trạng thái hàng loạt: items = [{ id, stock, price, salePrice, clearSalePrice, status }]
+  bulkUpdate: (items) => api.patch('/admin/products/bulk', items),
+  // Import/export hàng loạt (file: File/Blob CSV hoặc NDJSON)
+  importProducts: (file, format = 'csv') => api.post(`/admin/products/import?format=${format}`, file, {
+    headers: { 'Content-Type': format === 'ndjson' ? 'application/x-ndjson' : 'text/csv' },
+  }),
+  exportProducts: (format = 'csv') => api.get(`/admin/products/export?format=${format}`, { responseType: 'blob' }),
 };
 
 // Admin Orders API
@@ -0,0 +1,16 @@
+/**
+ * Utility functions cho ảnh sản phẩm
+ */
+
+const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:9090/api';
+
+/**
+ * URL ảnh thu nhỏ của ảnh sản phẩm (được backend resize, nén và cache lâu dài)
+ * @param {string} src - URL ảnh gốc của sản phẩm
+ * @param {number} width - Chiều rộng hiển thị (px), backend làm tròn lên kích thước được hỗ trợ
+ * @returns {string|null} URL ảnh thu nhỏ, hoặc null nếu không có ảnh
+ */
+export function thumbnailUrl(src, width) {
+  if (!src) return null;
+  return `${API_BASE_URL}/images?src=${encodeURIComponent(src)}&w=${width}`;
+}
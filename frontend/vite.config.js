@@ -1,8 +1,31 @@
 import { defineConfig } from 'vite'
 import react from '@vitejs/plugin-react'
+import { readdirSync, readFileSync, statSync, writeFileSync } from 'node:fs'
+import { join } from 'node:path'
+import { brotliCompressSync, constants, gzipSync } from 'node:zlib'
+
+// Nén sẵn gzip + brotli (mức cao nhất) các file text sau khi build,
+// backend trả thẳng file .br/.gz thay vì nén lại ở mỗi request
+const precompress = () => ({
+  name: 'precompress',
+  apply: 'build',
+  closeBundle() {
+    const walk = (dir) => readdirSync(dir).forEach((name) => {
+      const path = join(dir, name)
+      if (statSync(path).isDirectory()) return walk(path)
+      if (!/\.(js|css|html|svg|json)$/.test(name) || statSync(path).size < 1024) return
+      const data = readFileSync(path)
+      writeFileSync(`${path}.gz`, gzipSync(data, { level: 9 }))
+      writeFileSync(`${path}.br`, brotliCompressSync(data, {
+        params: { [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY }
+      }))
+    })
+    walk('dist')
+  }
+})
 
 export default defineConfig({
-  plugins: [react()],
+  plugins: [react(), precompress()],
   base: '/',
   build: {
     outDir: 'dist',